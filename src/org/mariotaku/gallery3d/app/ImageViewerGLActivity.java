@@ -27,6 +27,7 @@ import org.mariotaku.gallery3d.util.GalleryUtils;
 import org.mariotaku.gallery3d.util.ThreadPool;
 import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.R;
+import org.mariotaku.twidere.app.TwidereApplication;
 import org.mariotaku.twidere.loader.GLImageLoader;
 import org.mariotaku.twidere.util.SaveImageTask;
 import org.mariotaku.twidere.util.Utils;
@@ -87,8 +88,6 @@ public final class ImageViewerGLActivity extends FragmentActivity implements Con
 	private long mContentLength;
 	private boolean mLoaderInitialized;
 
-	private ThreadPool mThreadPool;
-
 	private boolean mImageLoaded;
 
 	private File mImageFile;
@@ -98,8 +97,7 @@ public final class ImageViewerGLActivity extends FragmentActivity implements Con
 	}
 
 	public ThreadPool getThreadPool() {
-		if (mThreadPool != null) return mThreadPool;
-		return mThreadPool = new ThreadPool();
+		return TwidereApplication.getInstance(this).getThreadPool();
 	}
 
 	public void hideControls() {
@@ -224,7 +222,7 @@ public final class ImageViewerGLActivity extends FragmentActivity implements Con
 	public void onLoadFinished(final Loader<GLImageLoader.Result> loader, final GLImageLoader.Result data) {
 		if (data instanceof GLImageLoader.GLImageResult) {
 			final GLImageLoader.GLImageResult data_gl = (GLImageLoader.GLImageResult) data;
-			mAdapter.setData(data_gl.decoder, data_gl.bitmap, data_gl.orientation);
+			mAdapter.setData(data_gl.decoder, data_gl.bitmap, data_gl.orientation, data.file);
 			mImageFile = data.file;
 			mImageLoaded = true;
 			mRefreshStopSaveButton.setImageResource(R.drawable.ic_menu_save);
@@ -277,7 +275,7 @@ public final class ImageViewerGLActivity extends FragmentActivity implements Con
 		mPhotoView = new PhotoView(this);
 		mPhotoView.setListener(this);
 		mRootPane.addComponent(mPhotoView);
-		mAdapter = new PhotoViewAdapter(mPhotoView);
+		mAdapter = new PhotoViewAdapter(mPhotoView, TwidereApplication.getInstance(this).getImageTileCache());
 		mPhotoView.setModel(mAdapter);
 		if (savedInstanceState == null) {
 			loadImage();
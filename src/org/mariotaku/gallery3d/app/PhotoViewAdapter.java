@@ -16,12 +16,15 @@
 
 package org.mariotaku.gallery3d.app;
 
+import java.io.File;
+
 import org.mariotaku.gallery3d.ui.BitmapScreenNail;
 import org.mariotaku.gallery3d.ui.PhotoView;
 import org.mariotaku.gallery3d.ui.ScreenNail;
 import org.mariotaku.gallery3d.util.ApiHelper;
 import org.mariotaku.gallery3d.util.BitmapPool;
 import org.mariotaku.gallery3d.util.GalleryUtils;
+import org.mariotaku.twidere.util.ImageTileCache;
 
 import android.graphics.Bitmap;
 import android.graphics.Bitmap.Config;
@@ -42,12 +45,15 @@ public class PhotoViewAdapter implements PhotoView.ITileImageAdapter {
 	protected int mLevelCount;
 
 	private final PhotoView mPhotoView;
+	private final ImageTileCache mTileCache;
 	private BitmapScreenNail mBitmapScreenNail;
+	private String mImageKey;
 
 	private int mImageRotation;
 
-	public PhotoViewAdapter(final PhotoView view) {
+	public PhotoViewAdapter(final PhotoView view, final ImageTileCache tile_cache) {
 		mPhotoView = view;
+		mTileCache = tile_cache;
 	}
 
 	@Override
@@ -86,9 +92,59 @@ public class PhotoViewAdapter implements PhotoView.ITileImageAdapter {
 	//
 	// As a result, we should decode region (50-6, 50-6, 250+6, 250+6) or
 	// (44, 44, 256, 256) from the original photo and down sample it to 106.
+	// Decoded tiles are kept in the tile cache, a cached tile is immutable and
+	// must not be put into the pool.
 	@Override
 	public Bitmap getTile(final int level, final int x, final int y, final int tileSize, final int borderSize,
 			final BitmapPool pool) {
+		final String image_key;
+		synchronized (this) {
+			image_key = mImageKey;
+		}
+		if (mTileCache != null && image_key != null) {
+			final Bitmap cached = mTileCache.get(image_key, level, x, y);
+			if (cached != null) return cached;
+		}
+		final Bitmap bitmap = decodeTile(level, x, y, tileSize, borderSize, pool);
+		if (mTileCache != null && image_key != null && bitmap != null) {
+			mTileCache.put(image_key, level, x, y, bitmap);
+		}
+		return bitmap;
+	}
+
+	@Override
+	public void recycleScreenNail() {
+		if (mBitmapScreenNail != null) {
+			mBitmapScreenNail.recycle();
+			mBitmapScreenNail = null;
+		}
+	}
+
+	@Override
+	public boolean setData(final BitmapRegionDecoder decoder, final Bitmap bitmap, final int oroentation,
+			final File file) {
+		try {
+			if (decoder != null) {
+				setScreenNail(bitmap, decoder.getWidth(), decoder.getHeight());
+			} else {
+				if (bitmap == null) return false;
+				setScreenNail(bitmap, bitmap.getWidth(), bitmap.getHeight());
+			}
+			setRegionDecoder(decoder, ImageTileCache.getImageKey(file));
+			mPhotoView.notifyImageChange();
+			return true;
+		} catch (final Throwable t) {
+			Log.w(TAG, "fail to decode large", t);
+			return false;
+		}
+	}
+
+	private int calculateLevelCount() {
+		return Math.max(0, GalleryUtils.ceilLog2((float) mImageWidth / mScreenNail.getWidth()));
+	}
+
+	private Bitmap decodeTile(final int level, final int x, final int y, final int tileSize, final int borderSize,
+			final BitmapPool pool) {
 		if (!ApiHelper.HAS_REUSING_BITMAP_IN_BITMAP_REGION_DECODER)
 			return getTileWithoutReusingBitmap(level, x, y, tileSize, borderSize);
 
@@ -128,7 +184,9 @@ public class PhotoViewAdapter implements PhotoView.ITileImageAdapter {
 		try {
 			// In CropImage, we may call the decodeRegion() concurrently.
 			synchronized (regionDecoder) {
-				bitmap = regionDecoder.decodeRegion(wantRegion, options);
+				// Recycled by the pool if another image was set meanwhile,
+				// the reused bitmap goes back to the pool below.
+				bitmap = regionDecoder.isRecycled() ? null : regionDecoder.decodeRegion(wantRegion, options);
 			}
 		} finally {
 			if (options.inBitmap != bitmap && options.inBitmap != null) {
@@ -145,36 +203,6 @@ public class PhotoViewAdapter implements PhotoView.ITileImageAdapter {
 		return bitmap;
 	}
 
-	@Override
-	public void recycleScreenNail() {
-		if (mBitmapScreenNail != null) {
-			mBitmapScreenNail.recycle();
-			mBitmapScreenNail = null;
-		}
-	}
-
-	@Override
-	public boolean setData(final BitmapRegionDecoder decoder, final Bitmap bitmap, final int oroentation) {
-		try {
-			if (decoder != null) {
-				setScreenNail(bitmap, decoder.getWidth(), decoder.getHeight());
-			} else {
-				if (bitmap == null) return false;
-				setScreenNail(bitmap, bitmap.getWidth(), bitmap.getHeight());
-			}
-			setRegionDecoder(decoder);
-			mPhotoView.notifyImageChange();
-			return true;
-		} catch (final Throwable t) {
-			Log.w(TAG, "fail to decode large", t);
-			return false;
-		}
-	}
-
-	private int calculateLevelCount() {
-		return Math.max(0, GalleryUtils.ceilLog2((float) mImageWidth / mScreenNail.getWidth()));
-	}
-
 	private Bitmap getTileWithoutReusingBitmap(final int level, final int x, final int y, final int tileSize,
 			final int borderSize) {
 		final int b = borderSize << level;
@@ -199,6 +227,7 @@ public class PhotoViewAdapter implements PhotoView.ITileImageAdapter {
 
 		// In CropImage, we may call the decodeRegion() concurrently.
 		synchronized (regionDecoder) {
+			if (regionDecoder.isRecycled()) return null;
 			bitmap = regionDecoder.decodeRegion(overlapRegion, options);
 		}
 
@@ -216,8 +245,9 @@ public class PhotoViewAdapter implements PhotoView.ITileImageAdapter {
 		return result;
 	}
 
-	private synchronized void setRegionDecoder(final BitmapRegionDecoder decoder) {
+	private synchronized void setRegionDecoder(final BitmapRegionDecoder decoder, final String image_key) {
 		mRegionDecoder = decoder;
+		mImageKey = decoder != null ? image_key : null;
 		if (decoder == null) return;
 		mImageWidth = decoder.getWidth();
 		mImageHeight = decoder.getHeight();
@@ -235,6 +265,7 @@ public class PhotoViewAdapter implements PhotoView.ITileImageAdapter {
 		mImageWidth = width;
 		mImageHeight = height;
 		mRegionDecoder = null;
+		mImageKey = null;
 		mLevelCount = 0;
 	}
 
@@ -16,6 +16,8 @@
 
 package org.mariotaku.gallery3d.ui;
 
+import java.io.File;
+
 import org.mariotaku.gallery3d.app.ImageViewerGLActivity;
 import org.mariotaku.gallery3d.util.BitmapPool;
 
@@ -217,7 +219,10 @@ public class PhotoView extends GLView {
 
 		public void recycleScreenNail();
 
-		public boolean setData(BitmapRegionDecoder decoder, Bitmap bitmap, int orientation);
+		/**
+		 * @param file Image file, used to find cached tiles, may be null.
+		 */
+		public boolean setData(BitmapRegionDecoder decoder, Bitmap bitmap, int orientation, File file);
 
 	}
 
@@ -16,6 +16,7 @@
 
 package org.mariotaku.gallery3d.ui;
 
+import java.util.ArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.mariotaku.gallery3d.app.ImageViewerGLActivity;
@@ -47,6 +48,8 @@ public class TileImageView extends GLView {
 	private static int BITMAP_SIZE;
 	private static final int UPLOAD_LIMIT = 1;
 
+	private static final int MAX_PREFETCH_TILES = 8;
+
 	private static BitmapPool sTilePool;
 
 	/*
@@ -96,6 +99,9 @@ public class TileImageView extends GLView {
 	private final TileQueue mRecycledQueue = new TileQueue();
 	private final TileQueue mUploadQueue = new TileQueue();
 	private final TileQueue mDecodeQueue = new TileQueue();
+	// Keys of tiles likely to be shown next, decoded into the tile cache
+	// when the decode queue is empty.
+	private final ArrayList<Long> mPrefetchQueue = new ArrayList<Long>();
 
 	// The width and height of the full-sized bitmap
 	protected int mImageWidth = SIZE_UNKNOWN;
@@ -109,6 +115,10 @@ public class TileImageView extends GLView {
 	// Temp variables to avoid memory allocation
 	private final Rect mTileRange = new Rect();
 	private final Rect mActiveRange[] = { new Rect(), new Rect() };
+	private final Rect mPrefetchRange = new Rect();
+
+	private int mLastLayoutCenterX, mLastLayoutCenterY;
+	private float mLastLayoutScale;
 
 	private final TileUploader mTileUploader = new TileUploader();
 	private boolean mIsTextureFreed;
@@ -118,7 +128,7 @@ public class TileImageView extends GLView {
 
 	public TileImageView(final ImageViewerGLActivity context) {
 		mThreadPool = context.getThreadPool();
-		mTileDecoder = mThreadPool.submit(new TileDecoder());
+		mTileDecoder = mThreadPool.submit(new TileDecoder(), ThreadPool.PRIORITY_VISIBLE);
 		if (TILE_SIZE == 0) {
 			if (GalleryUtils.isHighResolution(context)) {
 				TILE_SIZE = 510;
@@ -151,6 +161,7 @@ public class TileImageView extends GLView {
 		synchronized (this) {
 			mUploadQueue.clean();
 			mDecodeQueue.clean();
+			mPrefetchQueue.clear();
 			Tile tile = mRecycledQueue.pop();
 			while (tile != null) {
 				tile.recycle();
@@ -182,7 +193,7 @@ public class TileImageView extends GLView {
 
 	public void prepareTextures() {
 		if (mTileDecoder == null) {
-			mTileDecoder = mThreadPool.submit(new TileDecoder());
+			mTileDecoder = mThreadPool.submit(new TileDecoder(), ThreadPool.PRIORITY_VISIBLE);
 		}
 		if (mIsTextureFreed) {
 			layoutTiles(mCenterX, mCenterY, mScale, mRotation);
@@ -304,9 +315,7 @@ public class TileImageView extends GLView {
 			if (tile.mTileState == STATE_RECYCLING) {
 				tile.mTileState = STATE_RECYCLED;
 				if (tile.mDecodedTile != null) {
-					if (sTilePool != null) {
-						sTilePool.recycle(tile.mDecodedTile);
-					}
+					recycleBitmap(tile.mDecodedTile);
 					tile.mDecodedTile = null;
 				}
 				mRecycledQueue.push(tile);
@@ -396,6 +405,7 @@ public class TileImageView extends GLView {
 	private synchronized void invalidateTiles() {
 		mDecodeQueue.clean();
 		mUploadQueue.clean();
+		mPrefetchQueue.clear();
 
 		// TODO disable decoder
 		final int n = mActiveTiles.size();
@@ -460,6 +470,7 @@ public class TileImageView extends GLView {
 		synchronized (this) {
 			mDecodeQueue.clean();
 			mUploadQueue.clean();
+			mPrefetchQueue.clear();
 			mBackgroundTileUploaded = false;
 
 			// Recycle unused tiles: if the level of the active tile is outside
@@ -487,6 +498,7 @@ public class TileImageView extends GLView {
 				}
 			}
 		}
+		queueForPrefetch(centerX, centerY, scale, rotation);
 		invalidate();
 	}
 
@@ -509,6 +521,69 @@ public class TileImageView extends GLView {
 		}
 	}
 
+	// Queue the tiles next to the visible range in the direction the image
+	// is panned, and the tiles of the next finer level when zooming in.
+	private void queueForPrefetch(final int centerX, final int centerY, final float scale, final int rotation) {
+		final int dx = centerX - mLastLayoutCenterX, dy = centerY - mLastLayoutCenterY;
+		final boolean zoom_in = scale > mLastLayoutScale;
+		mLastLayoutCenterX = centerX;
+		mLastLayoutCenterY = centerY;
+		mLastLayoutScale = scale;
+		if (mModel == null || mLevel == mLevelCount) return;
+		final ArrayList<Long> keys = new ArrayList<Long>();
+		final int size = TILE_SIZE << mLevel;
+		final Rect r = mTileRange;
+		if (dx != 0 || dy != 0) {
+			final int left = dx < 0 ? r.left - size : r.left;
+			final int top = dy < 0 ? r.top - size : r.top;
+			final int right = dx > 0 ? r.right + size : r.right;
+			final int bottom = dy > 0 ? r.bottom + size : r.bottom;
+			addPrefetchKeys(keys, left, top, right, bottom, mLevel);
+		}
+		if (zoom_in && mLevel > 0) {
+			final int level = mLevel - 1;
+			final Rect range = mPrefetchRange;
+			getRange(range, centerX, centerY, level, 1f / (1 << level), rotation);
+			addPrefetchKeys(keys, range.left, range.top, range.right, range.bottom, level);
+		}
+		if (keys.isEmpty()) return;
+		synchronized (this) {
+			mPrefetchQueue.addAll(keys);
+			notifyAll();
+		}
+	}
+
+	private void addPrefetchKeys(final ArrayList<Long> keys, final int left, final int top, final int right,
+			final int bottom, final int level) {
+		final int size = TILE_SIZE << level;
+		final int from_x = Math.max(0, size * (left / size)), from_y = Math.max(0, size * (top / size));
+		final int to_x = Math.min(mImageWidth, right), to_y = Math.min(mImageHeight, bottom);
+		for (int y = from_y; y < to_y; y += size) {
+			for (int x = from_x; x < to_x; x += size) {
+				if (keys.size() >= MAX_PREFETCH_TILES) return;
+				final long key = makeTileKey(x, y, level);
+				if (mActiveTiles.get(key) != null) {
+					continue;
+				}
+				keys.add(key);
+			}
+		}
+	}
+
+	private void prefetchTile(final long key) {
+		final int x = (int) (key >> 32), y = (int) (key >> 16 & 0xFFFF), level = (int) (key & 0xFFFF);
+		final PhotoView.ITileImageAdapter model = mModel;
+		if (model == null) return;
+		try {
+			final Bitmap bitmap = model.getTile(level, x, y, TILE_SIZE, TILE_BORDER, sTilePool);
+			if (bitmap != null) {
+				recycleBitmap(bitmap);
+			}
+		} catch (final Throwable t) {
+			Log.w(TAG, "fail to prefetch tile", t);
+		}
+	}
+
 	private void queueForUpload(final Tile tile) {
 		synchronized (this) {
 			mUploadQueue.push(tile);
@@ -525,9 +600,7 @@ public class TileImageView extends GLView {
 		}
 		tile.mTileState = STATE_RECYCLED;
 		if (tile.mDecodedTile != null) {
-			if (sTilePool != null) {
-				sTilePool.recycle(tile.mDecodedTile);
-			}
+			recycleBitmap(tile.mDecodedTile);
 			tile.mDecodedTile = null;
 		}
 		mRecycledQueue.push(tile);
@@ -574,6 +647,14 @@ public class TileImageView extends GLView {
 		}
 	}
 
+	// Tiles returned from the tile cache are immutable and shared, so they
+	// must not be reused by the pool.
+	private static void recycleBitmap(final Bitmap bitmap) {
+		if (sTilePool != null && bitmap.isMutable()) {
+			sTilePool.recycle(bitmap);
+		}
+	}
+
 	private static long makeTileKey(final int x, final int y, final int level) {
 		long result = x;
 		result = result << 16 | y;
@@ -631,9 +712,7 @@ public class TileImageView extends GLView {
 
 		@Override
 		protected void onFreeBitmap(final Bitmap bitmap) {
-			if (sTilePool != null) {
-				sTilePool.recycle(bitmap);
-			}
+			recycleBitmap(bitmap);
 		}
 
 		@Override
@@ -682,12 +761,20 @@ public class TileImageView extends GLView {
 			jc.setCancelListener(mNotifier);
 			while (!jc.isCancelled()) {
 				Tile tile = null;
+				Long prefetch = null;
 				synchronized (TileImageView.this) {
 					tile = mDecodeQueue.pop();
-					if (tile == null && !jc.isCancelled()) {
+					if (tile == null && !mPrefetchQueue.isEmpty()) {
+						prefetch = mPrefetchQueue.remove(0);
+					}
+					if (tile == null && prefetch == null && !jc.isCancelled()) {
 						GalleryUtils.waitWithoutInterrupt(TileImageView.this);
 					}
 				}
+				if (prefetch != null) {
+					prefetchTile(prefetch);
+					continue;
+				}
 				if (tile == null) {
 					continue;
 				}
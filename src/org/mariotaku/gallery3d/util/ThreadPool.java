@@ -16,52 +16,122 @@
 
 package org.mariotaku.gallery3d.util;
 
-import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import android.util.Log;
 
 public class ThreadPool {
 	@SuppressWarnings("unused")
 	private static final String TAG = "ThreadPool";
-	private static final int CORE_POOL_SIZE = 4;
-	private static final int MAX_POOL_SIZE = 8;
 	private static final int KEEP_ALIVE_TIME = 10; // 10 seconds
 
+	// Network jobs mostly wait on sockets, so their limit doesn't depend on
+	// the core count.
+	private static final int NETWORK_JOBS_LIMIT = 3;
+	// Threads for jobs running in MODE_NONE for a long time, e.g. the tile
+	// decoder, so they don't starve CPU and network jobs.
+	private static final int EXTRA_THREADS = 2;
+
 	// Resource type
 	public static final int MODE_NONE = 0;
 	public static final int MODE_CPU = 1;
 	public static final int MODE_NETWORK = 2;
 
-	ResourceCounter mCpuCounter = new ResourceCounter(2);
-	ResourceCounter mNetworkCounter = new ResourceCounter(2);
+	// Job priority, jobs with higher priority are run first.
+	public static final int PRIORITY_BACKGROUND = 0;
+	public static final int PRIORITY_NORMAL = 1;
+	public static final int PRIORITY_VISIBLE = 2;
+
+	final ResourceCounter mCpuCounter;
+	final ResourceCounter mNetworkCounter;
 
-	private final Executor mExecutor;
+	private final ThreadPoolExecutor mExecutor;
+	private final AtomicLong mSequence = new AtomicLong();
+	private final AtomicLong mStartedJobs = new AtomicLong(), mTotalQueueTime = new AtomicLong();
 
 	public ThreadPool() {
-		this(CORE_POOL_SIZE, MAX_POOL_SIZE);
+		this(Math.max(2, Runtime.getRuntime().availableProcessors()), NETWORK_JOBS_LIMIT);
 	}
 
-	private ThreadPool(final int initPoolSize, final int maxPoolSize) {
-		mExecutor = new ThreadPoolExecutor(initPoolSize, maxPoolSize, KEEP_ALIVE_TIME, TimeUnit.SECONDS,
-				new LinkedBlockingQueue<Runnable>(), new PriorityThreadFactory("thread-pool",
+	public ThreadPool(final int cpuJobsLimit, final int networkJobsLimit) {
+		mCpuCounter = new ResourceCounter(cpuJobsLimit);
+		mNetworkCounter = new ResourceCounter(networkJobsLimit);
+		// Core and max pool size must be the same, since the executor never
+		// grows over core pool size with an unbounded queue.
+		final int poolSize = cpuJobsLimit + networkJobsLimit + EXTRA_THREADS;
+		mExecutor = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_TIME, TimeUnit.SECONDS,
+				new PriorityBlockingQueue<Runnable>(), new PriorityThreadFactory("thread-pool",
 						android.os.Process.THREAD_PRIORITY_BACKGROUND));
 	}
 
+	/**
+	 * @return Average time in milliseconds jobs waited in the queue before
+	 *         started.
+	 */
+	public long getAverageQueueTime() {
+		final long started = mStartedJobs.get();
+		return started > 0 ? mTotalQueueTime.get() / started : 0;
+	}
+
+	/**
+	 * @return Average time in milliseconds jobs waited for the resource of
+	 *         {@code mode}.
+	 */
+	public long getAverageWaitTime(final int mode) {
+		final ResourceCounter rc = modeToCounter(mode);
+		if (rc == null) return 0;
+		synchronized (rc) {
+			return rc.acquired > 0 ? rc.waitTime / rc.acquired : 0;
+		}
+	}
+
+	/**
+	 * @return Number of jobs not started yet.
+	 */
+	public int getQueueDepth() {
+		return mExecutor.getQueue().size();
+	}
+
+	/**
+	 * @return Number of running jobs waiting for the resource of
+	 *         {@code mode}.
+	 */
+	public int getWaitingJobCount(final int mode) {
+		final ResourceCounter rc = modeToCounter(mode);
+		if (rc == null) return 0;
+		synchronized (rc) {
+			return rc.waiting;
+		}
+	}
+
 	public <T> Future<T> submit(final Job<T> job) {
-		return submit(job, null);
+		return submit(job, null, PRIORITY_NORMAL);
+	}
+
+	public <T> Future<T> submit(final Job<T> job, final int priority) {
+		return submit(job, null, priority);
 	}
 
 	// Submit a job to the thread pool. The listener will be called when the
 	// job is finished (or cancelled).
-	private <T> Future<T> submit(final Job<T> job, final FutureListener<T> listener) {
-		final Worker<T> w = new Worker<T>(job, listener);
+	public <T> Future<T> submit(final Job<T> job, final FutureListener<T> listener, final int priority) {
+		final Worker<T> w = new Worker<T>(job, listener, priority, mSequence.getAndIncrement());
 		mExecutor.execute(w);
 		return w;
 	}
 
+	ResourceCounter modeToCounter(final int mode) {
+		if (mode == MODE_CPU)
+			return mCpuCounter;
+		else if (mode == MODE_NETWORK)
+			return mNetworkCounter;
+		else
+			return null;
+	}
+
 	public interface CancelListener {
 		public void onCancel();
 	}
@@ -81,16 +151,22 @@ public class ThreadPool {
 
 	private static class ResourceCounter {
 		public int value;
+		// Statistics, guarded by the counter itself.
+		public int waiting;
+		public long acquired, waitTime;
 
 		public ResourceCounter(final int v) {
 			value = v;
 		}
 	}
 
-	private class Worker<T> implements Runnable, Future<T>, JobContext {
+	private class Worker<T> implements Runnable, Future<T>, JobContext, Comparable<Worker<?>> {
 		private static final String TAG = "Worker";
 		private final Job<T> mJob;
 		private final FutureListener<T> mListener;
+		private final int mPriority;
+		private final long mSequence;
+		private final long mSubmitTime;
 		private CancelListener mCancelListener;
 		private ResourceCounter mWaitOnResource;
 		private volatile boolean mIsCancelled;
@@ -98,9 +174,12 @@ public class ThreadPool {
 		private T mResult;
 		private int mMode;
 
-		public Worker(final Job<T> job, final FutureListener<T> listener) {
+		public Worker(final Job<T> job, final FutureListener<T> listener, final int priority, final long sequence) {
 			mJob = job;
 			mListener = listener;
+			mPriority = priority;
+			mSequence = sequence;
+			mSubmitTime = System.currentTimeMillis();
 		}
 
 		// Below are the methods for Future.
@@ -118,6 +197,13 @@ public class ThreadPool {
 			}
 		}
 
+		// Higher priority first, then in submission order.
+		@Override
+		public int compareTo(final Worker<?> another) {
+			if (mPriority != another.mPriority) return mPriority > another.mPriority ? -1 : 1;
+			return mSequence < another.mSequence ? -1 : mSequence == another.mSequence ? 0 : 1;
+		}
+
 		@Override
 		public synchronized T get() {
 			while (!mIsDone) {
@@ -144,6 +230,8 @@ public class ThreadPool {
 		// This is called by a thread in the thread pool.
 		@Override
 		public void run() {
+			mStartedJobs.incrementAndGet();
+			mTotalQueueTime.addAndGet(System.currentTimeMillis() - mSubmitTime);
 			if (mListener != null) {
 				mListener.onFutureStart(this);
 			}
@@ -200,6 +288,20 @@ public class ThreadPool {
 		}
 
 		private boolean acquireResource(final ResourceCounter counter) {
+			final long start = System.currentTimeMillis();
+			synchronized (counter) {
+				counter.waiting++;
+			}
+			try {
+				return waitForResource(counter, start);
+			} finally {
+				synchronized (counter) {
+					counter.waiting--;
+				}
+			}
+		}
+
+		private boolean waitForResource(final ResourceCounter counter, final long start) {
 			while (true) {
 				synchronized (this) {
 					if (mIsCancelled) {
@@ -212,6 +314,8 @@ public class ThreadPool {
 				synchronized (counter) {
 					if (counter.value > 0) {
 						counter.value--;
+						counter.acquired++;
+						counter.waitTime += System.currentTimeMillis() - start;
 						break;
 					} else {
 						try {
@@ -230,15 +334,6 @@ public class ThreadPool {
 			return true;
 		}
 
-		private ResourceCounter modeToCounter(final int mode) {
-			if (mode == MODE_CPU)
-				return mCpuCounter;
-			else if (mode == MODE_NETWORK)
-				return mNetworkCounter;
-			else
-				return null;
-		}
-
 		private void releaseResource(final ResourceCounter counter) {
 			synchronized (counter) {
 				counter.value++;
@@ -21,6 +21,7 @@ package org.mariotaku.twidere;
 
 import org.mariotaku.twidere.provider.TweetStore;
 import org.mariotaku.twidere.provider.TweetStore.Accounts;
+import org.mariotaku.twidere.provider.TweetStore.CachedColors;
 import org.mariotaku.twidere.provider.TweetStore.CachedHashtags;
 import org.mariotaku.twidere.provider.TweetStore.CachedStatuses;
 import org.mariotaku.twidere.provider.TweetStore.CachedTrends;
@@ -50,7 +51,7 @@ public interface Constants extends TwitterConstants {
 	public static final String PERMISSION_PREFERENCES_NAME = "permissions";
 
 	public static final String DATABASES_NAME = "twidere.sqlite";
-	public static final int DATABASES_VERSION = 38;
+	public static final int DATABASES_VERSION = 44;
 
 	// The following 4 constants are not included in source code, you'd better
 	// use your own.
@@ -200,6 +201,10 @@ public interface Constants extends TwitterConstants {
 	public static final String PREFERENCE_KEY_INDICATE_MY_STATUS = "indicate_my_status";
 	public static final String PREFERENCE_KEY_PRELOAD_PROFILE_IMAGES = "preload_profile_images";
 	public static final String PREFERENCE_KEY_PRELOAD_PREVIEW_IMAGES = "preload_preview_images";
+	public static final String PREFERENCE_KEY_MAX_CONCURRENT_REQUESTS = "max_concurrent_requests";
+	public static final String PREFERENCE_KEY_ACCOUNT_REQUEST_TIMEOUT = "account_request_timeout";
+	public static final String PREFERENCE_KEY_UPLOAD_IMAGE_MAX_SIZE = "upload_image_max_size";
+	public static final String PREFERENCE_KEY_UPLOAD_IMAGE_QUALITY = "upload_image_quality";
 
 	public static final String PREFERENCE_DEFAULT_QUOTE_FORMAT = "RT @" + FORMAT_PATTERN_NAME + ": "
 			+ FORMAT_PATTERN_TEXT;
@@ -208,6 +213,10 @@ public interface Constants extends TwitterConstants {
 
 	public static final int PREFERENCE_DEFAULT_DATABASE_ITEM_LIMIT = 100;
 	public static final int PREFERENCE_DEFAULT_LOAD_ITEM_LIMIT = 20;
+	public static final int PREFERENCE_DEFAULT_MAX_CONCURRENT_REQUESTS = 3;
+	public static final int PREFERENCE_DEFAULT_ACCOUNT_REQUEST_TIMEOUT = 30;
+	public static final int PREFERENCE_DEFAULT_UPLOAD_IMAGE_MAX_SIZE = 2048;
+	public static final int PREFERENCE_DEFAULT_UPLOAD_IMAGE_QUALITY = 85;
 	public static final int PREFERENCE_DEFAULT_TEXT_SIZE = 15;
 
 	public static final String NAME_DISPLAY_OPTION_BOTH = "both";
@@ -224,6 +233,19 @@ public interface Constants extends TwitterConstants {
 	public static final int INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_LARGE = 1;
 	public static final int INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_SMALL = 2;
 
+	public static final int IMAGE_HOST_NONE = 0;
+	public static final int IMAGE_HOST_TWITTER = 1;
+	public static final int IMAGE_HOST_TWITPIC = 2;
+	public static final int IMAGE_HOST_INSTAGRAM = 3;
+	public static final int IMAGE_HOST_IMGUR = 4;
+	public static final int IMAGE_HOST_IMGLY = 5;
+	public static final int IMAGE_HOST_YFROG = 6;
+	public static final int IMAGE_HOST_LOCKERZ_AND_PLIXI = 7;
+	public static final int IMAGE_HOST_SINA_WEIBO = 8;
+	public static final int IMAGE_HOST_TWITGOO = 9;
+	public static final int IMAGE_HOST_MOBYPICTURE = 10;
+	public static final int IMAGE_HOST_PHOTOZOU = 11;
+
 	public static final String INTENT_PACKAGE_PREFIX = "org.mariotaku.twidere.";
 
 	public static final String INTENT_ACTION_HOME = INTENT_PACKAGE_PREFIX + "HOME";
@@ -457,6 +479,7 @@ public interface Constants extends TwitterConstants {
 	public static final String TABLE_CACHED_HASHTAGS = CachedHashtags.CONTENT_PATH;
 	public static final String TABLE_CACHED_USERS = CachedUsers.CONTENT_PATH;
 	public static final String TABLE_CACHED_STATUSES = CachedStatuses.CONTENT_PATH;
+	public static final String TABLE_CACHED_COLORS = CachedColors.CONTENT_PATH;
 	public static final String TABLE_FILTERED_USERS = Filters.Users.CONTENT_PATH;
 	public static final String TABLE_FILTERED_KEYWORDS = Filters.Keywords.CONTENT_PATH;
 	public static final String TABLE_FILTERED_SOURCES = Filters.Sources.CONTENT_PATH;
@@ -515,6 +538,9 @@ public interface Constants extends TwitterConstants {
 
 	public static final String DIR_NAME_PROFILE_IMAGES = "profile_images";
 	public static final String DIR_NAME_CACHED_THUMBNAILS = "cached_thumbnails";
+	public static final String DIR_NAME_CACHED_IMAGES = "cached_images";
+	public static final String DIR_NAME_PROFILE_BANNERS = "profile_banners";
+	public static final String DIR_NAME_TRANSCODED_IMAGES = "transcoded_images";
 
 	public static final int PANE_LEFT = R.id.fragment_container_left;
 	public static final int PANE_RIGHT = R.id.fragment_container_right;
@@ -19,7 +19,6 @@
 
 package org.mariotaku.twidere.activity;
 
-import static org.mariotaku.twidere.util.Utils.cleanDatabasesByItemLimit;
 import static org.mariotaku.twidere.util.Utils.getAccountIds;
 import static org.mariotaku.twidere.util.Utils.getActivatedAccountIds;
 import static org.mariotaku.twidere.util.Utils.getTabs;
@@ -40,6 +39,7 @@ import org.mariotaku.twidere.fragment.HomeTimelineFragment;
 import org.mariotaku.twidere.fragment.MentionsFragment;
 import org.mariotaku.twidere.model.TabSpec;
 import org.mariotaku.twidere.provider.TweetStore.Accounts;
+import org.mariotaku.twidere.service.DatabaseCompactionService;
 import org.mariotaku.twidere.util.ActivityAccessor;
 import org.mariotaku.twidere.util.ArrayUtils;
 import org.mariotaku.twidere.util.AsyncTwitterWrapper;
@@ -459,7 +459,7 @@ public class HomeActivity extends MultiSelectActivity implements OnClickListener
 	@Override
 	protected void onDestroy() {
 		// Delete unused items in databases.
-		cleanDatabasesByItemLimit(this);
+		DatabaseCompactionService.start(this);
 		sendBroadcast(new Intent(BROADCAST_HOME_ACTIVITY_ONDESTROY));
 		super.onDestroy();
 	}
@@ -33,7 +33,7 @@ import org.mariotaku.twidere.R;
 import org.mariotaku.twidere.app.TwidereApplication;
 import org.mariotaku.twidere.fragment.APIUpgradeConfirmDialog;
 import org.mariotaku.twidere.provider.TweetStore.Accounts;
-import org.mariotaku.twidere.util.ColorAnalyser;
+import org.mariotaku.twidere.util.ImageColorService;
 import org.mariotaku.twidere.util.OAuthPasswordAuthenticator;
 import org.mariotaku.twidere.util.OAuthPasswordAuthenticator.AuthenticationException;
 import org.mariotaku.twidere.util.OAuthPasswordAuthenticator.CallbackURLException;
@@ -507,12 +507,15 @@ public class SignInActivity extends BaseActivity implements OnClickListener, Tex
 		}
 
 		int analyseUserProfileColor(final User user) throws TwitterException {
-			final HttpClientWrapper client = new HttpClientWrapper(conf);
 			final String profile_image_url = user != null ? parseString(user.getProfileImageUrlHttps()) : null;
+			final ImageColorService service = TwidereApplication.getInstance(getContext()).getImageColorService();
+			final Integer cached = service.getColor(profile_image_url);
+			if (cached != null) return cached;
+			final HttpClientWrapper client = new HttpClientWrapper(conf);
 			final HttpResponse conn = profile_image_url != null ? client.get(profile_image_url, null) : null;
 			final Bitmap bm = conn != null ? BitmapFactory.decodeStream(conn.asStream()) : null;
 			if (bm == null) throw new TwitterException("Can't get profile image");
-			return ColorAnalyser.analyse(bm);
+			return service.analyse(profile_image_url, bm);
 		}
 
 	}
@@ -20,11 +20,9 @@
 package org.mariotaku.twidere.adapter;
 
 import static android.text.format.DateUtils.getRelativeTimeSpanString;
-import static org.mariotaku.twidere.util.HtmlEscapeHelper.toPlainText;
 import static org.mariotaku.twidere.util.Utils.findStatusInDatabases;
 import static org.mariotaku.twidere.util.Utils.formatSameDayTime;
 import static org.mariotaku.twidere.util.Utils.getAccountColor;
-import static org.mariotaku.twidere.util.Utils.getAccountScreenName;
 import static org.mariotaku.twidere.util.Utils.getAllAvailableImage;
 import static org.mariotaku.twidere.util.Utils.getInlineImagePreviewDisplayOptionInt;
 import static org.mariotaku.twidere.util.Utils.getNameDisplayOptionInt;
@@ -41,12 +39,11 @@ import org.mariotaku.twidere.adapter.iface.IStatusesAdapter;
 import org.mariotaku.twidere.app.TwidereApplication;
 import org.mariotaku.twidere.model.ImageSpec;
 import org.mariotaku.twidere.model.ParcelableStatus;
-import org.mariotaku.twidere.model.PreviewImage;
 import org.mariotaku.twidere.model.StatusCursorIndices;
+import org.mariotaku.twidere.model.WindowedStatusesCursor;
 import org.mariotaku.twidere.util.LazyImageLoader;
 import org.mariotaku.twidere.util.MultiSelectManager;
-import org.mariotaku.twidere.util.OnLinkClickHandler;
-import org.mariotaku.twidere.util.TwidereLinkify;
+import org.mariotaku.twidere.util.StatusRenderCache;
 import org.mariotaku.twidere.view.holder.StatusViewHolder;
 
 import android.app.Activity;
@@ -55,7 +52,6 @@ import android.content.res.Resources;
 import android.database.Cursor;
 import android.net.Uri;
 import android.support.v4.widget.SimpleCursorAdapter;
-import android.text.Html;
 import android.text.TextUtils;
 import android.view.View;
 import android.view.View.OnClickListener;
@@ -69,6 +65,7 @@ public class CursorStatusesAdapter extends SimpleCursorAdapter implements IStatu
 	private final Resources mResources;
 	private final LazyImageLoader mProfileImageLoader, mPreviewImageLoader;
 	private final MultiSelectManager mMultiSelectManager;
+	private final StatusRenderCache mRenderCache;
 
 	private boolean mDisplayProfileImage, mShowAccountColor, mShowAbsoluteTime, mGapDisallowed, mMultiSelectEnabled,
 			mMentionsHighlightDisabled, mDisplaySensitiveContents, mIndicateMyStatusDisabled, mLinkHighlightingEnabled,
@@ -85,6 +82,7 @@ public class CursorStatusesAdapter extends SimpleCursorAdapter implements IStatu
 		mMultiSelectManager = application.getMultiSelectManager();
 		mProfileImageLoader = application.getProfileImageLoader();
 		mPreviewImageLoader = application.getPreviewImageLoader();
+		mRenderCache = application.getStatusRenderCache();
 	}
 
 	@Override
@@ -113,16 +111,16 @@ public class CursorStatusesAdapter extends SimpleCursorAdapter implements IStatu
 			final String screen_name = cursor.getString(mIndices.screen_name);
 			final String name = cursor.getString(mIndices.name);
 			final String in_reply_to_screen_name = cursor.getString(mIndices.in_reply_to_screen_name);
-			final String account_screen_name = getAccountScreenName(mContext, account_id);
 
 			// Tweet type (favorite/location/media)
 			final boolean is_favorite = mFastTimelineProcessingEnabled ? false
 					: cursor.getShort(mIndices.is_favorite) == 1;
 			final boolean has_location = mFastTimelineProcessingEnabled ? false : !TextUtils.isEmpty(cursor
 					.getString(mIndices.location));
-			final PreviewImage preview = !mFastTimelineProcessingEnabled ? getPreviewImage(text,
-					mInlineImagePreviewDisplayOption) : null;
-			final boolean has_media = preview != null ? preview.has_image : false;
+			final CharSequence rendered_text = !mFastTimelineProcessingEnabled ? mRenderCache.get(account_id,
+					status_id, text, StatusRenderCache.getOptions(mLinkHighlightingEnabled)) : null;
+			final int image_host = cursor.getInt(mIndices.image_host);
+			final boolean has_media = mFastTimelineProcessingEnabled ? false : image_host != IMAGE_HOST_NONE;
 
 			// User type (protected/verified)
 			final boolean is_verified = cursor.getShort(mIndices.is_verified) == 1;
@@ -132,8 +130,8 @@ public class CursorStatusesAdapter extends SimpleCursorAdapter implements IStatu
 					&& cursor.getShort(mIndices.is_retweet) == 1;
 			final boolean is_reply = !TextUtils.isEmpty(in_reply_to_screen_name)
 					&& cursor.getLong(mIndices.in_reply_to_status_id) > 0;
-			final boolean is_mention = mFastTimelineProcessingEnabled ? false : text.toLowerCase().contains(
-					'@' + account_screen_name.toLowerCase());
+			final boolean is_mention = mFastTimelineProcessingEnabled ? false
+					: cursor.getShort(mIndices.is_mention) == 1;
 			final boolean is_my_status = account_id == user_id;
 
 			if (mMultiSelectEnabled) {
@@ -156,16 +154,7 @@ public class CursorStatusesAdapter extends SimpleCursorAdapter implements IStatu
 
 			holder.setIsMyStatus(is_my_status && !mIndicateMyStatusDisabled);
 
-			if (mFastTimelineProcessingEnabled) {
-				holder.text.setText(text);
-			} else if (mLinkHighlightingEnabled) {
-				holder.text.setText(Html.fromHtml(text));
-				final TwidereLinkify linkify = new TwidereLinkify(holder.text);
-				linkify.setOnLinkClickListener(new OnLinkClickHandler(context, account_id));
-				linkify.addAllLinks();
-			} else {
-				holder.text.setText(toPlainText(text));
-			}
+			holder.text.setText(rendered_text != null ? rendered_text : text);
 			holder.text.setMovementMethod(null);
 			holder.name.setCompoundDrawablesWithIntrinsicBounds(0, 0, getUserTypeIconRes(is_verified, is_protected), 0);
 			switch (mNameDisplayOption) {
@@ -224,9 +213,10 @@ public class CursorStatusesAdapter extends SimpleCursorAdapter implements IStatu
 				holder.profile_image.setVisibility(View.GONE);
 				holder.my_profile_image.setVisibility(View.GONE);
 			}
-			final boolean has_preview = mFastTimelineProcessingEnabled ? false
-					: mInlineImagePreviewDisplayOption != INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_NONE && has_media
-							&& preview.matched_url != null;
+			final String preview_url = has_media
+					&& mInlineImagePreviewDisplayOption != INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_NONE ? getPreviewImageUrl(
+					cursor, image_host) : null;
+			final boolean has_preview = preview_url != null;
 			holder.image_preview_container.setVisibility(has_preview ? View.VISIBLE : View.GONE);
 			if (has_preview) {
 				final MarginLayoutParams lp = (MarginLayoutParams) holder.image_preview_frame.getLayoutParams();
@@ -243,7 +233,7 @@ public class CursorStatusesAdapter extends SimpleCursorAdapter implements IStatu
 				if (is_possibly_sensitive && !mDisplaySensitiveContents) {
 					holder.image_preview.setImageResource(R.drawable.image_preview_nsfw);
 				} else {
-					mPreviewImageLoader.displayImage(holder.image_preview, preview.matched_url);
+					mPreviewImageLoader.displayImage(holder.image_preview, preview_url);
 				}
 				holder.image_preview_frame.setTag(position);
 			}
@@ -258,6 +248,9 @@ public class CursorStatusesAdapter extends SimpleCursorAdapter implements IStatu
 	}
 
 	public int findItemPositionByStatusId(final long status_id) {
+		final Cursor cursor = getCursor();
+		if (cursor instanceof WindowedStatusesCursor)
+			return ((WindowedStatusesCursor) cursor).getPositionOfStatus(status_id);
 		final int count = getCount();
 		for (int i = 0; i < count; i++) {
 			if (getItem(i).getLong(mIndices.status_id) == status_id) return i;
@@ -273,6 +266,8 @@ public class CursorStatusesAdapter extends SimpleCursorAdapter implements IStatu
 	@Override
 	public ParcelableStatus getStatus(final int position) {
 		final Cursor cur = getItem(position);
+		// Windowed cursor has all columns of the status, no need to query.
+		if (cur instanceof WindowedStatusesCursor) return new ParcelableStatus(cur, mIndices);
 		final long account_id = cur.getLong(mIndices.account_id);
 		final long status_id = cur.getLong(mIndices.status_id);
 		return findStatusInDatabases(mContext, account_id, status_id);
@@ -419,6 +414,17 @@ public class CursorStatusesAdapter extends SimpleCursorAdapter implements IStatu
 		}
 	}
 
+	/**
+	 * Large preview URL is stored, others are built from original URL and
+	 * host.
+	 */
+	private String getPreviewImageUrl(final Cursor cursor, final int image_host) {
+		if (mInlineImagePreviewDisplayOption == INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_LARGE)
+			return cursor.getString(mIndices.image_preview_url);
+		return getPreviewImage(cursor.getString(mIndices.image_orig_url), image_host,
+				mInlineImagePreviewDisplayOption).matched_url;
+	}
+
 	@Override
 	public Cursor swapCursor(final Cursor cursor) {
 		if (cursor != null) {
@@ -23,7 +23,6 @@ import static android.text.format.DateUtils.getRelativeTimeSpanString;
 import static org.mariotaku.twidere.model.ParcelableLocation.isValidLocation;
 import static org.mariotaku.twidere.util.Utils.formatSameDayTime;
 import static org.mariotaku.twidere.util.Utils.getAccountColor;
-import static org.mariotaku.twidere.util.Utils.getAccountScreenName;
 import static org.mariotaku.twidere.util.Utils.getAllAvailableImage;
 import static org.mariotaku.twidere.util.Utils.getInlineImagePreviewDisplayOptionInt;
 import static org.mariotaku.twidere.util.Utils.getNameDisplayOptionInt;
@@ -155,9 +154,7 @@ public class ParcelableStatusesAdapter extends ArrayAdapter<ParcelableStatus> im
 			} else {
 				holder.setSelected(false);
 			}
-			final String account_screen_name = getAccountScreenName(mContext, status.account_id);
-			final boolean is_mention = mFastTimelineProcessingEnabled ? false : status.text_plain.toLowerCase()
-					.contains('@' + account_screen_name.toLowerCase());
+			final boolean is_mention = mFastTimelineProcessingEnabled ? false : status.is_mention;
 			final boolean is_my_status = status.account_id == status.user_id;
 			holder.setUserColor(getUserColor(mContext, status.user_id));
 			holder.setHighlightColor(mFastTimelineProcessingEnabled ? 0 : getStatusBackground(
@@ -21,17 +21,29 @@ package org.mariotaku.twidere.app;
 
 import static org.mariotaku.twidere.util.Utils.hasActiveConnection;
 
+import java.util.HashMap;
+
 import org.mariotaku.gallery3d.util.GalleryUtils;
+import org.mariotaku.gallery3d.util.ThreadPool;
 import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.R;
+import org.mariotaku.twidere.service.DatabaseCompactionService;
 import org.mariotaku.twidere.service.RefreshService;
 import org.mariotaku.twidere.util.AsyncTaskManager;
 import org.mariotaku.twidere.util.AsyncTwitterWrapper;
+import org.mariotaku.twidere.util.BitmapMemoryCache;
 import org.mariotaku.twidere.util.DatabaseHelper;
-import org.mariotaku.twidere.util.ImageLoaderUtils;
+import org.mariotaku.twidere.util.ImageColorService;
+import org.mariotaku.twidere.util.ImageFileCache;
+import org.mariotaku.twidere.util.ImageTileCache;
+import org.mariotaku.twidere.util.ImageTranscoder;
 import org.mariotaku.twidere.util.LazyImageLoader;
 import org.mariotaku.twidere.util.MultiSelectManager;
+import org.mariotaku.twidere.util.RegionDecoderPool;
+import org.mariotaku.twidere.util.StatusFilterEngine;
+import org.mariotaku.twidere.util.StatusRenderCache;
 import org.mariotaku.twidere.util.TwidereHostAddressResolver;
+import org.mariotaku.twidere.util.TwitterClientRegistry;
 
 import twitter4j.http.HostAddressResolver;
 import android.app.Application;
@@ -47,7 +59,13 @@ import edu.ucdavis.earlybird.UCDService;
 
 public class TwidereApplication extends Application implements Constants, OnSharedPreferenceChangeListener {
 
+	private static final long IMAGE_FILE_CACHE_SIZE_PROFILE_IMAGES = 16 * 1024 * 1024;
+	private static final long IMAGE_FILE_CACHE_SIZE_DEFAULT = 32 * 1024 * 1024;
+	private static final long IMAGE_FILE_CACHE_SIZE_CACHED_IMAGES = 64 * 1024 * 1024;
+
 	private LazyImageLoader mProfileImageLoader, mPreviewImageLoader;
+	private BitmapMemoryCache mBitmapMemoryCache;
+	private final HashMap<String, ImageFileCache> mImageFileCaches = new HashMap<String, ImageFileCache>();
 	private AsyncTaskManager mAsyncTaskManager;
 	private SharedPreferences mPreferences;
 	private AsyncTwitterWrapper mTwitterWrapper;
@@ -55,6 +73,14 @@ public class TwidereApplication extends Application implements Constants, OnShar
 
 	private HostAddressResolver mResolver;
 	private SQLiteDatabase mDatabase;
+	private StatusFilterEngine mStatusFilterEngine;
+	private StatusRenderCache mStatusRenderCache;
+	private ImageColorService mImageColorService;
+	private TwitterClientRegistry mTwitterClientRegistry;
+	private ImageTileCache mImageTileCache;
+	private RegionDecoderPool mRegionDecoderPool;
+	private ThreadPool mThreadPool;
+	private ImageTranscoder mImageTranscoder;
 
 	private Handler mHandler;
 
@@ -65,6 +91,11 @@ public class TwidereApplication extends Application implements Constants, OnShar
 		return mAsyncTaskManager = AsyncTaskManager.getInstance();
 	}
 
+	public BitmapMemoryCache getBitmapMemoryCache() {
+		if (mBitmapMemoryCache != null) return mBitmapMemoryCache;
+		return mBitmapMemoryCache = BitmapMemoryCache.newInstance(this, BitmapMemoryCache.DEFAULT_HEAP_SHARE);
+	}
+
 	public String getBrowserUserAgent() {
 		return mBrowserUserAgent;
 	}
@@ -83,20 +114,73 @@ public class TwidereApplication extends Application implements Constants, OnShar
 		return mMultiSelectManager = new MultiSelectManager();
 	}
 
+	public synchronized ImageColorService getImageColorService() {
+		if (mImageColorService != null) return mImageColorService;
+		return mImageColorService = new ImageColorService(getSQLiteDatabase());
+	}
+
+	/**
+	 * Image viewers run in their own process, so each directory must only be
+	 * used from one process.
+	 */
+	public ImageFileCache getImageFileCache(final String cache_dir_name) {
+		if (cache_dir_name == null) return null;
+		synchronized (mImageFileCaches) {
+			final ImageFileCache cached = mImageFileCaches.get(cache_dir_name);
+			if (cached != null) return cached;
+			final long max_size;
+			if (DIR_NAME_PROFILE_IMAGES.equals(cache_dir_name)) {
+				max_size = IMAGE_FILE_CACHE_SIZE_PROFILE_IMAGES;
+			} else if (DIR_NAME_CACHED_IMAGES.equals(cache_dir_name)) {
+				max_size = IMAGE_FILE_CACHE_SIZE_CACHED_IMAGES;
+			} else {
+				max_size = IMAGE_FILE_CACHE_SIZE_DEFAULT;
+			}
+			final ImageFileCache cache = new ImageFileCache(this, cache_dir_name, max_size);
+			mImageFileCaches.put(cache_dir_name, cache);
+			return cache;
+		}
+	}
+
+	/**
+	 * Used by the GL image viewer, only allocated in its process.
+	 */
+	public synchronized ImageTileCache getImageTileCache() {
+		if (mImageTileCache != null) return mImageTileCache;
+		return mImageTileCache = ImageTileCache.newInstance(this, ImageTileCache.DEFAULT_HEAP_SHARE);
+	}
+
+	public synchronized ImageTranscoder getImageTranscoder() {
+		if (mImageTranscoder != null) return mImageTranscoder;
+		return mImageTranscoder = new ImageTranscoder(this);
+	}
+
 	public LazyImageLoader getPreviewImageLoader() {
 		if (mPreviewImageLoader != null) return mPreviewImageLoader;
-		final int mem = ImageLoaderUtils.getMemoryClass(this);
 		final int preview_image_size = getResources().getDimensionPixelSize(R.dimen.image_preview_preferred_width);
 		return mPreviewImageLoader = new LazyImageLoader(this, DIR_NAME_CACHED_THUMBNAILS, 0, preview_image_size,
-				preview_image_size, mem / 4);
+				preview_image_size, getBitmapMemoryCache());
 	}
 
 	public LazyImageLoader getProfileImageLoader() {
 		if (mProfileImageLoader != null) return mProfileImageLoader;
-		final int mem = ImageLoaderUtils.getMemoryClass(this);
 		final int profile_image_size = getResources().getDimensionPixelSize(R.dimen.profile_image_size);
 		return mProfileImageLoader = new LazyImageLoader(this, DIR_NAME_PROFILE_IMAGES,
-				R.drawable.ic_profile_image_default, profile_image_size, profile_image_size, mem);
+				R.drawable.ic_profile_image_default, profile_image_size, profile_image_size, getBitmapMemoryCache());
+	}
+
+	public synchronized RegionDecoderPool getRegionDecoderPool() {
+		if (mRegionDecoderPool != null) return mRegionDecoderPool;
+		return mRegionDecoderPool = new RegionDecoderPool();
+	}
+
+	/**
+	 * Shared by the image viewer and image loaders of this process, instead
+	 * of each creating their own executor.
+	 */
+	public synchronized ThreadPool getThreadPool() {
+		if (mThreadPool != null) return mThreadPool;
+		return mThreadPool = new ThreadPool();
 	}
 
 	public SQLiteDatabase getSQLiteDatabase() {
@@ -104,6 +188,21 @@ public class TwidereApplication extends Application implements Constants, OnShar
 		return mDatabase = new DatabaseHelper(this, DATABASES_NAME, DATABASES_VERSION).getWritableDatabase();
 	}
 
+	public synchronized StatusFilterEngine getStatusFilterEngine() {
+		if (mStatusFilterEngine != null) return mStatusFilterEngine;
+		return mStatusFilterEngine = new StatusFilterEngine(getSQLiteDatabase());
+	}
+
+	public synchronized StatusRenderCache getStatusRenderCache() {
+		if (mStatusRenderCache != null) return mStatusRenderCache;
+		return mStatusRenderCache = new StatusRenderCache(StatusRenderCache.DEFAULT_MAX_ENTRIES);
+	}
+
+	public synchronized TwitterClientRegistry getTwitterClientRegistry() {
+		if (mTwitterClientRegistry != null) return mTwitterClientRegistry;
+		return mTwitterClientRegistry = new TwitterClientRegistry(this);
+	}
+
 	public AsyncTwitterWrapper getTwitterWrapper() {
 		return mTwitterWrapper;
 	}
@@ -127,6 +226,7 @@ public class TwidereApplication extends Application implements Constants, OnShar
 		mTwitterWrapper = AsyncTwitterWrapper.getInstance(this);
 		mBrowserUserAgent = new WebView(this).getSettings().getUserAgentString();
 		mMultiSelectManager = new MultiSelectManager();
+		DatabaseCompactionService.schedule(this);
 		if (mPreferences.getBoolean(PREFERENCE_KEY_UCD_DATA_PROFILING, false)) {
 			startService(new Intent(this, UCDService.class));
 		}
@@ -137,11 +237,17 @@ public class TwidereApplication extends Application implements Constants, OnShar
 
 	@Override
 	public void onLowMemory() {
-		if (mProfileImageLoader != null) {
-			mProfileImageLoader.clearMemoryCache();
+		if (mBitmapMemoryCache != null) {
+			mBitmapMemoryCache.clear();
 		}
-		if (mPreviewImageLoader != null) {
-			mPreviewImageLoader.clearMemoryCache();
+		if (mStatusRenderCache != null) {
+			mStatusRenderCache.clear();
+		}
+		if (mImageTileCache != null) {
+			mImageTileCache.clear();
+		}
+		if (mRegionDecoderPool != null) {
+			mRegionDecoderPool.clear();
 		}
 		super.onLowMemory();
 	}
@@ -156,6 +262,10 @@ public class TwidereApplication extends Application implements Constants, OnShar
 			}
 		} else if (PREFERENCE_KEY_ENABLE_PROXY.equals(key) || PREFERENCE_KEY_CONNECTION_TIMEOUT.equals(key)) {
 			reloadConnectivitySettings();
+		} else if (PREFERENCE_KEY_PROXY_HOST.equals(key) || PREFERENCE_KEY_PROXY_PORT.equals(key)
+				|| PREFERENCE_KEY_GZIP_COMPRESSING.equals(key) || PREFERENCE_KEY_IGNORE_SSL_ERROR.equals(key)
+				|| PREFERENCE_KEY_CONSUMER_KEY.equals(key) || PREFERENCE_KEY_CONSUMER_SECRET.equals(key)) {
+			getTwitterClientRegistry().invalidate();
 		} else if (PREFERENCE_KEY_UCD_DATA_PROFILING.equals(key)) {
 			final Intent intent = new Intent(this, UCDService.class);
 			if (preferences.getBoolean(PREFERENCE_KEY_UCD_DATA_PROFILING, false)) {
@@ -166,7 +276,19 @@ public class TwidereApplication extends Application implements Constants, OnShar
 		}
 	}
 
+	@Override
+	public void onTrimMemory(final int level) {
+		if (mBitmapMemoryCache != null) {
+			mBitmapMemoryCache.trimMemory(level);
+		}
+		if (mImageTileCache != null) {
+			mImageTileCache.trimMemory(level);
+		}
+		super.onTrimMemory(level);
+	}
+
 	public void reloadConnectivitySettings() {
+		getTwitterClientRegistry().invalidate();
 		if (mPreviewImageLoader != null) {
 			mPreviewImageLoader.reloadConnectivitySettings();
 		}
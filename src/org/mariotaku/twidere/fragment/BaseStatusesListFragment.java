@@ -33,6 +33,7 @@ import org.mariotaku.popupmenu.PopupMenu;
 import org.mariotaku.popupmenu.PopupMenu.OnMenuItemClickListener;
 import org.mariotaku.twidere.R;
 import org.mariotaku.twidere.adapter.iface.IStatusesAdapter;
+import org.mariotaku.twidere.app.TwidereApplication;
 import org.mariotaku.twidere.model.Panes;
 import org.mariotaku.twidere.model.ParcelableStatus;
 import org.mariotaku.twidere.util.AsyncTaskManager;
@@ -372,11 +373,16 @@ abstract class BaseStatusesListFragment<Data> extends PullToRefreshListFragment
 	public void onScrollStateChanged(final AbsListView view, final int scrollState) {
 		switch (scrollState) {
 			case SCROLL_STATE_FLING:
+				mBusy = true;
+				setImageLoadingPaused(true);
+				break;
 			case SCROLL_STATE_TOUCH_SCROLL:
 				mBusy = true;
+				setImageLoadingPaused(false);
 				break;
 			case SCROLL_STATE_IDLE:
 				mBusy = false;
+				setImageLoadingPaused(false);
 				break;
 		}
 	}
@@ -411,9 +417,17 @@ abstract class BaseStatusesListFragment<Data> extends PullToRefreshListFragment
 		if (mPopupMenu != null) {
 			mPopupMenu.dismiss();
 		}
+		setImageLoadingPaused(false);
 		super.onStop();
 	}
 
+	private void setImageLoadingPaused(final boolean paused) {
+		final TwidereApplication app = getApplication();
+		if (app == null) return;
+		app.getProfileImageLoader().setPaused(paused);
+		app.getPreviewImageLoader().setPaused(paused);
+	}
+
 	private boolean isMyTimeline() {
 		final Bundle args = getArguments();
 		if (args != null && this instanceof UserTimelineFragment) {
@@ -28,6 +28,7 @@ import static org.mariotaku.twidere.util.Utils.getTableNameByUri;
 
 import org.mariotaku.twidere.activity.HomeActivity;
 import org.mariotaku.twidere.adapter.CursorStatusesAdapter;
+import org.mariotaku.twidere.loader.StatusesCursorLoader;
 import org.mariotaku.twidere.provider.TweetStore.Statuses;
 import org.mariotaku.twidere.util.AsyncTask;
 
@@ -39,7 +40,6 @@ import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
 import android.support.v4.app.FragmentActivity;
-import android.support.v4.content.CursorLoader;
 import android.support.v4.content.Loader;
 import android.view.MotionEvent;
 import android.view.View;
@@ -84,18 +84,22 @@ public abstract class CursorStatusesListFragment extends BaseStatusesListFragmen
 	@Override
 	public Loader<Cursor> onCreateLoader(final int id, final Bundle args) {
 		final String[] cols = new String[] { Statuses._ID, Statuses.ACCOUNT_ID, Statuses.STATUS_ID, Statuses.USER_ID,
-				Statuses.STATUS_TIMESTAMP, Statuses.TEXT_HTML, Statuses.TEXT_PLAIN, Statuses.NAME,
-				Statuses.SCREEN_NAME, Statuses.PROFILE_IMAGE_URL, Statuses.IN_REPLY_TO_SCREEN_NAME,
-				Statuses.IN_REPLY_TO_STATUS_ID, Statuses.LOCATION, Statuses.IS_RETWEET, Statuses.RETWEET_COUNT,
-				Statuses.RETWEET_ID, Statuses.RETWEETED_BY_NAME, Statuses.RETWEETED_BY_SCREEN_NAME,
-				Statuses.IS_FAVORITE, Statuses.IS_PROTECTED, Statuses.IS_VERIFIED, Statuses.IS_GAP,
-				Statuses.IS_POSSIBLY_SENSITIVE };
+				Statuses.STATUS_TIMESTAMP, Statuses.NAME, Statuses.SCREEN_NAME, Statuses.PROFILE_IMAGE_URL,
+				Statuses.IN_REPLY_TO_SCREEN_NAME, Statuses.IN_REPLY_TO_STATUS_ID, Statuses.IS_RETWEET,
+				Statuses.RETWEET_COUNT, Statuses.RETWEET_ID, Statuses.RETWEETED_BY_ID, Statuses.RETWEETED_BY_NAME,
+				Statuses.RETWEETED_BY_SCREEN_NAME, Statuses.MY_RETWEET_ID, Statuses.IS_FAVORITE,
+				Statuses.IS_PROTECTED, Statuses.IS_VERIFIED, Statuses.IS_GAP, Statuses.IS_POSSIBLY_SENSITIVE,
+				Statuses.IS_MENTION, Statuses.IMAGE_PREVIEW_URL, Statuses.IMAGE_ORIG_URL, Statuses.IMAGE_HOST };
+		// Loaded only for rows being shown.
+		final String[] heavy_cols = new String[] { Statuses.TEXT_HTML, Statuses.TEXT_PLAIN, Statuses.SOURCE,
+				Statuses.LOCATION };
 		final Uri uri = getContentUri();
 		final String sort_by = getSharedPreferences().getBoolean(PREFERENCE_KEY_SORT_TIMELINE_BY_TIME, false) ? Statuses.SORT_ORDER_TIMESTAMP_DESC
 				: Statuses.SORT_ORDER_STATUS_ID_DESC;
 		final String where = buildActivatedStatsWhereClause(getActivity(), null);
 		final String table = getTableNameByUri(uri);
-		return new CursorLoader(getActivity(), uri, cols, buildStatusFilterWhereClause(table, where), null, sort_by);
+		return new StatusesCursorLoader(getActivity(), uri, cols, heavy_cols, buildStatusFilterWhereClause(table,
+				where), null, sort_by);
 	}
 
 	@Override
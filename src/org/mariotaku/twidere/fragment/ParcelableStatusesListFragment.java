@@ -26,6 +26,7 @@ import org.mariotaku.twidere.adapter.ParcelableStatusesAdapter;
 import org.mariotaku.twidere.loader.ParcelableStatusesLoader;
 import org.mariotaku.twidere.model.ParcelableStatus;
 import org.mariotaku.twidere.util.SynchronizedStateSavedList;
+import org.mariotaku.twidere.util.SynchronizedStatusesList;
 
 import android.content.BroadcastReceiver;
 import android.content.Context;
@@ -112,7 +113,7 @@ public abstract class ParcelableStatusesListFragment extends
 		if (savedInstanceState != null) {
 			final List<ParcelableStatus> saved = savedInstanceState.getParcelableArrayList(INTENT_KEY_DATA);
 			if (saved != null) {
-				mData = new SynchronizedStateSavedList<ParcelableStatus, Long>(saved);
+				mData = new SynchronizedStatusesList(saved);
 			}
 		}
 		mAdapter = new ParcelableStatusesAdapter(getActivity());
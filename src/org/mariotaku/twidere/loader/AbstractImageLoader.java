@@ -1,8 +1,7 @@
 package org.mariotaku.twidere.loader;
 
-import static org.mariotaku.twidere.util.Utils.getBestCacheDir;
-import static org.mariotaku.twidere.util.Utils.getImageLoaderHttpClient;
-import static org.mariotaku.twidere.util.Utils.getRedirectedHttpResponse;
+import static org.mariotaku.twidere.util.Utils.getBrowserUserAgent;
+import static org.mariotaku.twidere.util.Utils.getImageDownloadHttpClient;
 import static org.mariotaku.twidere.util.Utils.parseString;
 
 import java.io.File;
@@ -11,41 +10,64 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.mariotaku.gallery3d.util.GalleryUtils;
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.app.TwidereApplication;
+import org.mariotaku.twidere.util.ImageFileCache;
 import org.mariotaku.twidere.util.ImageValidator;
+import org.mariotaku.twidere.util.httpclient.HttpClientImpl;
 
-import twitter4j.http.HttpClientWrapper;
+import twitter4j.TwitterException;
+import twitter4j.http.HttpRequest;
 import twitter4j.http.HttpResponse;
+import twitter4j.http.RequestMethod;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.support.v4.content.AsyncTaskLoader;
 
-public abstract class AbstractImageLoader extends AsyncTaskLoader<AbstractImageLoader.Result> {
+public abstract class AbstractImageLoader extends AsyncTaskLoader<AbstractImageLoader.Result> implements Constants {
 
-	private static final String CACHE_DIR_NAME = "cached_images";
+	private static final int BUFFER_SIZE = 32 * 1024;
+	private static final long PROGRESS_INTERVAL_MILLIS = 1000 / 30;
+	private static final long MIN_RESUME_LENGTH = 16 * 1024;
+	private static final int MAX_ATTEMPTS = 3;
+	private static final int HTTP_PARTIAL_CONTENT = 206;
+	private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
+	private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>() {
+
+		@Override
+		protected byte[] initialValue() {
+			return new byte[BUFFER_SIZE];
+		}
+	};
 
 	private final Uri mUri;
-	private final Context mContext;
-	private final HttpClientWrapper mClient;
+	private final HttpClientImpl mClient;
+	private final String mUserAgent;
 	private final Handler mHandler;
 	private final DownloadListener mListener;
 	private final ContentResolver mResolver;
+	private final ImageFileCache mFileCache;
 
-	protected File mCacheDir, mImageFile;
+	protected File mImageFile;
 
 	public AbstractImageLoader(final Context context, final DownloadListener listener, final Uri uri) {
 		super(context);
-		mContext = context;
 		mHandler = new Handler();
 		mUri = uri;
-		mClient = getImageLoaderHttpClient(context);
+		mClient = getImageDownloadHttpClient(context);
+		mUserAgent = getBrowserUserAgent(context);
 		mListener = listener;
 		mResolver = context.getContentResolver();
-		init();
+		mFileCache = TwidereApplication.getInstance(context).getImageFileCache(DIR_NAME_CACHED_IMAGES);
 	}
 
 	@Override
@@ -55,39 +77,27 @@ public abstract class AbstractImageLoader extends AsyncTaskLoader<AbstractImageL
 		if ("http".equals(scheme) || "https".equals(scheme)) {
 			final String url = parseString(mUri.toString());
 			if (url == null) return new Result(null, null, null);
-			if (mCacheDir == null || !mCacheDir.exists()) {
-				init();
-			}
-			final File cache_file = mImageFile = new File(mCacheDir, getURLFilename(url));
+			// from SD cache
+			final File cache_file = mImageFile = mFileCache.get(url);
+			ImageFileCache.Editor editor = null;
 			try {
-				// from SD cache
-				if (ImageValidator.checkImageValidity(cache_file)) return decodeImage(cache_file);
-				final HttpResponse resp = getRedirectedHttpResponse(mClient, url);
+				if (cache_file != null) return decodeImage(cache_file);
+				editor = mFileCache.edit(url);
+				final File part_file = mFileCache.getPartialFile(url);
+				if (editor == null || part_file == null) throw new IOException("Cache directory is not available");
 				// from web
-				if (resp == null) return null;
-				final long length = resp.getContentLength();
-				mHandler.post(new DownloadStartRunnable(mListener, length));
-				final InputStream is = resp.asStream();
-				final OutputStream os = new FileOutputStream(cache_file);
-				try {
-					dump(is, os);
-					mHandler.post(new DownloadFinishRunnable(mListener));
-				} finally {
-					GalleryUtils.closeSilently(is);
-					GalleryUtils.closeSilently(os);
-				}
-				if (!ImageValidator.checkImageValidity(cache_file)) {
-					// The file is corrupted, so we remove it from
-					// cache.
-					if (cache_file.isFile()) {
-						cache_file.delete();
-					}
-					throw new IOException("Invalid image");
-				}
-				return decodeImage(cache_file);
+				download(url, part_file);
+				mHandler.post(new DownloadFinishRunnable(mListener));
+				if (!part_file.renameTo(editor.getFile())) throw new IOException("Unable to move " + part_file);
+				// Already validated while downloading.
+				return decodeImage(Uri.fromFile(mImageFile = editor.commit()));
 			} catch (final Exception e) {
 				mHandler.post(new DownloadErrorRunnable(mListener, e));
 				return new Result(null, null, e);
+			} finally {
+				if (editor != null) {
+					editor.abortUnlessCommitted();
+				}
 			}
 		} else if (ContentResolver.SCHEME_FILE.equals(scheme)) {
 			mImageFile = new File(mUri.getPath());
@@ -116,28 +126,104 @@ public abstract class AbstractImageLoader extends AsyncTaskLoader<AbstractImageL
 		forceLoad();
 	}
 
-	private void dump(final InputStream is, final OutputStream os) throws IOException {
-		final byte buffer[] = new byte[1024];
-		int rc = is.read(buffer, 0, buffer.length);
-		long downloaded = 0;
-		while (rc > 0) {
-			downloaded += rc;
-			mHandler.post(new ProgressUpdateRunnable(mListener, downloaded));
-			os.write(buffer, 0, rc);
-			rc = is.read(buffer, 0, buffer.length);
+	/**
+	 * Downloads {@code url} to {@code part_file}, retrying on network errors.
+	 * The partial file is kept if all attempts fail, so the download can be
+	 * resumed next time.
+	 */
+	private void download(final String url, final File part_file) throws IOException, TwitterException {
+		for (int attempt = 1;; attempt++) {
+			try {
+				downloadOnce(url, part_file);
+				return;
+			} catch (final InvalidImageException e) {
+				mFileCache.discardPartialFile(url);
+				throw e;
+			} catch (final IOException e) {
+				if (attempt >= MAX_ATTEMPTS) throw e;
+			} catch (final TwitterException e) {
+				// Only errors without status code come from network.
+				if (attempt >= MAX_ATTEMPTS || e.getStatusCode() > 0) throw e;
+			}
+		}
+	}
+
+	private void downloadOnce(final String url, final File part_file) throws IOException, TwitterException {
+		final long existing = part_file.isFile() ? part_file.length() : 0;
+		final boolean resume = existing >= MIN_RESUME_LENGTH;
+		final HashMap<String, String> headers = new HashMap<String, String>();
+		if (mUserAgent != null) {
+			headers.put("User-Agent", mUserAgent);
+		}
+		if (resume) {
+			headers.put("Range", "bytes=" + existing + "-");
+		}
+		final HttpResponse resp;
+		try {
+			resp = mClient.request(new HttpRequest(RequestMethod.GET, url, url, null, null, headers));
+		} catch (final TwitterException e) {
+			if (!resume || e.getStatusCode() != HTTP_RANGE_NOT_SATISFIABLE) throw e;
+			// Partial file doesn't match the image anymore.
+			part_file.delete();
+			downloadOnce(url, part_file);
+			return;
+		}
+		final String content_type = resp.getResponseHeader("Content-Type");
+		if (content_type != null && content_type.startsWith("text/")) {
+			resp.disconnect();
+			throw new InvalidImageException();
 		}
+		final ImageValidator.StreamValidator validator = new ImageValidator.StreamValidator();
+		final long offset = resume && resp.getStatusCode() == HTTP_PARTIAL_CONTENT
+				&& existing == getRangeStart(resp.getResponseHeader("Content-Range")) ? existing : 0;
+		if (offset > 0) {
+			validator.update(part_file);
+		}
+		final long length = resp.getContentLength();
+		final long total = length > 0 ? offset + length : -1;
+		mHandler.post(new DownloadStartRunnable(mListener, total));
+		final InputStream is = resp.asStream();
+		// Server ignored the range, so start over.
+		final OutputStream os = new FileOutputStream(part_file, offset > 0);
+		try {
+			dump(is, os, validator, offset);
+		} finally {
+			GalleryUtils.closeSilently(is);
+			GalleryUtils.closeSilently(os);
+		}
+		if (total > 0 && part_file.length() < total) throw new IOException("Download is incomplete");
+		// The file is corrupted, so it never reaches the cache.
+		if (!validator.isValid(part_file)) throw new InvalidImageException();
 	}
 
-	private String getURLFilename(final String url) {
-		if (url == null) return null;
-		return url.replaceFirst("https?:\\/\\/", "").replaceAll("[^\\w\\d_]", "_");
+	private void dump(final InputStream is, final OutputStream os, final ImageValidator.StreamValidator validator,
+			final long offset) throws IOException {
+		final byte[] buffer = BUFFER.get();
+		final ProgressUpdater updater = new ProgressUpdater(mHandler, mListener);
+		long downloaded = offset;
+		updater.update(downloaded, true);
+		int rc;
+		while ((rc = is.read(buffer, 0, buffer.length)) > 0) {
+			os.write(buffer, 0, rc);
+			validator.update(buffer, 0, rc);
+			downloaded += rc;
+			updater.update(downloaded, false);
+		}
+		updater.update(downloaded, true);
 	}
 
-	private void init() {
-		/* Find the dir to save cached images. */
-		mCacheDir = getBestCacheDir(mContext, CACHE_DIR_NAME);
-		if (mCacheDir != null && !mCacheDir.exists()) {
-			mCacheDir.mkdirs();
+	/**
+	 * @return First byte position of {@code Content-Range} header, like
+	 *         {@code bytes 1024-2047/2048}, or -1.
+	 */
+	private static long getRangeStart(final String content_range) {
+		if (content_range == null || !content_range.startsWith("bytes ")) return -1;
+		final int end = content_range.indexOf('-');
+		if (end < 0) return -1;
+		try {
+			return Long.parseLong(content_range.substring(6, end).trim());
+		} catch (final NumberFormatException e) {
+			return -1;
 		}
 	}
 
@@ -218,20 +304,40 @@ public abstract class AbstractImageLoader extends AsyncTaskLoader<AbstractImageL
 		}
 	}
 
-	private final static class ProgressUpdateRunnable implements Runnable {
+	/**
+	 * Posts progress at most {@link #PROGRESS_INTERVAL_MILLIS} apart, and
+	 * never more than one pending update, so a large image doesn't flood the
+	 * main looper.
+	 */
+	private final static class ProgressUpdater implements Runnable {
 
+		private final Handler handler;
 		private final DownloadListener listener;
-		private final long current;
+		private final AtomicBoolean posted = new AtomicBoolean();
 
-		ProgressUpdateRunnable(final DownloadListener listener, final long current) {
+		private volatile long current;
+		private long last_post_time;
+
+		ProgressUpdater(final Handler handler, final DownloadListener listener) {
+			this.handler = handler;
 			this.listener = listener;
-			this.current = current;
 		}
 
 		@Override
 		public void run() {
+			posted.set(false);
 			if (listener == null) return;
 			listener.onProgressUpdate(current);
 		}
+
+		void update(final long current, final boolean force) {
+			this.current = current;
+			final long now = SystemClock.uptimeMillis();
+			if (!force && now - last_post_time < PROGRESS_INTERVAL_MILLIS) return;
+			// Pending update will read the latest value.
+			if (!posted.compareAndSet(false, true)) return;
+			last_post_time = now;
+			handler.post(this);
+		}
 	}
 }
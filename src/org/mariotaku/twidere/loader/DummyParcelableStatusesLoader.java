@@ -23,6 +23,7 @@ import java.util.List;
 
 import org.mariotaku.twidere.model.ParcelableStatus;
 import org.mariotaku.twidere.util.SynchronizedStateSavedList;
+import org.mariotaku.twidere.util.SynchronizedStatusesList;
 
 import android.content.Context;
 
@@ -34,7 +35,7 @@ public final class DummyParcelableStatusesLoader extends ParcelableStatusesLoade
 
 	@Override
 	public SynchronizedStateSavedList<ParcelableStatus, Long> loadInBackground() {
-		return new SynchronizedStateSavedList<ParcelableStatus, Long>();
+		return new SynchronizedStatusesList();
 	}
 
 }
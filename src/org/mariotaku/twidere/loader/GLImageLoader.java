@@ -5,7 +5,10 @@ import java.io.FileDescriptor;
 import java.io.IOException;
 
 import org.mariotaku.gallery3d.util.BitmapUtils;
+import org.mariotaku.twidere.app.TwidereApplication;
+import org.mariotaku.twidere.util.BitmapMemoryCache;
 import org.mariotaku.twidere.util.Exif;
+import org.mariotaku.twidere.util.RegionDecoderPool;
 
 import android.content.Context;
 import android.content.res.Resources;
@@ -19,25 +22,72 @@ import android.util.DisplayMetrics;
 public class GLImageLoader extends AbstractImageLoader {
 
 	private final float mBackupSize;
+	private final BitmapMemoryCache mMemoryCache;
+	private final RegionDecoderPool mDecoderPool;
+
+	private Result mResult;
 
 	public GLImageLoader(final Context context, final DownloadListener listener, final Uri uri) {
 		super(context, listener, uri);
 		final Resources res = context.getResources();
 		final DisplayMetrics dm = res.getDisplayMetrics();
 		mBackupSize = Math.max(dm.heightPixels, dm.widthPixels);
+		final TwidereApplication app = TwidereApplication.getInstance(context);
+		mMemoryCache = app.getBitmapMemoryCache();
+		mDecoderPool = app.getRegionDecoderPool();
+	}
+
+	/**
+	 * The decoder of a result is held until a newer result is delivered or
+	 * the loader is reset, then it's given back to the pool.
+	 */
+	@Override
+	public void deliverResult(final Result result) {
+		if (isReset()) {
+			releaseDecoder(result);
+			return;
+		}
+		final Result old_result = mResult;
+		mResult = result;
+		if (isStarted()) {
+			super.deliverResult(result);
+		}
+		if (old_result != null && old_result != result) {
+			releaseDecoder(old_result);
+		}
+	}
+
+	@Override
+	public void onCanceled(final Result result) {
+		super.onCanceled(result);
+		releaseDecoder(result);
 	}
 
 	@Override
 	protected AbstractImageLoader.Result decodeImage(final FileDescriptor fd) {
+		// The screen nail is never recycled by BitmapTexture, so it can be
+		// kept in the shared cache and reused when the image is opened again.
+		final String key = mImageFile != null ? "gl:" + mBackupSize + ":" + mImageFile.getAbsolutePath() : null;
+		final Bitmap cached = mMemoryCache.get(key);
 		try {
-			final BitmapRegionDecoder decoder = BitmapRegionDecoder.newInstance(fd, false);
+			// Decoder of an image viewed recently is reused.
+			final BitmapRegionDecoder decoder = mImageFile != null ? mDecoderPool.get(mImageFile)
+					: BitmapRegionDecoder.newInstance(fd, false);
+			if (decoder == null) throw new IOException("Unable to open region decoder");
+			if (cached != null) return new GLImageResult(decoder, cached, Exif.getOrientation(fd), mImageFile);
 			final int width = decoder.getWidth();
 			final int height = decoder.getHeight();
 			final BitmapFactory.Options options = new BitmapFactory.Options();
 			options.inSampleSize = BitmapUtils.computeSampleSize(mBackupSize / Math.max(width, height));
-			final Bitmap bitmap = decoder.decodeRegion(new Rect(0, 0, width, height), options);
+			final Bitmap bitmap;
+			// Pooled decoder may be used by another viewer.
+			synchronized (decoder) {
+				bitmap = decoder.decodeRegion(new Rect(0, 0, width, height), options);
+			}
+			mMemoryCache.put(key, bitmap);
 			return new GLImageResult(decoder, bitmap, Exif.getOrientation(fd), mImageFile);
 		} catch (final IOException e) {
+			if (cached != null) return new GLImageResult(null, cached, Exif.getOrientation(fd), mImageFile);
 			final BitmapFactory.Options o1 = new BitmapFactory.Options();
 			o1.inJustDecodeBounds = true;
 			BitmapFactory.decodeFileDescriptor(fd, null, o1);
@@ -46,10 +96,23 @@ public class GLImageLoader extends AbstractImageLoader {
 			final BitmapFactory.Options o2 = new BitmapFactory.Options();
 			o2.inSampleSize = BitmapUtils.computeSampleSize(mBackupSize / Math.max(width, height));
 			final Bitmap bitmap = BitmapFactory.decodeFileDescriptor(fd, null, o2);
+			mMemoryCache.put(key, bitmap);
 			return new GLImageResult(null, bitmap, Exif.getOrientation(fd), mImageFile);
 		}
 	}
 
+	@Override
+	protected void onReset() {
+		super.onReset();
+		releaseDecoder(mResult);
+		mResult = null;
+	}
+
+	private void releaseDecoder(final Result result) {
+		if (!(result instanceof GLImageResult)) return;
+		mDecoderPool.release(((GLImageResult) result).decoder);
+	}
+
 	public static class GLImageResult extends Result {
 
 		public final BitmapRegionDecoder decoder;
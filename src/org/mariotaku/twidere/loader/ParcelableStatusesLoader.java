@@ -21,13 +21,12 @@ package org.mariotaku.twidere.loader;
 
 import static org.mariotaku.twidere.util.Utils.getTwitterInstance;
 
-import java.util.ConcurrentModificationException;
 import java.util.List;
 
 import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.model.ParcelableStatus;
-import org.mariotaku.twidere.util.NoDuplicatesArrayList;
 import org.mariotaku.twidere.util.SynchronizedStateSavedList;
+import org.mariotaku.twidere.util.SynchronizedStatusesList;
 
 import twitter4j.Twitter;
 import android.content.Context;
@@ -39,7 +38,7 @@ public abstract class ParcelableStatusesLoader extends
 	protected final Twitter mTwitter;
 	protected final long mAccountId;
 	private final String mClassName;
-	private final SynchronizedStateSavedList<ParcelableStatus, Long> mData = new SynchronizedStateSavedList<ParcelableStatus, Long>();
+	private final SynchronizedStatusesList mData = new SynchronizedStatusesList();
 	private final boolean mFirstLoad, mIsHomeTab;
 
 	private Long mLastViewedId;
@@ -62,32 +61,18 @@ public abstract class ParcelableStatusesLoader extends
 	}
 
 	protected boolean containsStatus(final long status_id) {
-		for (final ParcelableStatus status : mData) {
-			if (status.status_id == status_id) return true;
-		}
-		return false;
+		return mData.containsStatus(status_id);
 	}
 
 	protected boolean deleteStatus(final long status_id) {
-		try {
-			final NoDuplicatesArrayList<ParcelableStatus> data_to_remove = new NoDuplicatesArrayList<ParcelableStatus>();
-			for (final ParcelableStatus status : mData) {
-				if (status.status_id == status_id) {
-					data_to_remove.add(status);
-				}
-			}
-			return mData.removeAll(data_to_remove);
-		} catch (final ConcurrentModificationException e) {
-			// This shouldn't happen.
-		}
-		return false;
+		return mData.removeStatus(status_id);
 	}
 
 	protected String getClassName() {
 		return mClassName;
 	}
 
-	protected SynchronizedStateSavedList<ParcelableStatus, Long> getData() {
+	protected SynchronizedStatusesList getData() {
 		return mData;
 	}
 
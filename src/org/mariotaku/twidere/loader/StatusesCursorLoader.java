@@ -0,0 +1,66 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.loader;
+
+import org.mariotaku.twidere.app.TwidereApplication;
+import org.mariotaku.twidere.model.WindowedStatusesCursor;
+import org.mariotaku.twidere.util.StatusRenderCache;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.v4.content.CursorLoader;
+
+/**
+ * Loads statuses cursor, and renders rows likely to be shown first into
+ * {@link StatusRenderCache} before the cursor is delivered. Columns in
+ * {@code heavy_projection} are loaded for visible rows only, see
+ * {@link WindowedStatusesCursor}.
+ *
+ * @author mariotaku
+ */
+public class StatusesCursorLoader extends CursorLoader {
+
+	private static final int PREPARE_ROWS_LIMIT = 50;
+	private static final int WINDOW_SIZE = 50;
+
+	private final StatusRenderCache mRenderCache;
+	private final String[] mHeavyProjection;
+
+	public StatusesCursorLoader(final Context context, final Uri uri, final String[] projection,
+			final String[] heavy_projection, final String selection, final String[] selectionArgs,
+			final String sortOrder) {
+		super(context, uri, projection, selection, selectionArgs, sortOrder);
+		mRenderCache = TwidereApplication.getInstance(context).getStatusRenderCache();
+		mHeavyProjection = heavy_projection;
+	}
+
+	@Override
+	public Cursor loadInBackground() {
+		final Cursor cursor = super.loadInBackground();
+		if (cursor == null) return null;
+		final WindowedStatusesCursor windowed = new WindowedStatusesCursor(getContext().getContentResolver(),
+				getUri(), cursor, mHeavyProjection, WINDOW_SIZE);
+		windowed.prefetch(0, PREPARE_ROWS_LIMIT);
+		mRenderCache.prepare(windowed, StatusRenderCache.getOptions(getContext()), PREPARE_ROWS_LIMIT);
+		return windowed;
+	}
+
+}
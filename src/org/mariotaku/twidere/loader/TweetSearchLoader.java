@@ -20,8 +20,8 @@
 package org.mariotaku.twidere.loader;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.List;
 
@@ -63,13 +63,13 @@ public class TweetSearchLoader extends Twitter4JStatusLoader {
 			try {
 				final String path = SerializationUtil.getSerializationFilePath(getContext(), getClassName(),
 						mAccountId, mQuery);
-				final SynchronizedStateSavedList<ParcelableStatus, Long> statuses = SerializationUtil.read(path);
+				final SynchronizedStateSavedList<ParcelableStatus, Long> statuses = SerializationUtil.readStatuses(path);
 				setLastViewedId(statuses.getState());
 				final SynchronizedStateSavedList<ParcelableStatus, Long> data = getData();
 				if (data != null && statuses != null) {
 					data.addAll(statuses);
+					removeFilteredStatuses(data);
 				}
-				Collections.sort(data);
 				return data;
 			} catch (final IOException e) {
 			} catch (final ConcurrentModificationException e) {
@@ -89,14 +89,11 @@ public class TweetSearchLoader extends Twitter4JStatusLoader {
 				PREFERENCE_KEY_DATABASE_ITEM_LIMIT, PREFERENCE_DEFAULT_DATABASE_ITEM_LIMIT);
 		try {
 			final int size = data.size();
-			final SynchronizedStateSavedList<ParcelableStatus, Long> statuses = new SynchronizedStateSavedList<ParcelableStatus, Long>(
-					data.subList(0, size > items_limit ? items_limit : size));
-			if (last_viewed_id > 0) {
-				statuses.setState(last_viewed_id);
-			}
+			final List<ParcelableStatus> statuses = new ArrayList<ParcelableStatus>(data.subList(0,
+					size > items_limit ? items_limit : size));
 			final String path = SerializationUtil.getSerializationFilePath(context,
 					instance.getClass().getSimpleName(), account_id, query);
-			SerializationUtil.write(statuses, path);
+			SerializationUtil.writeStatuses(statuses, last_viewed_id > 0 ? last_viewed_id : null, path);
 		} catch (final IOException e) {
 		} catch (final ArrayIndexOutOfBoundsException e) {
 		}
@@ -20,7 +20,6 @@
 package org.mariotaku.twidere.loader;
 
 import static org.mariotaku.twidere.util.Utils.getInlineImagePreviewDisplayOptionInt;
-import static org.mariotaku.twidere.util.Utils.isFiltered;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -31,6 +30,7 @@ import org.mariotaku.twidere.R;
 import org.mariotaku.twidere.app.TwidereApplication;
 import org.mariotaku.twidere.model.ParcelableStatus;
 import org.mariotaku.twidere.util.CacheUsersStatusesTask;
+import org.mariotaku.twidere.util.StatusFilterEngine;
 import org.mariotaku.twidere.util.SynchronizedStateSavedList;
 import org.mariotaku.twidere.util.TwitterWrapper.StatusListResponse;
 
@@ -40,7 +40,6 @@ import twitter4j.TwitterException;
 import android.app.Activity;
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
 
 public abstract class Twitter4JStatusLoader extends ParcelableStatusesLoader {
@@ -48,7 +47,7 @@ public abstract class Twitter4JStatusLoader extends ParcelableStatusesLoader {
 	private final long mMaxId, mSinceId;
 	private final boolean mHiResProfileImage;
 	private final boolean mLargeInlineImagePreview;
-	private final SQLiteDatabase mDatabase;
+	private final StatusFilterEngine mFilterEngine;
 
 	public Twitter4JStatusLoader(final Context context, final long account_id, final long max_id, final long since_id,
 			final List<ParcelableStatus> data, final String class_name, final boolean is_home_tab) {
@@ -57,7 +56,7 @@ public abstract class Twitter4JStatusLoader extends ParcelableStatusesLoader {
 		mSinceId = since_id;
 		mHiResProfileImage = context.getResources().getBoolean(R.bool.hires_profile_image);
 		mLargeInlineImagePreview = getInlineImagePreviewDisplayOptionInt(context) == INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_LARGE;
-		mDatabase = TwidereApplication.getInstance(context).getSQLiteDatabase();
+		mFilterEngine = TwidereApplication.getInstance(context).getStatusFilterEngine();
 	}
 
 	public abstract List<Status> getStatuses(Paging paging) throws TwitterException;
@@ -91,26 +90,30 @@ public abstract class Twitter4JStatusLoader extends ParcelableStatusesLoader {
 				((Activity) context).runOnUiThread(CacheUsersStatusesTask.getRunnable(context, new StatusListResponse(
 						mAccountId, statuses)));
 			}
+			final List<ParcelableStatus> loaded = new ArrayList<ParcelableStatus>(statuses.size());
 			for (final Status status : statuses) {
 				final long id = status.getId();
-				deleteStatus(id);
-				data.add(new ParcelableStatus(status, mAccountId, min_status_id > 0 && min_status_id == id
+				loaded.add(new ParcelableStatus(status, mAccountId, min_status_id > 0 && min_status_id == id
 						&& insert_gap, mHiResProfileImage, mLargeInlineImagePreview));
 			}
+			// Replaces statuses already loaded, and keeps the order.
+			data.addAll(loaded);
 		}
+		removeFilteredStatuses(data);
+		return data;
+	}
+
+	/**
+	 * Removes statuses matching user defined filters. Only statuses not
+	 * checked by earlier loads are evaluated, unless filters have changed.
+	 */
+	protected void removeFilteredStatuses(final List<ParcelableStatus> data) {
+		if (data == null) return;
 		try {
-			final List<ParcelableStatus> statuses_to_remove = new ArrayList<ParcelableStatus>();
-			for (final ParcelableStatus status : data) {
-				if (isFiltered(mDatabase, status) && !status.is_gap) {
-					statuses_to_remove.add(status);
-				}
-			}
-			data.removeAll(statuses_to_remove);
-			Collections.sort(data);
+			data.removeAll(mFilterEngine.getFilteredStatuses(data));
 		} catch (final ConcurrentModificationException e) {
 			Log.w(LOGTAG, e);
 		}
-		return data;
 	}
 
 }
@@ -3,18 +3,19 @@ package org.mariotaku.twidere.loader;
 import static org.mariotaku.twidere.util.Utils.copyStream;
 import static org.mariotaku.twidere.util.Utils.createAlphaGradientBanner;
 import static org.mariotaku.twidere.util.Utils.getBestBannerType;
-import static org.mariotaku.twidere.util.Utils.getBestCacheDir;
 import static org.mariotaku.twidere.util.Utils.getHttpClient;
 import static org.mariotaku.twidere.util.Utils.getProxy;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
+import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.app.TwidereApplication;
 import org.mariotaku.twidere.fragment.UserProfileFragment;
 import org.mariotaku.twidere.model.ParcelableUser;
+import org.mariotaku.twidere.util.ImageFileCache;
 
 import twitter4j.TwitterException;
 import twitter4j.http.HostAddressResolver;
@@ -24,13 +25,12 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.support.v4.content.AsyncTaskLoader;
 
-public class UserBannerImageLoader extends AsyncTaskLoader<Bitmap> {
-
-	private static final String CACHE_DIR = "cached_images";
+public class UserBannerImageLoader extends AsyncTaskLoader<Bitmap> implements Constants {
 
 	private final ParcelableUser user;
 	private final Context context;
 	private final HostAddressResolver resolver;
+	private final ImageFileCache file_cache;
 	private final int width;
 	private final int connection_timeout;
 	private final boolean gradient_effect;
@@ -42,7 +42,9 @@ public class UserBannerImageLoader extends AsyncTaskLoader<Bitmap> {
 		this.user = user;
 		this.width = width;
 		this.gradient_effect = gradient_effect;
-		resolver = TwidereApplication.getInstance(context).getHostAddressResolver();
+		final TwidereApplication app = TwidereApplication.getInstance(context);
+		resolver = app.getHostAddressResolver();
+		file_cache = app.getImageFileCache(DIR_NAME_PROFILE_BANNERS);
 		connection_timeout = context.getSharedPreferences(UserProfileFragment.SHARED_PREFERENCES_NAME,
 				Context.MODE_PRIVATE).getInt(UserProfileFragment.PREFERENCE_KEY_CONNECTION_TIMEOUT, 10) * 1000;
 	}
@@ -52,10 +54,8 @@ public class UserBannerImageLoader extends AsyncTaskLoader<Bitmap> {
 		if (user == null || user.profile_banner_url == null) return null;
 		try {
 			final String url = user.profile_banner_url + "/" + getBestBannerType(width);
-			final File cache_dir = getImageCacheDir();
-			final File cache_file = cache_dir != null && cache_dir.isDirectory() ? new File(cache_dir,
-					getURLFilename(url)) : null;
-			if (cache_file != null && cache_file.isFile()) {
+			final File cache_file = file_cache.get(url);
+			if (cache_file != null) {
 				final BitmapFactory.Options o = new BitmapFactory.Options();
 				// o.inSampleSize = scale_down ? 2 : 1;
 				final Bitmap cache_bitmap = BitmapFactory.decodeFile(cache_file.getPath(), o);
@@ -63,14 +63,25 @@ public class UserBannerImageLoader extends AsyncTaskLoader<Bitmap> {
 					return gradient_effect ? createAlphaGradientBanner(cache_bitmap) : cache_bitmap;
 			}
 			final HttpClientWrapper client = getHttpClient(connection_timeout, true, getProxy(context), resolver, null);
-			if (cache_file != null) {
-				final FileOutputStream fos = new FileOutputStream(cache_file);
-				final InputStream is = client.get(url, null).asStream();
-				copyStream(is, fos);
-				final BitmapFactory.Options o = new BitmapFactory.Options();
-				// o.inSampleSize = scale_down ? 2 : 1;
-				final Bitmap bitmap = BitmapFactory.decodeFile(cache_file.getPath(), o);
-				return gradient_effect ? createAlphaGradientBanner(bitmap) : bitmap;
+			final ImageFileCache.Editor editor = file_cache.edit(url);
+			if (editor != null) {
+				try {
+					final OutputStream os = editor.newOutputStream();
+					final InputStream is = client.get(url, null).asStream();
+					try {
+						copyStream(is, os);
+					} finally {
+						os.close();
+					}
+					final BitmapFactory.Options o = new BitmapFactory.Options();
+					// o.inSampleSize = scale_down ? 2 : 1;
+					final Bitmap bitmap = BitmapFactory.decodeFile(editor.getFile().getPath(), o);
+					if (bitmap == null) return null;
+					editor.commit();
+					return gradient_effect ? createAlphaGradientBanner(bitmap) : bitmap;
+				} finally {
+					editor.abortUnlessCommitted();
+				}
 			} else {
 				final Bitmap bitmap = BitmapFactory.decodeStream(client.get(url, null).asStream());
 				return gradient_effect ? createAlphaGradientBanner(bitmap) : bitmap;
@@ -87,17 +98,4 @@ public class UserBannerImageLoader extends AsyncTaskLoader<Bitmap> {
 		forceLoad();
 	}
 
-	private File getImageCacheDir() {
-		final File cache_dir = getBestCacheDir(context, CACHE_DIR);
-		if (cache_dir != null && !cache_dir.exists()) {
-			cache_dir.mkdirs();
-		}
-		return cache_dir;
-	}
-
-	private String getURLFilename(final String url) {
-		if (url == null) return null;
-		return url.replaceFirst("https?:\\/\\/", "").replaceAll("[^a-zA-Z0-9]", "_");
-	}
-
 }
\ No newline at end of file
@@ -26,14 +26,17 @@ import static org.mariotaku.twidere.util.Utils.getAsInteger;
 import static org.mariotaku.twidere.util.Utils.getAsLong;
 import static org.mariotaku.twidere.util.Utils.getBiggerTwitterProfileImage;
 import static org.mariotaku.twidere.util.Utils.getPreviewImage;
+import static org.mariotaku.twidere.util.Utils.isMentioned;
 import static org.mariotaku.twidere.util.Utils.parseString;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Comparator;
 import java.util.Date;
 
 import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.provider.TweetStore.Statuses;
+import org.mariotaku.twidere.util.CompactCodec;
 
 import twitter4j.MediaEntity;
 import twitter4j.Status;
@@ -43,7 +46,8 @@ import android.database.Cursor;
 import android.os.Parcel;
 import android.os.Parcelable;
 
-public class ParcelableStatus implements Constants, Parcelable, Serializable, Comparable<ParcelableStatus> {
+public class ParcelableStatus implements Constants, Parcelable, Serializable, Comparable<ParcelableStatus>,
+		CompactCodec.Encodable {
 
 	private static final long serialVersionUID = 8687220519842668226L;
 
@@ -62,7 +66,8 @@ public class ParcelableStatus implements Constants, Parcelable, Serializable, Co
 	public final long retweet_id, retweeted_by_id, status_id, account_id, user_id, status_timestamp, retweet_count,
 			in_reply_to_status_id, my_retweet_id;
 
-	public final boolean is_gap, is_retweet, is_favorite, is_protected, is_verified, has_media, is_possibly_sensitive;
+	public final boolean is_gap, is_retweet, is_favorite, is_protected, is_verified, has_media, is_possibly_sensitive,
+			is_mention;
 
 	public final String retweeted_by_name, retweeted_by_screen_name, text_html, text_plain, name, screen_name,
 			in_reply_to_screen_name, source, profile_image_url, image_preview_url, image_orig_url, text_unescaped;
@@ -118,11 +123,19 @@ public class ParcelableStatus implements Constants, Parcelable, Serializable, Co
 		source = values.getAsString(Statuses.SOURCE);
 		retweet_count = getAsInteger(values, Statuses.RETWEET_COUNT, 0);
 		text_unescaped = toPlainText(text_html);
-		final PreviewImage preview = getPreviewImage(text_html, INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_LARGE);
+		final PreviewImage preview;
+		if (values.containsKey(Statuses.IMAGE_HOST)) {
+			final String preview_url = values.getAsString(Statuses.IMAGE_PREVIEW_URL);
+			preview = new PreviewImage(preview_url != null, preview_url, values.getAsString(Statuses.IMAGE_ORIG_URL),
+					(int) getAsInteger(values, Statuses.IMAGE_HOST, IMAGE_HOST_NONE));
+		} else {
+			preview = getPreviewImage(text_html, INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_LARGE);
+		}
 		has_media = preview.has_image;
 		image_preview_url = preview.matched_url;
 		image_orig_url = preview.orig_url;
 		is_possibly_sensitive = getAsBoolean(values, Statuses.IS_POSSIBLY_SENSITIVE, false);
+		is_mention = getAsBoolean(values, Statuses.IS_MENTION, false);
 	}
 
 	public ParcelableStatus(final Cursor cursor, final StatusCursorIndices indices) {
@@ -144,7 +157,14 @@ public class ParcelableStatus implements Constants, Parcelable, Serializable, Co
 		retweeted_by_screen_name = indices.retweeted_by_screen_name != -1 ? cursor
 				.getString(indices.retweeted_by_screen_name) : null;
 		text_html = indices.text_html != -1 ? cursor.getString(indices.text_html) : null;
-		final PreviewImage preview = getPreviewImage(text_html, INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_LARGE);
+		final PreviewImage preview;
+		if (indices.image_host != -1 && indices.image_preview_url != -1 && indices.image_orig_url != -1) {
+			final String preview_url = cursor.getString(indices.image_preview_url);
+			preview = new PreviewImage(preview_url != null, preview_url, cursor.getString(indices.image_orig_url),
+					cursor.getInt(indices.image_host));
+		} else {
+			preview = getPreviewImage(text_html, INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_LARGE);
+		}
 		has_media = preview.has_image;
 		text_plain = indices.text_plain != -1 ? cursor.getString(indices.text_plain) : null;
 		name = indices.name != -1 ? cursor.getString(indices.name) : null;
@@ -160,6 +180,45 @@ public class ParcelableStatus implements Constants, Parcelable, Serializable, Co
 		my_retweet_id = indices.my_retweet_id != -1 ? cursor.getLong(indices.my_retweet_id) : -1;
 		is_possibly_sensitive = indices.is_possibly_sensitive != -1 ? cursor.getInt(indices.is_possibly_sensitive) == 1
 				: false;
+		is_mention = indices.is_mention != -1 ? cursor.getInt(indices.is_mention) == 1 : false;
+	}
+
+	/**
+	 * Reads a record written by {@link #writeTo(CompactCodec.Writer)}.
+	 */
+	public ParcelableStatus(final CompactCodec.Reader in) throws IOException {
+		in.beginRecord();
+		retweet_id = in.readLong();
+		retweeted_by_id = in.readLong();
+		status_id = in.readLong();
+		account_id = in.readLong();
+		user_id = in.readLong();
+		status_timestamp = in.readLong();
+		retweet_count = in.readLong();
+		in_reply_to_status_id = in.readLong();
+		is_gap = in.readBoolean();
+		is_retweet = in.readBoolean();
+		is_favorite = in.readBoolean();
+		is_protected = in.readBoolean();
+		is_verified = in.readBoolean();
+		has_media = in.readBoolean();
+		retweeted_by_name = in.readString();
+		retweeted_by_screen_name = in.readString();
+		text_html = in.readString();
+		text_plain = in.readString();
+		name = in.readString();
+		screen_name = in.readString();
+		in_reply_to_screen_name = in.readString();
+		source = in.readString();
+		profile_image_url = in.readString();
+		image_preview_url = in.readString();
+		image_orig_url = in.readString();
+		location = ParcelableLocation.fromString(in.readString());
+		my_retweet_id = in.readLong();
+		is_possibly_sensitive = in.readBoolean();
+		is_mention = in.readBoolean();
+		in.endRecord();
+		text_unescaped = toPlainText(text_html);
 	}
 
 	public ParcelableStatus(final Parcel in) {
@@ -191,6 +250,7 @@ public class ParcelableStatus implements Constants, Parcelable, Serializable, Co
 		location = ParcelableLocation.fromString(in.readString());
 		my_retweet_id = in.readLong();
 		is_possibly_sensitive = in.readInt() == 1;
+		is_mention = in.readInt() == 1;
 		text_unescaped = toPlainText(text_html);
 	}
 
@@ -244,6 +304,7 @@ public class ParcelableStatus implements Constants, Parcelable, Serializable, Co
 		text_unescaped = toPlainText(text_html);
 		my_retweet_id = retweeted_by_id == account_id ? status_id : -1;
 		is_possibly_sensitive = status.isPossiblySensitive();
+		is_mention = isMentioned(status, account_id);
 	}
 
 	@Override
@@ -288,7 +349,8 @@ public class ParcelableStatus implements Constants, Parcelable, Serializable, Co
 				+ in_reply_to_status_id + ", my_retweet_id=" + my_retweet_id + ", is_gap=" + is_gap + ", is_retweet="
 				+ is_retweet + ", is_favorite=" + is_favorite + ", is_protected=" + is_protected + ", is_verified="
 				+ is_verified + ", has_media=" + has_media + ", is_possibly_sensitive=" + is_possibly_sensitive
-				+ ", retweeted_by_name=" + retweeted_by_name + ", retweeted_by_screen_name=" + retweeted_by_screen_name
+				+ ", is_mention=" + is_mention + ", retweeted_by_name=" + retweeted_by_name
+				+ ", retweeted_by_screen_name=" + retweeted_by_screen_name
 				+ ", text_html=" + text_html + ", text_plain=" + text_plain + ", name=" + name + ", screen_name="
 				+ screen_name + ", in_reply_to_screen_name=" + in_reply_to_screen_name + ", source=" + source
 				+ ", profile_image_url=" + profile_image_url + ", image_preview_url=" + image_preview_url
@@ -296,6 +358,44 @@ public class ParcelableStatus implements Constants, Parcelable, Serializable, Co
 				+ location + "}";
 	}
 
+	/**
+	 * Writes this status as a record, new fields must be appended to the end.
+	 */
+	@Override
+	public void writeTo(final CompactCodec.Writer out) {
+		out.beginRecord();
+		out.writeLong(retweet_id);
+		out.writeLong(retweeted_by_id);
+		out.writeLong(status_id);
+		out.writeLong(account_id);
+		out.writeLong(user_id);
+		out.writeLong(status_timestamp);
+		out.writeLong(retweet_count);
+		out.writeLong(in_reply_to_status_id);
+		out.writeBoolean(is_gap);
+		out.writeBoolean(is_retweet);
+		out.writeBoolean(is_favorite);
+		out.writeBoolean(is_protected);
+		out.writeBoolean(is_verified);
+		out.writeBoolean(has_media);
+		out.writeString(retweeted_by_name);
+		out.writeString(retweeted_by_screen_name);
+		out.writeString(text_html);
+		out.writeString(text_plain);
+		out.writeString(name);
+		out.writeString(screen_name);
+		out.writeString(in_reply_to_screen_name);
+		out.writeString(source);
+		out.writeString(profile_image_url);
+		out.writeString(image_preview_url);
+		out.writeString(image_orig_url);
+		out.writeString(ParcelableLocation.toString(location));
+		out.writeLong(my_retweet_id);
+		out.writeBoolean(is_possibly_sensitive);
+		out.writeBoolean(is_mention);
+		out.endRecord();
+	}
+
 	@Override
 	public void writeToParcel(final Parcel out, final int flags) {
 		out.writeLong(retweet_id);
@@ -326,6 +426,7 @@ public class ParcelableStatus implements Constants, Parcelable, Serializable, Co
 		out.writeString(ParcelableLocation.toString(location));
 		out.writeLong(my_retweet_id);
 		out.writeInt(is_possibly_sensitive ? 1 : 0);
+		out.writeInt(is_mention ? 1 : 0);
 	}
 
 	private static long getTime(final Date date) {
@@ -21,23 +21,33 @@ package org.mariotaku.twidere.model;
 
 import static android.text.TextUtils.isEmpty;
 
-public class PreviewImage {
+import org.mariotaku.twidere.Constants;
+
+public class PreviewImage implements Constants {
 	public final boolean has_image;
 	public final String matched_url, orig_url;
+	public final int host;
 
 	public PreviewImage(final boolean has_image, final String matched_url, final String orig_url) {
+		this(has_image, matched_url, orig_url, IMAGE_HOST_NONE);
+	}
+
+	public PreviewImage(final boolean has_image, final String matched_url, final String orig_url, final int host) {
 		this.has_image = has_image;
 		this.matched_url = matched_url;
 		this.orig_url = orig_url;
+		this.host = host;
 	}
 
-	public PreviewImage(final ImageSpec spec, final String orig_url) {
-		this(spec != null && !isEmpty(spec.preview_image_link), spec.preview_image_link, orig_url);
+	public PreviewImage(final ImageSpec spec, final String orig_url, final int host) {
+		this(spec != null && !isEmpty(spec.preview_image_link), spec != null ? spec.preview_image_link : null,
+				orig_url, host);
 	}
 
 	@Override
 	public String toString() {
-		return "PreviewImage{has_image=" + has_image + ", matched_url=" + matched_url + ", orig_url=" + orig_url + "}";
+		return "PreviewImage{has_image=" + has_image + ", matched_url=" + matched_url + ", orig_url=" + orig_url
+				+ ", host=" + host + "}";
 	}
 
 }
\ No newline at end of file
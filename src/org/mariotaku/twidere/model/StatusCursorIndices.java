@@ -28,7 +28,8 @@ public class StatusCursorIndices {
 	public final int account_id, status_id, status_timestamp, name, screen_name, text_html, text_plain,
 			profile_image_url, is_retweet, is_favorite, is_gap, location, is_protected, is_verified,
 			in_reply_to_status_id, in_reply_to_screen_name, my_retweet_id, retweeted_by_name, retweeted_by_screen_name,
-			retweet_id, retweeted_by_id, user_id, source, retweet_count, is_possibly_sensitive;
+			retweet_id, retweeted_by_id, user_id, source, retweet_count, is_possibly_sensitive, is_mention,
+			image_preview_url, image_orig_url, image_host;
 
 	public StatusCursorIndices(final Cursor cursor) {
 		account_id = cursor.getColumnIndex(Statuses.ACCOUNT_ID);
@@ -56,6 +57,10 @@ public class StatusCursorIndices {
 		source = cursor.getColumnIndex(Statuses.SOURCE);
 		retweet_count = cursor.getColumnIndex(Statuses.RETWEET_COUNT);
 		is_possibly_sensitive = cursor.getColumnIndex(Statuses.IS_POSSIBLY_SENSITIVE);
+		is_mention = cursor.getColumnIndex(Statuses.IS_MENTION);
+		image_preview_url = cursor.getColumnIndex(Statuses.IMAGE_PREVIEW_URL);
+		image_orig_url = cursor.getColumnIndex(Statuses.IMAGE_ORIG_URL);
+		image_host = cursor.getColumnIndex(Statuses.IMAGE_HOST);
 	}
 
 	@Override
@@ -69,6 +74,8 @@ public class StatusCursorIndices {
 				+ my_retweet_id + ", retweeted_by_name=" + retweeted_by_name + ", retweeted_by_screen_name="
 				+ retweeted_by_screen_name + ", retweet_id=" + retweet_id + ", retweeted_by_id=" + retweeted_by_id
 				+ ", user_id=" + user_id + ", source=" + source + ", retweet_count=" + retweet_count
-				+ ", is_possibly_sensitive=" + is_possibly_sensitive + "}";
+				+ ", is_possibly_sensitive=" + is_possibly_sensitive + ", is_mention=" + is_mention
+				+ ", image_preview_url=" + image_preview_url + ", image_orig_url=" + image_orig_url + ", image_host="
+				+ image_host + "}";
 	}
 }
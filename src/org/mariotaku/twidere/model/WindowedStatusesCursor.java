@@ -0,0 +1,274 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.model;
+
+import java.util.HashMap;
+
+import org.mariotaku.twidere.provider.TweetStore.Statuses;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.net.Uri;
+import android.support.v4.util.LruCache;
+
+/**
+ * Statuses cursor which only queries light columns for all rows.</br> </br>
+ * Heavy text columns, like {@link Statuses#TEXT_HTML} and
+ * {@link Statuses#SOURCE}, are appended after columns of the wrapped cursor,
+ * and loaded by {@link Statuses#_ID} for a fixed-size window of rows when one
+ * of them is read, so only rows being shown are fully loaded. Position of a
+ * status id is looked up in an index built when the cursor is created, which
+ * should happen off the UI thread.
+ *
+ * @author mariotaku
+ */
+public class WindowedStatusesCursor extends CursorWrapper {
+
+	private static final int MAX_WINDOWS = 4;
+
+	private final Cursor mCursor;
+	private final ContentResolver mResolver;
+	private final Uri mUri;
+	private final String[] mHeavyColumns, mColumnNames;
+	private final int mWindowSize, mLightColumnCount;
+	private final LruCache<Integer, String[][]> mWindows = new LruCache<Integer, String[][]>(MAX_WINDOWS);
+
+	private long[] mRowIds;
+	private HashMap<Long, Integer> mPositions;
+
+	/**
+	 * @param cursor Cursor of light columns, must contain
+	 *            {@link Statuses#_ID} and {@link Statuses#STATUS_ID}.
+	 * @param heavy_columns Text columns loaded on demand.
+	 */
+	public WindowedStatusesCursor(final ContentResolver resolver, final Uri uri, final Cursor cursor,
+			final String[] heavy_columns, final int window_size) {
+		super(cursor);
+		mCursor = cursor;
+		mResolver = resolver;
+		mUri = uri;
+		mHeavyColumns = heavy_columns;
+		mWindowSize = Math.max(1, window_size);
+		final String[] light_columns = cursor.getColumnNames();
+		mLightColumnCount = light_columns.length;
+		mColumnNames = new String[mLightColumnCount + heavy_columns.length];
+		System.arraycopy(light_columns, 0, mColumnNames, 0, mLightColumnCount);
+		System.arraycopy(heavy_columns, 0, mColumnNames, mLightColumnCount, heavy_columns.length);
+		buildIndex();
+	}
+
+	@Override
+	public byte[] getBlob(final int column) {
+		if (column < mLightColumnCount) return super.getBlob(column);
+		final String value = getHeavyString(column);
+		return value != null ? value.getBytes() : null;
+	}
+
+	@Override
+	public int getColumnCount() {
+		return mColumnNames.length;
+	}
+
+	@Override
+	public int getColumnIndex(final String column_name) {
+		final int index = super.getColumnIndex(column_name);
+		if (index >= 0) return index;
+		for (int i = 0, j = mHeavyColumns.length; i < j; i++) {
+			if (mHeavyColumns[i].equals(column_name)) return mLightColumnCount + i;
+		}
+		return -1;
+	}
+
+	@Override
+	public int getColumnIndexOrThrow(final String column_name) {
+		final int index = getColumnIndex(column_name);
+		if (index < 0) throw new IllegalArgumentException("column '" + column_name + "' does not exist");
+		return index;
+	}
+
+	@Override
+	public String getColumnName(final int column) {
+		return mColumnNames[column];
+	}
+
+	@Override
+	public String[] getColumnNames() {
+		return mColumnNames;
+	}
+
+	@Override
+	public double getDouble(final int column) {
+		if (column < mLightColumnCount) return super.getDouble(column);
+		return parseNumber(getHeavyString(column));
+	}
+
+	@Override
+	public float getFloat(final int column) {
+		if (column < mLightColumnCount) return super.getFloat(column);
+		return (float) parseNumber(getHeavyString(column));
+	}
+
+	@Override
+	public int getInt(final int column) {
+		if (column < mLightColumnCount) return super.getInt(column);
+		return (int) parseNumber(getHeavyString(column));
+	}
+
+	@Override
+	public long getLong(final int column) {
+		if (column < mLightColumnCount) return super.getLong(column);
+		return (long) parseNumber(getHeavyString(column));
+	}
+
+	/**
+	 * @return Position of the first row with {@code status_id}, or -1.
+	 */
+	public int getPositionOfStatus(final long status_id) {
+		final Integer position = mPositions.get(status_id);
+		return position != null ? position : -1;
+	}
+
+	@Override
+	public short getShort(final int column) {
+		if (column < mLightColumnCount) return super.getShort(column);
+		return (short) parseNumber(getHeavyString(column));
+	}
+
+	@Override
+	public String getString(final int column) {
+		if (column < mLightColumnCount) return super.getString(column);
+		return getHeavyString(column);
+	}
+
+	@Override
+	public int getType(final int column) {
+		if (column < mLightColumnCount) return super.getType(column);
+		return getHeavyString(column) != null ? FIELD_TYPE_STRING : FIELD_TYPE_NULL;
+	}
+
+	@Override
+	public boolean isNull(final int column) {
+		if (column < mLightColumnCount) return super.isNull(column);
+		return getHeavyString(column) == null;
+	}
+
+	/**
+	 * Loads heavy columns of rows from {@code start} on, call this off the UI
+	 * thread for rows likely to be shown first.
+	 */
+	public void prefetch(final int start, final int count) {
+		final int end = Math.min(start + count, mRowIds.length);
+		for (int window = start / mWindowSize; window * mWindowSize < end; window++) {
+			getWindow(window);
+		}
+	}
+
+	@SuppressWarnings("deprecation")
+	@Override
+	public boolean requery() {
+		mWindows.evictAll();
+		final boolean result = super.requery();
+		if (result) {
+			buildIndex();
+		}
+		return result;
+	}
+
+	private void buildIndex() {
+		final Cursor cursor = mCursor;
+		final int count = cursor.getCount();
+		final int id_idx = cursor.getColumnIndex(Statuses._ID);
+		final int status_id_idx = cursor.getColumnIndex(Statuses.STATUS_ID);
+		final long[] row_ids = new long[count];
+		final HashMap<Long, Integer> positions = new HashMap<Long, Integer>(count * 4 / 3 + 1);
+		final int position = cursor.getPosition();
+		for (int i = 0; i < count && cursor.moveToPosition(i); i++) {
+			row_ids[i] = cursor.getLong(id_idx);
+			final long status_id = cursor.getLong(status_id_idx);
+			if (!positions.containsKey(status_id)) {
+				positions.put(status_id, i);
+			}
+		}
+		cursor.moveToPosition(position);
+		mRowIds = row_ids;
+		mPositions = positions;
+	}
+
+	private String getHeavyString(final int column) {
+		final int position = getPosition();
+		if (position < 0 || position >= mRowIds.length) throw new IndexOutOfBoundsException("Invalid position "
+				+ position);
+		final String[][] window = getWindow(position / mWindowSize);
+		final String[] row = window[position % mWindowSize];
+		return row != null ? row[column - mLightColumnCount] : null;
+	}
+
+	private String[][] getWindow(final int window) {
+		final String[][] cached = mWindows.get(window);
+		if (cached != null) return cached;
+		final int start = window * mWindowSize, end = Math.min(start + mWindowSize, mRowIds.length);
+		final String[][] rows = new String[mWindowSize][];
+		final HashMap<Long, Integer> offsets = new HashMap<Long, Integer>();
+		final StringBuilder where = new StringBuilder(Statuses._ID + " IN (");
+		for (int i = start; i < end; i++) {
+			if (i > start) {
+				where.append(',');
+			}
+			where.append(mRowIds[i]);
+			offsets.put(mRowIds[i], i - start);
+		}
+		where.append(')');
+		final String[] projection = new String[mHeavyColumns.length + 1];
+		projection[0] = Statuses._ID;
+		System.arraycopy(mHeavyColumns, 0, projection, 1, mHeavyColumns.length);
+		final Cursor cur = mResolver.query(mUri, projection, where.toString(), null, null);
+		if (cur != null) {
+			try {
+				cur.moveToFirst();
+				while (!cur.isAfterLast()) {
+					final Integer offset = offsets.get(cur.getLong(0));
+					if (offset != null) {
+						final String[] row = new String[mHeavyColumns.length];
+						for (int i = 0; i < row.length; i++) {
+							row[i] = cur.getString(i + 1);
+						}
+						rows[offset] = row;
+					}
+					cur.moveToNext();
+				}
+			} finally {
+				cur.close();
+			}
+		}
+		mWindows.put(window, rows);
+		return rows;
+	}
+
+	private static double parseNumber(final String string) {
+		if (string == null) return 0;
+		try {
+			return Double.parseDouble(string);
+		} catch (final NumberFormatException e) {
+			return 0;
+		}
+	}
+
+}
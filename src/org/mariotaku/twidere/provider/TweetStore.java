@@ -164,6 +164,30 @@ public final class TweetStore implements Constants {
 				CONTENT_PATH);
 	}
 
+	/**
+	 * Main colors of images, keyed by image URL. Only accessed through the
+	 * database, see {@link org.mariotaku.twidere.util.ImageColorService}.
+	 */
+	public static interface CachedColors extends BaseColumns {
+
+		public static final String CONTENT_PATH = "cached_colors";
+
+		/**
+		 * URL of the analysed image.<br>
+		 * Type: TEXT
+		 */
+		public static final String URL = "url";
+
+		/**
+		 * Main color of the image, without alpha.<br>
+		 * Type: INTEGER
+		 */
+		public static final String COLOR = "color";
+
+		public static final String[] COLUMNS = new String[] { _ID, URL, COLOR };
+		public static final String[] TYPES = new String[] { TYPE_PRIMARY_KEY, TYPE_TEXT_NOT_NULL, TYPE_INT };
+	}
+
 	public static interface CachedStatuses extends Statuses {
 		public static final String CONTENT_PATH = "cached_statuses";
 
@@ -659,6 +683,40 @@ public final class TweetStore implements Constants {
 
 		public static final String MY_RETWEET_ID = "my_retweet_id";
 
+		/**
+		 * Set to 1 if the status matches any of the filters, evaluated when the
+		 * status is stored or filters are changed.<br>
+		 * Type: INTEGER (boolean)
+		 */
+		public static final String IS_FILTERED = "is_filtered";
+
+		/**
+		 * Set to 1 if the status mentions its account, evaluated when the
+		 * status is stored.<br>
+		 * Type: INTEGER (boolean)
+		 */
+		public static final String IS_MENTION = "is_mention";
+
+		/**
+		 * Large preview image URL of the first recognized image link in the
+		 * status.<br>
+		 * Type: TEXT
+		 */
+		public static final String IMAGE_PREVIEW_URL = "image_preview_url";
+
+		/**
+		 * Original URL of the first recognized image link in the status.<br>
+		 * Type: TEXT
+		 */
+		public static final String IMAGE_ORIG_URL = "image_orig_url";
+
+		/**
+		 * Host of {@link #IMAGE_ORIG_URL}, one of {@code IMAGE_HOST_*}
+		 * constants.<br>
+		 * Type: INTEGER
+		 */
+		public static final String IMAGE_HOST = "image_host";
+
 		public static final String SORT_ORDER_TIMESTAMP_DESC = STATUS_TIMESTAMP + " DESC";
 
 		public static final String SORT_ORDER_STATUS_ID_DESC = STATUS_ID + " DESC";
@@ -669,12 +727,13 @@ public final class TweetStore implements Constants {
 				TEXT_HTML, TEXT_PLAIN, NAME, SCREEN_NAME, PROFILE_IMAGE_URL, IN_REPLY_TO_STATUS_ID,
 				IN_REPLY_TO_SCREEN_NAME, SOURCE, LOCATION, RETWEET_COUNT, RETWEET_ID, RETWEETED_BY_ID,
 				RETWEETED_BY_NAME, RETWEETED_BY_SCREEN_NAME, MY_RETWEET_ID, IS_RETWEET, IS_FAVORITE, IS_PROTECTED,
-				IS_VERIFIED, IS_GAP, IS_POSSIBLY_SENSITIVE };
+				IS_VERIFIED, IS_GAP, IS_POSSIBLY_SENSITIVE, IS_FILTERED, IS_MENTION, IMAGE_PREVIEW_URL, IMAGE_ORIG_URL,
+				IMAGE_HOST };
 
 		public static final String[] TYPES = new String[] { TYPE_PRIMARY_KEY, TYPE_INT, TYPE_INT, TYPE_INT, TYPE_INT,
 				TYPE_TEXT, TYPE_TEXT, TYPE_TEXT, TYPE_TEXT, TYPE_TEXT, TYPE_INT, TYPE_TEXT, TYPE_TEXT, TYPE_TEXT,
 				TYPE_INT, TYPE_INT, TYPE_INT, TYPE_TEXT, TYPE_TEXT, TYPE_INT, TYPE_BOOLEAN, TYPE_BOOLEAN, TYPE_BOOLEAN,
-				TYPE_BOOLEAN, TYPE_BOOLEAN, TYPE_BOOLEAN };
+				TYPE_BOOLEAN, TYPE_BOOLEAN, TYPE_BOOLEAN, TYPE_BOOLEAN, TYPE_BOOLEAN, TYPE_TEXT, TYPE_TEXT, TYPE_INT };
 
 	}
 
@@ -24,11 +24,9 @@ import static org.mariotaku.twidere.util.Utils.clearAccountColor;
 import static org.mariotaku.twidere.util.Utils.clearAccountName;
 import static org.mariotaku.twidere.util.Utils.getAccountName;
 import static org.mariotaku.twidere.util.Utils.getAccountScreenName;
-import static org.mariotaku.twidere.util.Utils.getAllStatusesCount;
 import static org.mariotaku.twidere.util.Utils.getBiggerTwitterProfileImage;
 import static org.mariotaku.twidere.util.Utils.getTableId;
 import static org.mariotaku.twidere.util.Utils.getTableNameById;
-import static org.mariotaku.twidere.util.Utils.isFiltered;
 import static org.mariotaku.twidere.util.Utils.notifyForUpdatedUri;
 import static org.mariotaku.twidere.util.Utils.parseInt;
 
@@ -55,8 +53,10 @@ import org.mariotaku.twidere.provider.TweetStore.Statuses;
 import org.mariotaku.twidere.util.ArrayUtils;
 import org.mariotaku.twidere.util.ImagePreloader;
 import org.mariotaku.twidere.util.LazyImageLoader;
+import org.mariotaku.twidere.util.ListUtils;
 import org.mariotaku.twidere.util.NoDuplicatesArrayList;
 import org.mariotaku.twidere.util.PermissionsManager;
+import org.mariotaku.twidere.util.StatusFilterEngine;
 import org.mariotaku.twidere.util.Utils;
 
 import android.app.Notification;
@@ -73,6 +73,7 @@ import android.content.res.Resources;
 import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.media.RingtoneManager;
@@ -94,6 +95,7 @@ public final class TwidereDataProvider extends ContentProvider implements Consta
 	private SharedPreferences mPreferences;
 	private LazyImageLoader mProfileImageLoader;
 	private ImagePreloader mImagePreloader;
+	private StatusFilterEngine mFilterEngine;
 
 	private int mNewStatusesCount;
 	private final List<ParcelableStatus> mNewMentions = new ArrayList<ParcelableStatus>();
@@ -129,22 +131,28 @@ public final class TwidereDataProvider extends ContentProvider implements Consta
 				case TABLE_ID_DIRECT_MESSAGES:
 				case TABLE_ID_DIRECT_MESSAGES_CONVERSATIONS_ENTRY:
 					return 0;
-			}
-			int result = 0;
-			if (table != null && values != null) {
-				final int old_count;
-				switch (table_id) {
-					case TABLE_ID_STATUSES: {
-						old_count = getAllStatusesCount(mContext, Statuses.CONTENT_URI);
-						break;
+				case TABLE_ID_STATUSES:
+				case TABLE_ID_MENTIONS: {
+					if (table == null || values == null) return 0;
+					final List<ContentValues> inserted = new ArrayList<ContentValues>();
+					final int result = upsertStatuses(table, values, inserted);
+					if (!inserted.isEmpty() && table_id == TABLE_ID_STATUSES
+							&& !"false".equals(uri.getQueryParameter(QUERY_PARAM_NOTIFY))) {
+						for (final ContentValues item : inserted) {
+							if (!item.getAsBoolean(Statuses.IS_FILTERED)) {
+								mNewStatusesCount++;
+							}
+						}
 					}
-					case TABLE_ID_MENTIONS: {
-						old_count = getAllStatusesCount(mContext, Mentions.CONTENT_URI);
-						break;
+					if (result > 0) {
+						onDatabaseUpdated(uri);
 					}
-					default:
-						old_count = 0;
+					onNewItemsInserted(uri, inserted.toArray(new ContentValues[inserted.size()]));
+					return result;
 				}
+			}
+			int result = 0;
+			if (table != null && values != null) {
 				mDatabase.beginTransaction();
 				for (final ContentValues contentValues : values) {
 					mDatabase.insert(table, null, contentValues);
@@ -152,16 +160,9 @@ public final class TwidereDataProvider extends ContentProvider implements Consta
 				}
 				mDatabase.setTransactionSuccessful();
 				mDatabase.endTransaction();
-				if (!"false".equals(uri.getQueryParameter(QUERY_PARAM_NOTIFY))) {
-					switch (table_id) {
-						case TABLE_ID_STATUSES: {
-							mNewStatusesCount += getAllStatusesCount(mContext, Statuses.CONTENT_URI) - old_count;
-							break;
-						}
-					}
-				}
 			}
 			if (result > 0) {
+				onFiltersUpdated(table_id);
 				onDatabaseUpdated(uri);
 			}
 			onNewItemsInserted(uri, values);
@@ -191,6 +192,7 @@ public final class TwidereDataProvider extends ContentProvider implements Consta
 			if (table == null) return 0;
 			final int result = mDatabase.delete(table, selection, selectionArgs);
 			if (result > 0) {
+				onFiltersUpdated(table_id);
 				onDatabaseUpdated(uri);
 			}
 			return result;
@@ -218,6 +220,9 @@ public final class TwidereDataProvider extends ContentProvider implements Consta
 			}
 			if (table == null) return null;
 			final long row_id = mDatabase.insert(table, null, values);
+			if (row_id != -1) {
+				onFiltersUpdated(table_id);
+			}
 			if (!"false".equals(uri.getQueryParameter(QUERY_PARAM_NOTIFY))) {
 				switch (getTableId(uri)) {
 					case TABLE_ID_STATUSES: {
@@ -245,6 +250,7 @@ public final class TwidereDataProvider extends ContentProvider implements Consta
 		mProfileImageLoader = app.getProfileImageLoader();
 		mPermissionsManager = new PermissionsManager(mContext);
 		mImagePreloader = new ImagePreloader(mContext);
+		mFilterEngine = app.getStatusFilterEngine();
 		final IntentFilter filter = new IntentFilter();
 		filter.addAction(BROADCAST_HOME_ACTIVITY_ONSTART);
 		filter.addAction(BROADCAST_HOME_ACTIVITY_ONSTOP);
@@ -322,6 +328,7 @@ public final class TwidereDataProvider extends ContentProvider implements Consta
 				result = mDatabase.update(table, values, selection, selectionArgs);
 			}
 			if (result > 0) {
+				onFiltersUpdated(table_id);
 				onDatabaseUpdated(uri);
 			}
 			return result;
@@ -372,6 +379,78 @@ public final class TwidereDataProvider extends ContentProvider implements Consta
 		builder.setDefaults(defaults);
 	}
 
+	/**
+	 * Writes statuses in a single transaction with statements compiled once
+	 * per call. A row conflicting on (account_id, status_id) is updated in
+	 * place, and stored retweets of an incoming status are removed.
+	 *
+	 * @param inserted Receives values of rows which didn't exist before.
+	 * @return Number of rows written.
+	 */
+	private int upsertStatuses(final String table, final ContentValues[] values, final List<ContentValues> inserted) {
+		final String[] columns = Statuses.COLUMNS;
+		final int columns_length = columns.length;
+		final StringBuilder insert_sql = new StringBuilder("INSERT OR IGNORE INTO " + table + " (");
+		final StringBuilder update_sql = new StringBuilder("UPDATE " + table + " SET ");
+		int bind_count = 0;
+		for (int i = 0; i < columns_length; i++) {
+			if (Statuses._ID.equals(columns[i])) {
+				continue;
+			}
+			if (bind_count > 0) {
+				insert_sql.append(", ");
+				update_sql.append(", ");
+			}
+			insert_sql.append(columns[i]);
+			update_sql.append(columns[i] + " = ?");
+			bind_count++;
+		}
+		insert_sql.append(") VALUES (" + ListUtils.toStringForSQL(bind_count) + ")");
+		update_sql.append(" WHERE " + Statuses.ACCOUNT_ID + " = ? AND " + Statuses.STATUS_ID + " = ?");
+		final String delete_sql = "DELETE FROM " + table + " WHERE " + Statuses.ACCOUNT_ID + " = ? AND "
+				+ Statuses.RETWEET_ID + " = ?";
+		int result = 0;
+		mDatabase.beginTransaction();
+		final SQLiteStatement insert = mDatabase.compileStatement(insert_sql.toString());
+		final SQLiteStatement update = mDatabase.compileStatement(update_sql.toString());
+		final SQLiteStatement delete = mDatabase.compileStatement(delete_sql);
+		try {
+			for (final ContentValues item : values) {
+				if (item == null) {
+					continue;
+				}
+				final Long account_id = item.getAsLong(Statuses.ACCOUNT_ID);
+				final Long status_id = item.getAsLong(Statuses.STATUS_ID);
+				if (account_id == null || status_id == null) {
+					continue;
+				}
+				item.put(Statuses.IS_FILTERED, mFilterEngine.isFiltered(item));
+				delete.bindLong(1, account_id);
+				delete.bindLong(2, status_id);
+				delete.execute();
+				insert.clearBindings();
+				bindColumnValues(insert, columns, item);
+				if (insert.executeInsert() != -1) {
+					inserted.add(item);
+				} else {
+					update.clearBindings();
+					bindColumnValues(update, columns, item);
+					update.bindLong(bind_count + 1, account_id);
+					update.bindLong(bind_count + 2, status_id);
+					update.execute();
+				}
+				result++;
+			}
+			mDatabase.setTransactionSuccessful();
+		} finally {
+			insert.close();
+			update.close();
+			delete.close();
+			mDatabase.endTransaction();
+		}
+		return result;
+	}
+
 	private boolean checkPermission(final int level) {
 		return mPermissionsManager.checkCallingPermission(level);
 	}
@@ -503,7 +582,7 @@ public final class TwidereDataProvider extends ContentProvider implements Consta
 		// Add statuses that not filtered to list for future use.
 		for (final ContentValues value : values) {
 			final ParcelableStatus status = new ParcelableStatus(value);
-			if (!isFiltered(mDatabase, status)) {
+			if (!mFilterEngine.isFiltered(status)) {
 				mNewMentions.add(status);
 				mNewMentionScreenNames.add(status.screen_name);
 				mNewMentionAccounts.add(status.account_id);
@@ -712,6 +791,7 @@ public final class TwidereDataProvider extends ContentProvider implements Consta
 			case TABLE_ID_ACCOUNTS: {
 				clearAccountColor();
 				clearAccountName();
+				TwidereApplication.getInstance(context).getTwitterClientRegistry().invalidate();
 				context.sendBroadcast(new Intent(BROADCAST_ACCOUNT_LIST_DATABASE_UPDATED));
 				break;
 			}
@@ -747,6 +827,15 @@ public final class TwidereDataProvider extends ContentProvider implements Consta
 		context.sendBroadcast(new Intent(BROADCAST_DATABASE_UPDATED));
 	}
 
+	/**
+	 * Reloads changed filter table, and marks stored statuses again.
+	 */
+	private void onFiltersUpdated(final int table_id) {
+		if (!mFilterEngine.reload(table_id)) return;
+		mFilterEngine.markFilteredStatuses(TABLE_STATUSES);
+		mFilterEngine.markFilteredStatuses(TABLE_MENTIONS);
+	}
+
 	private void onNewItemsInserted(final Uri uri, final ContentValues... values) {
 		if (uri == null || values == null || values.length == 0) return;
 		preloadImages(values);
@@ -817,6 +906,31 @@ public final class TwidereDataProvider extends ContentProvider implements Consta
 		}
 	}
 
+	private static void bindColumnValues(final SQLiteStatement statement, final String[] columns,
+			final ContentValues values) {
+		int index = 1;
+		for (final String column : columns) {
+			if (Statuses._ID.equals(column)) {
+				continue;
+			}
+			final Object value = values.get(column);
+			if (value == null) {
+				statement.bindNull(index);
+			} else if (value instanceof Boolean) {
+				statement.bindLong(index, (Boolean) value ? 1 : 0);
+			} else if (value instanceof Float || value instanceof Double) {
+				statement.bindDouble(index, ((Number) value).doubleValue());
+			} else if (value instanceof Number) {
+				statement.bindLong(index, ((Number) value).longValue());
+			} else if (value instanceof byte[]) {
+				statement.bindBlob(index, (byte[]) value);
+			} else {
+				statement.bindString(index, value.toString());
+			}
+			index++;
+		}
+	}
+
 	private static String stripMentionText(final String text, final String my_screen_name) {
 		if (text == null || my_screen_name == null) return text;
 		final String temp = "@" + my_screen_name + " ";
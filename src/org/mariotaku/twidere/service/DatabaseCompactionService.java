@@ -0,0 +1,74 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.service;
+
+import static org.mariotaku.twidere.util.Utils.isBatteryOkay;
+
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.app.TwidereApplication;
+import org.mariotaku.twidere.util.DatabaseCompactor;
+
+import android.app.AlarmManager;
+import android.app.IntentService;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+
+/**
+ * Runs {@link DatabaseCompactor} off the UI thread. It's started when
+ * {@link org.mariotaku.twidere.activity.HomeActivity} is destroyed, and by an
+ * inexact, non-wakeup alarm, so it only runs while the device is awake for
+ * other reasons.
+ *
+ * @author mariotaku
+ */
+public class DatabaseCompactionService extends IntentService implements Constants {
+
+	private static final String EXTRA_SCHEDULED = "scheduled";
+
+	public DatabaseCompactionService() {
+		super(DatabaseCompactionService.class.getSimpleName());
+	}
+
+	@Override
+	protected void onHandleIntent(final Intent intent) {
+		if (intent != null && intent.getBooleanExtra(EXTRA_SCHEDULED, false) && !isBatteryOkay(this)) return;
+		final TwidereApplication app = TwidereApplication.getInstance(this);
+		new DatabaseCompactor(this, app.getSQLiteDatabase()).compact();
+	}
+
+	public static void schedule(final Context context) {
+		final AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+		final Intent intent = new Intent(context, DatabaseCompactionService.class);
+		intent.putExtra(EXTRA_SCHEDULED, true);
+		// Already scheduled, don't postpone it.
+		if (PendingIntent.getService(context, 0, intent, PendingIntent.FLAG_NO_CREATE) != null) return;
+		final PendingIntent pending_intent = PendingIntent.getService(context, 0, intent,
+				PendingIntent.FLAG_UPDATE_CURRENT);
+		am.setInexactRepeating(AlarmManager.ELAPSED_REALTIME, SystemClock.elapsedRealtime()
+				+ AlarmManager.INTERVAL_HALF_DAY, AlarmManager.INTERVAL_HALF_DAY, pending_intent);
+	}
+
+	public static void start(final Context context) {
+		context.startService(new Intent(context, DatabaseCompactionService.class));
+	}
+
+}
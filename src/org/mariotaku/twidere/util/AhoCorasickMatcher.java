@@ -0,0 +1,173 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Case insensitive multi-pattern substring matcher, built on Aho-Corasick
+ * automaton.</br> </br> Text is scanned only once no matter how many patterns
+ * are there. Instances are immutable after construction, so they can be shared
+ * between threads.
+ *
+ * @author mariotaku
+ */
+public final class AhoCorasickMatcher {
+
+	private static final char[] EMPTY_KEYS = new char[0];
+	private static final Node[] EMPTY_NODES = new Node[0];
+
+	private final Node mRoot = new Node();
+	private final int mPatternsCount;
+
+	public AhoCorasickMatcher(final Collection<String> patterns) {
+		int count = 0;
+		if (patterns != null) {
+			for (final String pattern : patterns) {
+				if (pattern == null || pattern.length() == 0) {
+					continue;
+				}
+				Node node = mRoot;
+				final int length = pattern.length();
+				for (int i = 0; i < length; i++) {
+					node = node.getOrAddChild(Character.toLowerCase(pattern.charAt(i)));
+				}
+				node.output = true;
+				count++;
+			}
+		}
+		mPatternsCount = count;
+		buildFailureLinks();
+	}
+
+	/**
+	 * @return true if {@code text} contains any of the patterns.
+	 */
+	public boolean containsAny(final CharSequence text) {
+		return containsAny(text, 0, text != null ? text.length() : 0);
+	}
+
+	/**
+	 * @return true if {@code text} contains any of the patterns between
+	 *         {@code start} (inclusive) and {@code end} (exclusive).
+	 */
+	public boolean containsAny(final CharSequence text, final int start, final int end) {
+		if (text == null || mPatternsCount == 0) return false;
+		Node node = mRoot;
+		for (int i = start; i < end; i++) {
+			final char c = Character.toLowerCase(text.charAt(i));
+			Node next;
+			while ((next = node.getChild(c)) == null && node != mRoot) {
+				node = node.fail;
+			}
+			node = next != null ? next : mRoot;
+			if (node.output) return true;
+		}
+		return false;
+	}
+
+	public boolean isEmpty() {
+		return mPatternsCount == 0;
+	}
+
+	private void buildFailureLinks() {
+		final List<Node> queue = new ArrayList<Node>();
+		mRoot.fail = mRoot;
+		for (int i = 0, j = mRoot.size; i < j; i++) {
+			final Node child = mRoot.children[i];
+			child.fail = mRoot;
+			queue.add(child);
+		}
+		// Breadth first, so failure targets are always resolved before use.
+		for (int head = 0; head < queue.size(); head++) {
+			final Node node = queue.get(head);
+			for (int i = 0, j = node.size; i < j; i++) {
+				final char c = node.keys[i];
+				final Node child = node.children[i];
+				Node fail = node.fail;
+				Node target;
+				while ((target = fail.getChild(c)) == null && fail != mRoot) {
+					fail = fail.fail;
+				}
+				child.fail = target != null ? target : mRoot;
+				child.output |= child.fail.output;
+				queue.add(child);
+			}
+		}
+	}
+
+	private static final class Node {
+
+		char[] keys = EMPTY_KEYS;
+		Node[] children = EMPTY_NODES;
+		int size;
+		Node fail;
+		boolean output;
+
+		Node getChild(final char c) {
+			final int idx = indexOf(c);
+			return idx >= 0 ? children[idx] : null;
+		}
+
+		Node getOrAddChild(final char c) {
+			final int idx = indexOf(c);
+			if (idx >= 0) return children[idx];
+			final int insert = -idx - 1;
+			if (size == keys.length) {
+				final int capacity = Math.max(2, size * 2);
+				final char[] new_keys = new char[capacity];
+				final Node[] new_children = new Node[capacity];
+				System.arraycopy(keys, 0, new_keys, 0, size);
+				System.arraycopy(children, 0, new_children, 0, size);
+				keys = new_keys;
+				children = new_children;
+			}
+			System.arraycopy(keys, insert, keys, insert + 1, size - insert);
+			System.arraycopy(children, insert, children, insert + 1, size - insert);
+			final Node child = new Node();
+			keys[insert] = c;
+			children[insert] = child;
+			size++;
+			return child;
+		}
+
+		/**
+		 * Binary search in sorted keys, returns {@code -(insertion point) - 1}
+		 * if not found.
+		 */
+		private int indexOf(final char c) {
+			int low = 0, high = size - 1;
+			while (low <= high) {
+				final int mid = low + high >>> 1;
+				final char key = keys[mid];
+				if (key < c) {
+					low = mid + 1;
+				} else if (key > c) {
+					high = mid - 1;
+				} else
+					return mid;
+			}
+			return -(low + 1);
+		}
+	}
+
+}
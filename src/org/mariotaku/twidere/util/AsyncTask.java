@@ -57,12 +57,7 @@ public abstract class AsyncTask<Param, Progress, Result> {
 		mStatus = Status.RUNNING;
 		onPreExecute();
 		mParams = params;
-		if (mExecutor != null) {
-			mExecutor.execute(mRunnable);
-		} else {
-			mThread = new Thread(mRunnable);
-			mThread.start();
-		}
+		executeInBackground(mRunnable);
 
 		return this;
 	}
@@ -77,6 +72,20 @@ public abstract class AsyncTask<Param, Progress, Result> {
 
 	protected abstract Result doInBackground(Param... params);
 
+	/**
+	 * Runs {@code runnable}, which calls {@link #doInBackground(Object...)},
+	 * on the executor passed in, or on a new thread. Subclasses may schedule
+	 * it elsewhere.
+	 */
+	protected void executeInBackground(final Runnable runnable) {
+		if (mExecutor != null) {
+			mExecutor.execute(runnable);
+		} else {
+			mThread = new Thread(runnable);
+			mThread.start();
+		}
+	}
+
 	protected void onCancelled() {
 
 	}
@@ -93,6 +102,20 @@ public abstract class AsyncTask<Param, Progress, Result> {
 
 	}
 
+	protected void onProgressUpdate(final Progress... values) {
+
+	}
+
+	/**
+	 * Called from {@link #doInBackground(Object...)}, values are delivered to
+	 * {@link #onProgressUpdate(Object...)} on the handler's thread, unless the
+	 * task is cancelled.
+	 */
+	protected final void publishProgress(final Progress... values) {
+		if (isCancelled()) return;
+		mHandler.post(new OnProgressUpdateRunnable(values));
+	}
+
 	public enum Status {
 		RUNNING, PENDING, FINISHED
 	}
@@ -106,6 +129,23 @@ public abstract class AsyncTask<Param, Progress, Result> {
 		}
 	}
 
+	private final class OnProgressUpdateRunnable implements Runnable {
+
+		final Progress[] mValues;
+
+		public OnProgressUpdateRunnable(final Progress[] values) {
+			mValues = values;
+		}
+
+		@Override
+		public void run() {
+			if (!isCancelled()) {
+				onProgressUpdate(mValues);
+			}
+		}
+
+	}
+
 	private final class OnPostExecuteRunnable implements Runnable {
 
 		final Result mResult;
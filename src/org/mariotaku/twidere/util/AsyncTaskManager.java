@@ -20,19 +20,68 @@
 package org.mariotaku.twidere.util;
 
 import java.util.ArrayList;
-import java.util.ConcurrentModificationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class AsyncTaskManager {
+import org.mariotaku.twidere.Constants;
 
-	private final ArrayList<ManagedAsyncTask<?, ?, ?>> mTasks = new ArrayList<ManagedAsyncTask<?, ?, ?>>();
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * Keeps track of {@link ManagedAsyncTask}s, and runs them on a bounded pool
+ * of threads.</br> </br> Tasks are indexed by id and by tag in concurrent
+ * maps, so queries don't need to copy or scan all tasks, and tasks are
+ * unregistered once they are finished or cancelled. Waiting tasks are ordered
+ * by {@link ManagedAsyncTask#getPriority()}, then by submission order.
+ * 
+ * @author mariotaku
+ */
+public class AsyncTaskManager implements Constants {
+
+	private static final String LOGTAG = AsyncTaskManager.class.getSimpleName();
+
+	private static final int POOL_SIZE = 5;
+
+	private final ConcurrentHashMap<Integer, ManagedAsyncTask<?, ?, ?>> mTasks = new ConcurrentHashMap<Integer, ManagedAsyncTask<?, ?, ?>>();
+	private final ConcurrentHashMap<String, ConcurrentHashMap<Integer, ManagedAsyncTask<?, ?, ?>>> mTagIndex = new ConcurrentHashMap<String, ConcurrentHashMap<Integer, ManagedAsyncTask<?, ?, ?>>>();
+
+	private final AtomicLong mSequence = new AtomicLong();
+	private final AtomicLong mCompletedCount = new AtomicLong();
+	private final AtomicLong mTotalQueueTime = new AtomicLong();
+	private final AtomicLong mTotalRunTime = new AtomicLong();
+
+	private final ThreadPoolExecutor mExecutor;
 
 	private static AsyncTaskManager sInstance;
 
+	AsyncTaskManager() {
+		mExecutor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS,
+				new PriorityBlockingQueue<Runnable>(), new TaskThreadFactory());
+	}
+
 	public <T> int add(final ManagedAsyncTask<T, ?, ?> task, final boolean exec, final T... params) {
 		final int hashCode = task.hashCode();
-		mTasks.add(task);
+		mTasks.put(hashCode, task);
+		final String tag = task.getTag();
+		if (tag != null) {
+			ConcurrentHashMap<Integer, ManagedAsyncTask<?, ?, ?>> tasks = mTagIndex.get(tag);
+			if (tasks == null) {
+				final ConcurrentHashMap<Integer, ManagedAsyncTask<?, ?, ?>> created = new ConcurrentHashMap<Integer, ManagedAsyncTask<?, ?, ?>>();
+				tasks = mTagIndex.putIfAbsent(tag, created);
+				if (tasks == null) {
+					tasks = created;
+				}
+			}
+			tasks.put(hashCode, task);
+		}
 		if (exec) {
-			execute(hashCode);
+			execute(hashCode, params);
 		}
 		return hashCode;
 	}
@@ -42,10 +91,10 @@ public class AsyncTaskManager {
 	}
 
 	public boolean cancel(final int hashCode, final boolean mayInterruptIfRunning) {
-		final ManagedAsyncTask<?, ?, ?> task = findTask(hashCode);
+		final ManagedAsyncTask<?, ?, ?> task = mTasks.get(hashCode);
 		if (task != null) {
 			task.cancel(mayInterruptIfRunning);
-			mTasks.remove(task);
+			remove(hashCode);
 			return true;
 		}
 		return false;
@@ -55,15 +104,16 @@ public class AsyncTaskManager {
 	 * Cancel all tasks added, then clear all tasks.
 	 */
 	public void cancelAll() {
-		for (final ManagedAsyncTask<?, ?, ?> task : getTaskSpecList()) {
+		for (final ManagedAsyncTask<?, ?, ?> task : mTasks.values()) {
 			task.cancel(true);
 		}
 		mTasks.clear();
+		mTagIndex.clear();
 	}
 
 	@SuppressWarnings("unchecked")
 	public <T> boolean execute(final int hashCode, final T... params) {
-		final ManagedAsyncTask<T, ?, ?> task = (ManagedAsyncTask<T, ?, ?>) findTask(hashCode);
+		final ManagedAsyncTask<T, ?, ?> task = (ManagedAsyncTask<T, ?, ?>) mTasks.get(hashCode);
 		if (task != null) {
 			task.execute(params == null || params.length == 0 ? null : params);
 			return true;
@@ -71,12 +121,41 @@ public class AsyncTaskManager {
 		return false;
 	}
 
+	/**
+	 * @return Average time in milliseconds tasks waited in queue before
+	 *         running.
+	 */
+	public long getAverageQueueTime() {
+		final long count = mCompletedCount.get();
+		return count > 0 ? mTotalQueueTime.get() / count : 0;
+	}
+
+	/**
+	 * @return Average time in milliseconds tasks spent in
+	 *         {@code doInBackground}.
+	 */
+	public long getAverageRunTime() {
+		final long count = mCompletedCount.get();
+		return count > 0 ? mTotalRunTime.get() / count : 0;
+	}
+
+	public long getCompletedTaskCount() {
+		return mCompletedCount.get();
+	}
+
+	/**
+	 * @return Number of tasks waiting for a free thread.
+	 */
+	public int getQueueDepth() {
+		return mExecutor.getQueue().size();
+	}
+
 	public ArrayList<ManagedAsyncTask<?, ?, ?>> getTaskSpecList() {
-		return new ArrayList<ManagedAsyncTask<?, ?, ?>>(mTasks);
+		return new ArrayList<ManagedAsyncTask<?, ?, ?>>(mTasks.values());
 	}
 
 	public boolean hasRunningTask() {
-		for (final ManagedAsyncTask<?, ?, ?> task : getTaskSpecList()) {
+		for (final ManagedAsyncTask<?, ?, ?> task : mTasks.values()) {
 			if (task.getStatus() == ManagedAsyncTask.Status.RUNNING) return true;
 		}
 		return false;
@@ -84,31 +163,35 @@ public class AsyncTaskManager {
 
 	public boolean hasRunningTasksForTag(final String tag) {
 		if (tag == null) return false;
-		for (final ManagedAsyncTask<?, ?, ?> task : getTaskSpecList()) {
-			if (task.getStatus() == ManagedAsyncTask.Status.RUNNING && tag.equals(task.getTag())) return true;
+		final ConcurrentHashMap<Integer, ManagedAsyncTask<?, ?, ?>> tasks = mTagIndex.get(tag);
+		if (tasks == null) return false;
+		for (final ManagedAsyncTask<?, ?, ?> task : tasks.values()) {
+			if (task.getStatus() == ManagedAsyncTask.Status.RUNNING) return true;
 		}
 		return false;
 	}
 
 	public boolean isExcuting(final int hashCode) {
-		final ManagedAsyncTask<?, ?, ?> task = findTask(hashCode);
+		final ManagedAsyncTask<?, ?, ?> task = mTasks.get(hashCode);
 		if (task != null && task.getStatus() == AsyncTask.Status.RUNNING) return true;
 		return false;
 	}
 
 	public void remove(final int hashCode) {
-		try {
-			mTasks.remove(findTask(hashCode));
-		} catch (final ConcurrentModificationException e) {
-			// Ignore.
+		final ManagedAsyncTask<?, ?, ?> task = mTasks.remove(hashCode);
+		if (task == null || task.getTag() == null) return;
+		final ConcurrentHashMap<Integer, ManagedAsyncTask<?, ?, ?>> tasks = mTagIndex.get(task.getTag());
+		if (tasks != null) {
+			tasks.remove(hashCode);
 		}
 	}
 
-	private <T> ManagedAsyncTask<?, ?, ?> findTask(final int hashCode) {
-		for (final ManagedAsyncTask<?, ?, ?> task : getTaskSpecList()) {
-			if (hashCode == task.hashCode()) return task;
-		}
-		return null;
+	/**
+	 * Queues background part of {@code task}, called by
+	 * {@link ManagedAsyncTask}.
+	 */
+	void submit(final ManagedAsyncTask<?, ?, ?> task, final Runnable runnable) {
+		mExecutor.execute(new PrioritizedRunnable(task, runnable, mSequence.getAndIncrement()));
 	}
 
 	public static AsyncTaskManager getInstance() {
@@ -118,4 +201,68 @@ public class AsyncTaskManager {
 		return sInstance;
 	}
 
+	private final class PrioritizedRunnable implements Runnable, Comparable<PrioritizedRunnable> {
+
+		private final ManagedAsyncTask<?, ?, ?> mTask;
+		private final Runnable mRunnable;
+		private final int mPriority;
+		private final long mSequence;
+		private final long mQueuedTime;
+
+		PrioritizedRunnable(final ManagedAsyncTask<?, ?, ?> task, final Runnable runnable, final long sequence) {
+			mTask = task;
+			mRunnable = runnable;
+			mPriority = task.getPriority();
+			mSequence = sequence;
+			mQueuedTime = System.currentTimeMillis();
+		}
+
+		@Override
+		public int compareTo(final PrioritizedRunnable another) {
+			if (mPriority != another.mPriority) return mPriority > another.mPriority ? -1 : 1;
+			if (mSequence != another.mSequence) return mSequence < another.mSequence ? -1 : 1;
+			return 0;
+		}
+
+		@Override
+		public void run() {
+			// Attached first, so a cancel after the check below interrupts us.
+			mTask.attachWorker();
+			final long start, end;
+			try {
+				// Task cancelled while waiting has already been finished.
+				if (mTask.isCancelled()) return;
+				start = System.currentTimeMillis();
+				mRunnable.run();
+				end = System.currentTimeMillis();
+			} finally {
+				mTask.detachWorker();
+			}
+			mTotalQueueTime.addAndGet(start - mQueuedTime);
+			mTotalRunTime.addAndGet(end - start);
+			mCompletedCount.incrementAndGet();
+			if (DEBUG) {
+				Log.d(LOGTAG, mTask.getClass().getSimpleName() + " waited " + (start - mQueuedTime) + "ms, ran "
+						+ (end - start) + "ms, " + getQueueDepth() + " task(s) in queue");
+			}
+		}
+	}
+
+	private static final class TaskThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger mCount = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			return new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+					r.run();
+				}
+			}, LOGTAG + " #" + mCount.incrementAndGet());
+		}
+	}
+
 }
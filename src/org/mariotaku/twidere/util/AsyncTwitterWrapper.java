@@ -24,7 +24,6 @@ import static org.mariotaku.twidere.provider.TweetStore.STATUSES_URIS;
 import static org.mariotaku.twidere.util.Utils.appendQueryParameters;
 import static org.mariotaku.twidere.util.Utils.getAccountScreenName;
 import static org.mariotaku.twidere.util.Utils.getActivatedAccountIds;
-import static org.mariotaku.twidere.util.Utils.getAllStatusesIds;
 import static org.mariotaku.twidere.util.Utils.getImagePathFromUri;
 import static org.mariotaku.twidere.util.Utils.getImageUploadStatus;
 import static org.mariotaku.twidere.util.Utils.getNewestMessageIdsFromDatabase;
@@ -38,8 +37,22 @@ import static org.mariotaku.twidere.util.Utils.parseString;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.mariotaku.twidere.R;
 import org.mariotaku.twidere.app.TwidereApplication;
@@ -77,6 +90,7 @@ import android.media.RingtoneManager;
 import android.net.Uri;
 import android.os.Bundle;
 import android.support.v4.app.NotificationCompat;
+import android.util.Log;
 import android.widget.Toast;
 
 import com.twitter.Extractor;
@@ -380,6 +394,11 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 			this.delete_image = delete_image;
 		}
 
+		@Override
+		public int getPriority() {
+			return PRIORITY_LOW;
+		}
+
 		@Override
 		protected SingleResponse<Boolean> doInBackground(final Void... params) {
 			return TwitterWrapper.updateProfileBannerImage(mContext, account_id, image_uri, delete_image);
@@ -417,6 +436,11 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 			this.delete_image = delete_image;
 		}
 
+		@Override
+		public int getPriority() {
+			return PRIORITY_LOW;
+		}
+
 		@Override
 		protected SingleResponse<User> doInBackground(final Void... params) {
 			return TwitterWrapper.updateProfileImage(context, account_id, image_uri, delete_image);
@@ -455,6 +479,11 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 			this.description = description;
 		}
 
+		@Override
+		public int getPriority() {
+			return PRIORITY_LOW;
+		}
+
 		@Override
 		protected SingleResponse<User> doInBackground(final Void... params) {
 			return updateProfile(context, account_id, name, url, location, description);
@@ -1220,6 +1249,11 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 		public abstract ResponseList<DirectMessage> getDirectMessages(Twitter twitter, Paging paging)
 				throws TwitterException;
 
+		@Override
+		public int getPriority() {
+			return PRIORITY_HIGH;
+		}
+
 		@Override
 		protected List<TwitterListResponse<DirectMessage>> doInBackground(final Void... params) {
 
@@ -1284,7 +1318,8 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 	class GetHomeTimelineTask extends GetStatusesTask {
 
 		public GetHomeTimelineTask(final long[] account_ids, final long[] max_ids, final long[] since_ids) {
-			super(account_ids, max_ids, since_ids, TASK_TAG_GET_HOME_TIMELINE);
+			super(account_ids, max_ids, since_ids, TASK_TAG_GET_HOME_TIMELINE, BROADCAST_HOME_TIMELINE_REFRESHED,
+					PREFERENCE_KEY_SAVED_HOME_TIMELINE_ID);
 		}
 
 		@Override
@@ -1298,10 +1333,22 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 			return getTwitterInstance(mContext, account_id, true);
 		}
 
+		@Override
+		void onStatusesFetched(final StatusListResponse response) {
+			mAsyncTaskManager.add(new StoreHomeTimelineTask(Collections.singletonList(response), shouldSetMinId(),
+					!isMaxIdsValid(), getRefreshedBroadcast()), true);
+		}
+
 		@Override
 		protected void onPostExecute(final List<StatusListResponse> responses) {
 			super.onPostExecute(responses);
-			mAsyncTaskManager.add(new StoreHomeTimelineTask(responses, shouldSetMinId(), !isMaxIdsValid()), true);
+			if (!hasPublished()) {
+				// Nothing stored, but listeners still expect the refreshed
+				// broadcast.
+				mAsyncTaskManager.add(new StoreHomeTimelineTask(responses, shouldSetMinId(), !isMaxIdsValid(),
+						getRefreshedBroadcast()), true);
+			}
+			getRefreshedBroadcast().onFetchFinished();
 			mGetHomeTimelineTaskId = -1;
 		}
 
@@ -1344,7 +1391,8 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 	class GetMentionsTask extends GetStatusesTask {
 
 		public GetMentionsTask(final long[] account_ids, final long[] max_ids, final long[] since_ids) {
-			super(account_ids, max_ids, since_ids, TASK_TAG_GET_MENTIONS);
+			super(account_ids, max_ids, since_ids, TASK_TAG_GET_MENTIONS, BROADCAST_MENTIONS_REFRESHED,
+					PREFERENCE_KEY_SAVED_MENTIONS_LIST_ID);
 		}
 
 		@Override
@@ -1358,10 +1406,20 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 			return getTwitterInstance(mContext, account_id, true);
 		}
 
+		@Override
+		void onStatusesFetched(final StatusListResponse response) {
+			mAsyncTaskManager.add(new StoreMentionsTask(Collections.singletonList(response), shouldSetMinId(),
+					!isMaxIdsValid(), getRefreshedBroadcast()), true);
+		}
+
 		@Override
 		protected void onPostExecute(final List<StatusListResponse> responses) {
 			super.onPostExecute(responses);
-			mAsyncTaskManager.add(new StoreMentionsTask(responses, shouldSetMinId(), !isMaxIdsValid()), true);
+			if (!hasPublished()) {
+				mAsyncTaskManager.add(new StoreMentionsTask(responses, shouldSetMinId(), !isMaxIdsValid(),
+						getRefreshedBroadcast()), true);
+			}
+			getRefreshedBroadcast().onFetchFinished();
 			mGetMentionsTaskId = -1;
 		}
 
@@ -1424,15 +1482,31 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 
 	}
 
-	abstract class GetStatusesTask extends ManagedAsyncTask<Void, Void, List<StatusListResponse>> {
+	/**
+	 * Fetches statuses of all accounts concurrently, at most
+	 * {@link #PREFERENCE_KEY_MAX_CONCURRENT_REQUESTS} at a time. Each account
+	 * is given up after {@link #PREFERENCE_KEY_ACCOUNT_REQUEST_TIMEOUT}
+	 * seconds, and every response is published as soon as its account
+	 * finishes, see {@link #onStatusesFetched(StatusListResponse)}.
+	 */
+	abstract class GetStatusesTask extends ManagedAsyncTask<Void, StatusListResponse, List<StatusListResponse>> {
 
 		private final long[] account_ids, max_ids, since_ids;
-
-		public GetStatusesTask(final long[] account_ids, final long[] max_ids, final long[] since_ids, final String tag) {
+		private final RefreshedBroadcast refreshed_broadcast;
+		private boolean has_published;
+
+		/**
+		 * @param saved_min_id_key Preference key of the saved position, it's
+		 *            set to the lowest min id of this refresh.
+		 */
+		public GetStatusesTask(final long[] account_ids, final long[] max_ids, final long[] since_ids,
+				final String tag, final String refreshed_action, final String saved_min_id_key) {
 			super(mContext, mAsyncTaskManager, tag);
 			this.account_ids = account_ids;
 			this.max_ids = max_ids;
 			this.since_ids = since_ids;
+			refreshed_broadcast = new RefreshedBroadcast(refreshed_action, shouldSetMinId() ? saved_min_id_key
+					: null);
 		}
 
 		public abstract ResponseList<twitter4j.Status> getStatuses(Twitter twitter, Paging paging)
@@ -1440,45 +1514,77 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 
 		public abstract Twitter getTwitter(long account_id);
 
+		@Override
+		public int getPriority() {
+			return PRIORITY_HIGH;
+		}
+
 		@Override
 		protected List<StatusListResponse> doInBackground(final Void... params) {
 
 			final List<StatusListResponse> result = new ArrayList<StatusListResponse>();
 
-			if (account_ids == null) return result;
+			if (account_ids == null || account_ids.length == 0) return result;
 
-			int idx = 0;
 			final int load_item_limit = mPreferences.getInt(PREFERENCE_KEY_LOAD_ITEM_LIMIT,
 					PREFERENCE_DEFAULT_LOAD_ITEM_LIMIT);
-			for (final long account_id : account_ids) {
-				final Twitter twitter = getTwitter(account_id);
-				if (twitter != null) {
-					try {
-						final Paging paging = new Paging();
-						paging.setCount(load_item_limit);
-						long max_id = -1, since_id = -1;
-						if (isMaxIdsValid() && max_ids[idx] > 0) {
-							max_id = max_ids[idx];
-							paging.setMaxId(max_id);
+			final int max_requests = Math.max(1, mPreferences.getInt(PREFERENCE_KEY_MAX_CONCURRENT_REQUESTS,
+					PREFERENCE_DEFAULT_MAX_CONCURRENT_REQUESTS));
+			final long timeout = Math.max(1, mPreferences.getInt(PREFERENCE_KEY_ACCOUNT_REQUEST_TIMEOUT,
+					PREFERENCE_DEFAULT_ACCOUNT_REQUEST_TIMEOUT)) * 1000L;
+			final int accounts_count = account_ids.length;
+			final ExecutorService executor = Executors.newFixedThreadPool(Math.min(max_requests, accounts_count));
+			final CompletionService<StatusListResponse> completion = new ExecutorCompletionService<StatusListResponse>(
+					executor);
+			final Map<Future<StatusListResponse>, FetchStatusesCallable> pending = new HashMap<Future<StatusListResponse>, FetchStatusesCallable>();
+			try {
+				for (int idx = 0; idx < accounts_count; idx++) {
+					final long max_id = isMaxIdsValid() && max_ids[idx] > 0 ? max_ids[idx] : -1;
+					final long since_id = isSinceIdsValid() && since_ids[idx] > 0 ? since_ids[idx] : -1;
+					final FetchStatusesCallable callable = new FetchStatusesCallable(account_ids[idx], max_id,
+							since_id, load_item_limit);
+					pending.put(completion.submit(callable), callable);
+				}
+				while (!pending.isEmpty()) {
+					final Future<StatusListResponse> future = completion.poll(getNextTimeout(pending.values(),
+							timeout), TimeUnit.MILLISECONDS);
+					if (future != null) {
+						if (pending.remove(future) == null || future.isCancelled()) {
+							continue;
 						}
-						if (isSinceIdsValid() && since_ids[idx] > 0) {
-							since_id = since_ids[idx];
-							paging.setSinceId(since_id);
+						final StatusListResponse response = getResponse(future);
+						if (response == null) {
+							continue;
 						}
-						final ResponseList<twitter4j.Status> statuses = getStatuses(twitter, paging);
-						if (statuses != null) {
-							result.add(new StatusListResponse(account_id, max_id, since_id, load_item_limit, statuses,
-									null));
+						result.add(response);
+						if (response.list != null) {
+							publishProgress(response);
 						}
-					} catch (final TwitterException e) {
-						result.add(new StatusListResponse(account_id, -1, -1, load_item_limit, null, e));
+					} else {
+						cancelTimedOut(pending, timeout, result);
 					}
 				}
-				idx++;
+			} catch (final InterruptedException e) {
+				// Task was cancelled, give up all pending requests.
+			} finally {
+				executor.shutdownNow();
 			}
 			return result;
 		}
 
+		/**
+		 * Called on UI thread when statuses of an account are fetched.
+		 */
+		abstract void onStatusesFetched(StatusListResponse response);
+
+		@Override
+		protected void onCancelled() {
+			super.onCancelled();
+			// No more stores will be started, stores already started still
+			// send the refreshed broadcast when they finish.
+			refreshed_broadcast.onFetchFinished();
+		}
+
 		@Override
 		protected void onPostExecute(final List<StatusListResponse> result) {
 			super.onPostExecute(result);
@@ -1489,6 +1595,105 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 			}
 		}
 
+		@Override
+		protected void onProgressUpdate(final StatusListResponse... values) {
+			super.onProgressUpdate(values);
+			for (final StatusListResponse response : values) {
+				onStatusesFetched(response);
+				has_published = true;
+			}
+		}
+
+		/**
+		 * @return Broadcast shared by all store tasks of this refresh.
+		 */
+		final RefreshedBroadcast getRefreshedBroadcast() {
+			return refreshed_broadcast;
+		}
+
+		/**
+		 * @return true if any response was published during this task.
+		 */
+		final boolean hasPublished() {
+			return has_published;
+		}
+
+		private void cancelTimedOut(final Map<Future<StatusListResponse>, FetchStatusesCallable> pending,
+				final long timeout, final List<StatusListResponse> result) {
+			final long now = System.currentTimeMillis();
+			final Iterator<Entry<Future<StatusListResponse>, FetchStatusesCallable>> it = pending.entrySet()
+					.iterator();
+			while (it.hasNext()) {
+				final Entry<Future<StatusListResponse>, FetchStatusesCallable> entry = it.next();
+				final FetchStatusesCallable callable = entry.getValue();
+				final long start_time = callable.start_time;
+				if (start_time > 0 && now - start_time >= timeout) {
+					entry.getKey().cancel(true);
+					it.remove();
+					result.add(new StatusListResponse(callable.account_id, -1, -1, callable.load_item_limit, null,
+							new TimeoutException("Timed out fetching statuses for account " + callable.account_id)));
+				}
+			}
+		}
+
+		private long getNextTimeout(final Collection<FetchStatusesCallable> pending, final long timeout) {
+			final long now = System.currentTimeMillis();
+			long next = timeout;
+			for (final FetchStatusesCallable callable : pending) {
+				final long start_time = callable.start_time;
+				if (start_time > 0) {
+					next = Math.min(next, start_time + timeout - now);
+				}
+			}
+			return Math.max(1, next);
+		}
+
+		private StatusListResponse getResponse(final Future<StatusListResponse> future) throws InterruptedException {
+			try {
+				return future.get();
+			} catch (final ExecutionException e) {
+				Log.w(LOGTAG, e.getCause());
+				return null;
+			}
+		}
+
+		final class FetchStatusesCallable implements Callable<StatusListResponse> {
+
+			final long account_id, max_id, since_id;
+			final int load_item_limit;
+			volatile long start_time;
+
+			FetchStatusesCallable(final long account_id, final long max_id, final long since_id,
+					final int load_item_limit) {
+				this.account_id = account_id;
+				this.max_id = max_id;
+				this.since_id = since_id;
+				this.load_item_limit = load_item_limit;
+			}
+
+			@Override
+			public StatusListResponse call() {
+				start_time = System.currentTimeMillis();
+				final Twitter twitter = getTwitter(account_id);
+				if (twitter == null) return null;
+				try {
+					final Paging paging = new Paging();
+					paging.setCount(load_item_limit);
+					if (max_id > 0) {
+						paging.setMaxId(max_id);
+					}
+					if (since_id > 0) {
+						paging.setSinceId(since_id);
+					}
+					final ResponseList<twitter4j.Status> statuses = getStatuses(twitter, paging);
+					if (statuses == null) return null;
+					return new StatusListResponse(account_id, max_id, since_id, load_item_limit, statuses, null);
+				} catch (final TwitterException e) {
+					return new StatusListResponse(account_id, -1, -1, load_item_limit, null, e);
+				}
+			}
+		}
+
 		final boolean isMaxIdsValid() {
 			return max_ids != null && max_ids.length == account_ids.length;
 		}
@@ -1531,6 +1736,76 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 
 	}
 
+	/**
+	 * Refreshed broadcast of one timeline refresh.</br> </br> Statuses of
+	 * each account are stored by a separate task as soon as they are fetched,
+	 * but listeners reload the whole timeline on the broadcast, so it's only
+	 * sent once, after the fetch and all stores started by it finished. The
+	 * saved min id is written at the same time, stores finish in any order, so
+	 * only then the lowest one is known. Only used on UI thread.
+	 */
+	final class RefreshedBroadcast {
+
+		private final String action, saved_min_id_key;
+		private final Bundle extras = new Bundle();
+		private int pending_stores;
+		private boolean fetch_finished, stored, sent;
+
+		/**
+		 * @param saved_min_id_key Preference key to save the min id to, or
+		 *            null if this refresh doesn't set it.
+		 */
+		RefreshedBroadcast(final String action, final String saved_min_id_key) {
+			this.action = action;
+			this.saved_min_id_key = saved_min_id_key;
+		}
+
+		void onFetchFinished() {
+			fetch_finished = true;
+			sendIfDone();
+		}
+
+		void onStoreStarted() {
+			pending_stores++;
+		}
+
+		/**
+		 * @param store_extras Result of the store, or null if it was
+		 *            cancelled.
+		 */
+		void onStoreFinished(final Bundle store_extras) {
+			pending_stores--;
+			if (store_extras != null) {
+				stored = true;
+				// Succeeded if any store did, the lowest min id wins.
+				if (store_extras.getBoolean(INTENT_KEY_SUCCEED)) {
+					extras.putBoolean(INTENT_KEY_SUCCEED, true);
+				}
+				final long min_id = store_extras.getLong(INTENT_KEY_MIN_ID, -1);
+				final long merged_min_id = extras.getLong(INTENT_KEY_MIN_ID, -1);
+				if (min_id > 0 && (merged_min_id <= 0 || min_id < merged_min_id)) {
+					extras.putLong(INTENT_KEY_MIN_ID, min_id);
+				}
+			}
+			sendIfDone();
+		}
+
+		private void sendIfDone() {
+			if (sent || !fetch_finished || pending_stores > 0) return;
+			sent = true;
+			if (!extras.containsKey(INTENT_KEY_SUCCEED)) {
+				extras.putBoolean(INTENT_KEY_SUCCEED, false);
+			}
+			if (saved_min_id_key != null && stored) {
+				final long min_id = extras.getLong(INTENT_KEY_MIN_ID, -1);
+				extras.putLong(INTENT_KEY_MIN_ID, min_id);
+				mPreferences.edit().putLong(saved_min_id_key, min_id).commit();
+			}
+			mContext.sendBroadcast(new Intent(action).putExtras(extras));
+		}
+
+	}
+
 	class ReportMultiSpamTask extends ManagedAsyncTask<Void, Void, ListResponse<Long>> {
 
 		private final long account_id;
@@ -1749,6 +2024,11 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 			this.uri = uri.buildUpon().appendQueryParameter(QUERY_PARAM_NOTIFY, String.valueOf(notify)).build();
 		}
 
+		@Override
+		public int getPriority() {
+			return PRIORITY_HIGH;
+		}
+
 		@Override
 		protected SingleResponse<Bundle> doInBackground(final Void... args) {
 
@@ -1800,8 +2080,8 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 	class StoreHomeTimelineTask extends StoreStatusesTask {
 
 		public StoreHomeTimelineTask(final List<StatusListResponse> result, final boolean should_set_min_id,
-				final boolean notify) {
-			super(result, Statuses.CONTENT_URI, should_set_min_id, notify, TASK_TAG_STORE_HOME_TIMELINE);
+				final boolean notify, final RefreshedBroadcast refreshed_broadcast) {
+			super(result, Statuses.CONTENT_URI, should_set_min_id, notify, refreshed_broadcast, TASK_TAG_STORE_HOME_TIMELINE);
 		}
 
 		@Override
@@ -1814,9 +2094,8 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 				final long min_id = response != null && response.data != null ? response.data.getLong(
 						INTENT_KEY_MIN_ID, -1) : -1;
 				extras.putLong(INTENT_KEY_MIN_ID, min_id);
-				mPreferences.edit().putLong(PREFERENCE_KEY_SAVED_HOME_TIMELINE_ID, min_id).commit();
 			}
-			mContext.sendBroadcast(new Intent(BROADCAST_HOME_TIMELINE_REFRESHED).putExtras(extras));
+			onStoreFinished(extras);
 			super.onPostExecute(response);
 		}
 
@@ -1833,8 +2112,8 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 	class StoreMentionsTask extends StoreStatusesTask {
 
 		public StoreMentionsTask(final List<StatusListResponse> result, final boolean should_set_min_id,
-				final boolean notify) {
-			super(result, Mentions.CONTENT_URI, should_set_min_id, notify, TASK_TAG_STORE_MENTIONS);
+				final boolean notify, final RefreshedBroadcast refreshed_broadcast) {
+			super(result, Mentions.CONTENT_URI, should_set_min_id, notify, refreshed_broadcast, TASK_TAG_STORE_MENTIONS);
 		}
 
 		@Override
@@ -1847,9 +2126,8 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 				final long min_id = response != null && response.data != null ? response.data.getLong(
 						INTENT_KEY_MIN_ID, -1) : -1;
 				extras.putLong(INTENT_KEY_MIN_ID, min_id);
-				mPreferences.edit().putLong(PREFERENCE_KEY_SAVED_MENTIONS_LIST_ID, min_id).commit();
 			}
-			mContext.sendBroadcast(new Intent(BROADCAST_MENTIONS_REFRESHED).putExtras(extras));
+			onStoreFinished(extras);
 			super.onPostExecute(response);
 		}
 
@@ -1905,24 +2183,46 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 		private final List<StatusListResponse> responses;
 		private final Uri uri;
 		private final boolean should_set_min_id;
+		private final RefreshedBroadcast refreshed_broadcast;
 		private final ArrayList<ContentValues> all_statuses = new ArrayList<ContentValues>();
+		private boolean store_finished;
 
 		public StoreStatusesTask(final List<StatusListResponse> result, final Uri uri, final boolean should_set_min_id,
-				final boolean notify, final String tag) {
+				final boolean notify, final RefreshedBroadcast refreshed_broadcast, final String tag) {
 			super(mContext, mAsyncTaskManager, tag);
 			responses = result;
 			this.should_set_min_id = should_set_min_id;
+			this.refreshed_broadcast = refreshed_broadcast;
 			this.uri = uri.buildUpon().appendQueryParameter(QUERY_PARAM_NOTIFY, String.valueOf(notify)).build();
+			refreshed_broadcast.onStoreStarted();
 		}
 
 		public boolean shouldSetMinId() {
 			return should_set_min_id;
 		}
 
+		/**
+		 * Reports this store to the refreshed broadcast, it's sent and the
+		 * min id in {@code extras} saved if this is the last store of the
+		 * refresh.
+		 */
+		final void onStoreFinished(final Bundle extras) {
+			if (store_finished) return;
+			store_finished = true;
+			refreshed_broadcast.onStoreFinished(extras);
+		}
+
+		@Override
+		public int getPriority() {
+			return PRIORITY_HIGH;
+		}
+
 		@Override
 		protected SingleResponse<Bundle> doInBackground(final Void... args) {
 			boolean succeed = false;
 
+			final StatusRenderCache render_cache = TwidereApplication.getInstance(mContext).getStatusRenderCache();
+			final int render_options = StatusRenderCache.getOptions(mContext);
 			final ArrayList<Long> newly_inserted_ids = new ArrayList<Long>();
 			for (final StatusListResponse response : responses) {
 				final long account_id = response.account_id;
@@ -1953,31 +2253,22 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 
 				}
 
-				// Delete all rows conflicting before new data inserted.
-
+				// Rows conflicting with new data are updated in place by the
+				// provider, so nothing has to be deleted beforehand.
 				final ArrayList<Long> account_newly_inserted = new ArrayList<Long>();
 				account_newly_inserted.addAll(status_ids);
 				account_newly_inserted.removeAll(ids_in_db);
 				newly_inserted_ids.addAll(account_newly_inserted);
-				final StringBuilder delete_where = new StringBuilder();
-				final String ids_string = ListUtils.toString(status_ids, ',', true);
-				delete_where.append(Statuses.ACCOUNT_ID + " = " + account_id);
-				delete_where.append(" AND ");
-				delete_where.append("(");
-				delete_where.append(Statuses.STATUS_ID + " IN ( " + ids_string + " ) ");
-				delete_where.append(" OR ");
-				delete_where.append(Statuses.RETWEET_ID + " IN ( " + ids_string + " ) ");
-				delete_where.append(")");
-				final Uri delete_uri = appendQueryParameters(uri, new NameValuePairImpl(QUERY_PARAM_NOTIFY, false));
-				final int rows_deleted = mResolver.delete(delete_uri, delete_where.toString(), null);
 				// UCD
 				final String UCD_new_status_ids = ListUtils.toString(account_newly_inserted, ',', true);
 				ProfilingUtil.profile(mContext, account_id, "Download tweets, " + UCD_new_status_ids);
 				all_statuses.addAll(values_list);
 				// Insert previously fetched items.
 				final Uri insert_query = appendQueryParameters(uri, new NameValuePairImpl(QUERY_PARAM_NEW_ITEMS_COUNT,
-						newly_inserted_ids.size() - rows_deleted), new NameValuePairImpl(QUERY_PARAM_NOTIFY, false));
+						account_newly_inserted.size()), new NameValuePairImpl(QUERY_PARAM_NOTIFY, false));
 				mResolver.bulkInsert(insert_query, values_list.toArray(new ContentValues[values_list.size()]));
+				// Render new rows now, so they can be shown without any work.
+				render_cache.prepare(values_list, render_options);
 
 				// Insert a gap.
 				// TODO make sure it will not have bugs.
@@ -1999,13 +2290,18 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 			}
 			final Bundle bundle = new Bundle();
 			bundle.putBoolean(INTENT_KEY_SUCCEED, succeed);
-			getAllStatusesIds(mContext, uri);
 			if (should_set_min_id && newly_inserted_ids.size() > 0) {
 				bundle.putLong(INTENT_KEY_MIN_ID, Collections.min(newly_inserted_ids));
 			}
 			return new TwitterSingleResponse<Bundle>(-1, bundle, null);
 		}
 
+		@Override
+		protected void onCancelled() {
+			super.onCancelled();
+			onStoreFinished(null);
+		}
+
 		@Override
 		protected void onPreExecute() {
 			super.onPreExecute();
@@ -2076,6 +2372,7 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 
 		private final ImageUploaderInterface uploader;
 		private final TweetShortenerInterface shortener;
+		private final ImageTranscoder transcoder;
 
 		private final Validator validator = new Validator();
 		private final long[] account_ids;
@@ -2085,6 +2382,7 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 		private final Uri image_uri;
 		private final long in_reply_to;
 		private final boolean use_uploader, use_shortener, is_possibly_sensitive, delete_image;
+		private File transcoded_file;
 
 		public UpdateStatusTask(final long[] account_ids, final String content, final ParcelableLocation location,
 				final Uri image_uri, final long in_reply_to, final boolean is_possibly_sensitive,
@@ -2097,6 +2395,7 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 			uploader = use_uploader ? ImageUploaderInterface.getInstance(app, uploader_component) : null;
 			use_shortener = !isEmpty(shortener_component);
 			shortener = use_shortener ? TweetShortenerInterface.getInstance(app, shortener_component) : null;
+			transcoder = app.getImageTranscoder();
 			this.account_ids = account_ids != null ? account_ids : new long[0];
 			this.content = content;
 			this.location = location;
@@ -2132,7 +2431,13 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 				if (use_shortener && shortener == null) throw new TweetShortenerNotFoundException();
 
 				final String image_path = getImagePathFromUri(mContext, image_uri);
-				final File image_file = image_path != null ? new File(image_path) : null;
+				final File original_file = image_path != null ? new File(image_path) : null;
+				// Uploader extensions run in their own process, so they need a
+				// file they can read.
+				final File image_file = transcoder.transcode(original_file, use_uploader);
+				if (image_file != original_file) {
+					transcoded_file = image_file;
+				}
 
 				final Uri upload_result_uri;
 				try {
@@ -2181,17 +2486,10 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 				}
 				status.setPossiblySensitive(is_possibly_sensitive);
 
-				for (final long account_id : account_ids) {
-					final Twitter twitter = getTwitterInstance(mContext, account_id, false, true);
-					if (twitter != null) {
-						try {
-							result.add(new TwitterSingleResponse<twitter4j.Status>(account_id, twitter
-									.updateStatus(status), null));
-						} catch (final TwitterException e) {
-							result.add(new TwitterSingleResponse<twitter4j.Status>(account_id, null, e));
-						}
-					}
-				}
+				// Media can only be attached with update_with_media, so every
+				// account sends the (already transcoded) file itself, images
+				// hosted by an uploader are uploaded once above.
+				updateStatuses(status, result);
 			} catch (final UpdateStatusException e) {
 				for (final long account_id : account_ids) {
 					result.add(new TwitterSingleResponse<twitter4j.Status>(account_id, null, e));
@@ -2229,6 +2527,11 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 					if (path != null) {
 						new File(path).delete();
 					}
+					// The original is gone, the transcoded copy can't be
+					// reused anymore.
+					if (transcoded_file != null) {
+						transcoded_file.delete();
+					}
 				}
 			} else {
 				// If the status is a duplicate, there's no need to save it to
@@ -2247,6 +2550,7 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 		}
 
 		private void saveDrafts(final List<Long> account_ids) {
+			if (account_ids.isEmpty()) return;
 			final ContentValues values = new ContentValues();
 			values.put(Drafts.ACCOUNT_IDS, ListUtils.toString(account_ids, ';', false));
 			values.put(Drafts.IN_REPLY_TO_STATUS_ID, in_reply_to);
@@ -2264,6 +2568,74 @@ public class AsyncTwitterWrapper extends TwitterWrapper {
 			mNotificationManager.notify(NOTIFICATION_ID_DRAFTS, notification);
 		}
 
+		/**
+		 * Posts {@code status} with all accounts, limited by the max
+		 * concurrent requests preference. Responses are added to
+		 * {@code result} in the order accounts finish, and reported together
+		 * in {@link #onPostExecute(List)}. Posting isn't timed out, since a
+		 * cancelled request may still have been posted.
+		 */
+		private void updateStatuses(final StatusUpdate status,
+				final List<TwitterSingleResponse<twitter4j.Status>> result) {
+			final int max_requests = Math.max(1, mPreferences.getInt(PREFERENCE_KEY_MAX_CONCURRENT_REQUESTS,
+					PREFERENCE_DEFAULT_MAX_CONCURRENT_REQUESTS));
+			final ExecutorService executor = Executors.newFixedThreadPool(Math.min(max_requests, account_ids.length));
+			final CompletionService<TwitterSingleResponse<twitter4j.Status>> completion = new ExecutorCompletionService<TwitterSingleResponse<twitter4j.Status>>(
+					executor);
+			final Map<Future<TwitterSingleResponse<twitter4j.Status>>, Long> pending = new HashMap<Future<TwitterSingleResponse<twitter4j.Status>>, Long>();
+			try {
+				for (final long account_id : account_ids) {
+					pending.put(completion.submit(new UpdateStatusCallable(account_id, status)), account_id);
+				}
+				while (!pending.isEmpty()) {
+					final Future<TwitterSingleResponse<twitter4j.Status>> future = completion.take();
+					final Long account_id = pending.remove(future);
+					if (account_id == null) {
+						continue;
+					}
+					TwitterSingleResponse<twitter4j.Status> response;
+					try {
+						response = future.get();
+					} catch (final ExecutionException e) {
+						Log.w(LOGTAG, e.getCause());
+						final Throwable cause = e.getCause();
+						response = new TwitterSingleResponse<twitter4j.Status>(account_id, null,
+								cause instanceof Exception ? (Exception) cause : e);
+					}
+					if (response == null) {
+						continue;
+					}
+					result.add(response);
+				}
+			} catch (final InterruptedException e) {
+				// Task was cancelled, drafts are saved in onCancelled().
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+
+		final class UpdateStatusCallable implements Callable<TwitterSingleResponse<twitter4j.Status>> {
+
+			final long account_id;
+			final StatusUpdate status;
+
+			UpdateStatusCallable(final long account_id, final StatusUpdate status) {
+				this.account_id = account_id;
+				this.status = status;
+			}
+
+			@Override
+			public TwitterSingleResponse<twitter4j.Status> call() {
+				final Twitter twitter = getTwitterInstance(mContext, account_id, false, true);
+				if (twitter == null) return null;
+				try {
+					return new TwitterSingleResponse<twitter4j.Status>(account_id, twitter.updateStatus(status), null);
+				} catch (final TwitterException e) {
+					return new TwitterSingleResponse<twitter4j.Status>(account_id, null, e);
+				}
+			}
+		}
+
 		class ImageUploaderNotFoundException extends UpdateStatusException {
 			private static final long serialVersionUID = 1041685850011544106L;
 
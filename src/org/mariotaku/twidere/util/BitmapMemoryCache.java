@@ -0,0 +1,155 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import org.mariotaku.twidere.Constants;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+/**
+ * Byte-bounded LRU cache for decoded bitmaps, shared by all image loaders of
+ * the application.</br> </br> Every entry is accounted by its real pixel size,
+ * so the cache never holds more than the share of the heap it was created
+ * with. Instead of wiping everything on a timer, it is trimmed in stages when
+ * the system reports memory pressure, see {@link #trimMemory(int)}.
+ *
+ * @author mariotaku
+ */
+public class BitmapMemoryCache implements Constants {
+
+	private static final String LOGTAG = BitmapMemoryCache.class.getSimpleName();
+
+	/**
+	 * Default share of the per-app memory limit used by the cache.
+	 */
+	public static final float DEFAULT_HEAP_SHARE = 0.125f;
+
+	private final LruCache<String, Bitmap> mCache;
+
+	public BitmapMemoryCache(final int max_size_bytes) {
+		if (DEBUG) {
+			Log.i(LOGTAG, "Initialized with " + max_size_bytes + " bytes");
+		}
+		mCache = new LruCache<String, Bitmap>(Math.max(1, max_size_bytes)) {
+
+			@Override
+			protected int sizeOf(final String key, final Bitmap value) {
+				return ImageLoaderUtils.getBitmapSize(value);
+			}
+
+		};
+	}
+
+	public void clear() {
+		mCache.evictAll();
+	}
+
+	public Bitmap get(final String key) {
+		if (key == null) return null;
+		final Bitmap bitmap = mCache.get(key);
+		if (bitmap != null && bitmap.isRecycled()) {
+			// Someone recycled a shared bitmap, it can't be used anymore.
+			mCache.remove(key);
+			return null;
+		}
+		return bitmap;
+	}
+
+	public int getEvictionCount() {
+		return mCache.evictionCount();
+	}
+
+	public int getHitCount() {
+		return mCache.hitCount();
+	}
+
+	public int getMaxSize() {
+		return mCache.maxSize();
+	}
+
+	public int getMissCount() {
+		return mCache.missCount();
+	}
+
+	/**
+	 * @return Size of all cached bitmaps, in bytes.
+	 */
+	public int getSize() {
+		return mCache.size();
+	}
+
+	public void put(final String key, final Bitmap bitmap) {
+		if (key == null || bitmap == null || bitmap.isRecycled()) return;
+		mCache.put(key, bitmap);
+	}
+
+	public void remove(final String key) {
+		if (key == null) return;
+		mCache.remove(key);
+	}
+
+	@Override
+	public String toString() {
+		return mCache.toString() + "[size=" + mCache.size() + ",evictions=" + mCache.evictionCount() + "]";
+	}
+
+	/**
+	 * Evicts entries according to the level passed to
+	 * {@link ComponentCallbacks2#onTrimMemory(int)}. Least recently used
+	 * bitmaps go first, a higher level never keeps more than a lower one, and
+	 * the cache is only emptied completely at
+	 * {@link ComponentCallbacks2#TRIM_MEMORY_COMPLETE}, when the process is
+	 * about to be killed.
+	 *
+	 * @param level Memory trim level
+	 */
+	public void trimMemory(final int level) {
+		if (DEBUG) {
+			Log.d(LOGTAG, "Trim memory with level " + level + ", " + this);
+		}
+		final int max_size = mCache.maxSize();
+		if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+			mCache.evictAll();
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+			mCache.trimToSize(max_size / 8);
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+			// Also covers UI_HIDDEN and BACKGROUND, which are higher levels
+			// and must not keep more than RUNNING_CRITICAL does.
+			mCache.trimToSize(max_size / 4);
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+			mCache.trimToSize(max_size / 2);
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+			mCache.trimToSize(max_size * 3 / 4);
+		}
+	}
+
+	/**
+	 * Creates a cache which takes {@code share} of the per-app memory limit.
+	 */
+	public static BitmapMemoryCache newInstance(final Context context, final float share) {
+		final int mem_class = ImageLoaderUtils.getMemoryClass(context);
+		return new BitmapMemoryCache(Math.round(mem_class * 1024 * 1024 * share));
+	}
+
+}
@@ -20,14 +20,7 @@
 package org.mariotaku.twidere.util;
 
 import static android.graphics.Color.WHITE;
-import static android.graphics.Color.argb;
-import static android.graphics.Color.blue;
 import static android.graphics.Color.colorToHSV;
-import static android.graphics.Color.green;
-import static android.graphics.Color.red;
-
-import java.util.Collections;
-import java.util.HashMap;
 
 import android.graphics.Bitmap;
 import android.graphics.Color;
@@ -40,7 +33,8 @@ import android.graphics.Color;
  * <br>
  * 
  *         <b>Important</b>: I recommand using this method in different thread.
- *         Or it may makes your application laggy.
+ *         Or it may makes your application laggy. {@link ImageColorService}
+ *         runs it in background and caches results.
  */
 public final class ColorAnalyser {
 
@@ -83,25 +77,30 @@ public final class ColorAnalyser {
 
 		if (bitmap == null) return def;
 
-		final HashMap<Float, Integer> colors = new HashMap<Float, Integer>();
-
 		final Bitmap resized = Bitmap.createScaledBitmap(bitmap, width, height, false);
 
 		final int resized_height = resized.getHeight(), resized_width = resized.getWidth();
+		final int[] pixels = new int[resized_width * resized_height];
+		resized.getPixels(pixels, 0, resized_width, 0, 0, resized_width, resized_height);
+		if (resized != bitmap) {
+			resized.recycle();
+		}
+		if (pixels.length == 0) return def;
 
-		for (int y = 0; y < resized_height; y++) {
-			for (int x = 0; x < resized_width; x++) {
-				final int temp_color = resized.getPixel(x, y);
-				final int color = argb(0xFF, red(temp_color), green(temp_color), blue(temp_color));
-				final float[] hsv = new float[3];
-				colorToHSV(color, hsv);
-				final float score = (hsv[1] * hsv[1] + 0.001f) * (hsv[2] * hsv[2]);
-				colors.put(score, color);
+		// Only the best scored color is needed, keep it while iterating,
+		// ties go to the later pixel.
+		final float[] hsv = new float[3];
+		float max_score = -1;
+		int main_color = def;
+		for (final int pixel : pixels) {
+			final int color = pixel | 0xFF000000;
+			colorToHSV(color, hsv);
+			final float score = (hsv[1] * hsv[1] + 0.001f) * (hsv[2] * hsv[2]);
+			if (score >= max_score) {
+				max_score = score;
+				main_color = color;
 			}
 		}
-
-		resized.recycle();
-		if (colors.size() == 0) return def;
-		return colors.get(Collections.max(colors.keySet()));
+		return main_color;
 	}
 }
@@ -0,0 +1,294 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Compact, versioned binary format for cached loader data.</br> </br> A file
+ * starts with a magic number and format version, followed by a table of all
+ * distinct strings, so repeated names, URLs and sources are stored only once.
+ * Records refer to strings by index, numbers are stored as variable length
+ * integers, and every record is prefixed with its length, so records written
+ * by a newer minor version with extra trailing fields can still be read.
+ * Files are written through a file channel and read from a memory mapped
+ * buffer.
+ *
+ * @author mariotaku
+ */
+public final class CompactCodec {
+
+	private static final int MAGIC = 0x54574443; // "TWDC"
+
+	/**
+	 * Incremented when existing fields change, files with another version are
+	 * rejected. Appending fields to the end of a record doesn't need a new
+	 * version.
+	 */
+	public static final int VERSION = 1;
+
+	private static final String CHARSET = "UTF-8";
+
+	private CompactCodec() {
+		throw new AssertionError("You are trying to create an instance for this utility class!");
+	}
+
+	/**
+	 * Implemented by classes which can be written as a record.
+	 */
+	public static interface Encodable {
+
+		void writeTo(Writer out);
+
+	}
+
+	public static final class Reader {
+
+		private final ByteBuffer mBuffer;
+		private final String[] mStrings;
+		private int mRecordEnd = -1;
+
+		private Reader(final ByteBuffer buffer) throws IOException {
+			mBuffer = buffer;
+			try {
+				if (buffer.getInt() != MAGIC) throw new IOException("Not a compact codec file");
+				final int version = buffer.get();
+				if (version != VERSION) throw new IOException("Unsupported version " + version);
+				final int strings_count = readInt();
+				if (strings_count < 0 || strings_count > buffer.remaining())
+					throw new IOException("Invalid string table size " + strings_count);
+				mStrings = new String[strings_count];
+				byte[] bytes = new byte[256];
+				for (int i = 0; i < strings_count; i++) {
+					final int length = readInt();
+					if (length < 0 || length > buffer.remaining()) throw new IOException("Invalid string length");
+					if (length > bytes.length) {
+						bytes = new byte[Math.max(length, bytes.length * 2)];
+					}
+					buffer.get(bytes, 0, length);
+					mStrings[i] = new String(bytes, 0, length, CHARSET);
+				}
+			} catch (final BufferUnderflowException e) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+
+		/**
+		 * Starts reading a record, call {@link #endRecord()} after reading
+		 * all known fields.
+		 */
+		public void beginRecord() throws IOException {
+			final int length = readInt();
+			if (length < 0 || length > mBuffer.remaining()) throw new IOException("Invalid record length " + length);
+			mRecordEnd = mBuffer.position() + length;
+		}
+
+		/**
+		 * Skips fields of the current record which this version doesn't know.
+		 */
+		public void endRecord() throws IOException {
+			if (mRecordEnd < mBuffer.position()) throw new IOException("Record overflow");
+			mBuffer.position(mRecordEnd);
+			mRecordEnd = -1;
+		}
+
+		public boolean readBoolean() throws IOException {
+			return readLong() != 0;
+		}
+
+		public double readDouble() throws IOException {
+			try {
+				return Double.longBitsToDouble(mBuffer.getLong());
+			} catch (final BufferUnderflowException e) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+
+		public int readInt() throws IOException {
+			return (int) readLong();
+		}
+
+		public long readLong() throws IOException {
+			long raw = 0;
+			try {
+				for (int shift = 0; shift < 64; shift += 7) {
+					final byte b = mBuffer.get();
+					raw |= (long) (b & 0x7F) << shift;
+					if ((b & 0x80) == 0) return raw >>> 1 ^ -(raw & 1);
+				}
+			} catch (final BufferUnderflowException e) {
+				throw new IOException("Unexpected end of file");
+			}
+			throw new IOException("Malformed variable length integer");
+		}
+
+		public String readString() throws IOException {
+			final int index = readInt();
+			if (index == 0) return null;
+			if (index < 0 || index > mStrings.length) throw new IOException("Invalid string index " + index);
+			return mStrings[index - 1];
+		}
+
+		public static Reader open(final File file) throws IOException {
+			final RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				final FileChannel channel = raf.getChannel();
+				// Mapping stays valid after the channel is closed.
+				return new Reader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			} finally {
+				raf.close();
+			}
+		}
+	}
+
+	public static final class Writer {
+
+		private final HashMap<String, Integer> mStringIndices = new HashMap<String, Integer>();
+		private final ArrayList<String> mStrings = new ArrayList<String>();
+
+		private byte[] mBuffer = new byte[8192];
+		private int mLength;
+		private int mRecordStart = -1;
+
+		public void beginRecord() {
+			// Length is patched in endRecord(), as a fixed four bytes varint.
+			ensureCapacity(4);
+			mRecordStart = mLength;
+			mLength += 4;
+		}
+
+		public void endRecord() {
+			final int length = mLength - mRecordStart - 4;
+			final long zigzag = (long) length << 1;
+			for (int i = 0; i < 4; i++) {
+				final int b = (int) (zigzag >>> 7 * i & 0x7F);
+				mBuffer[mRecordStart + i] = (byte) (i < 3 ? b | 0x80 : b);
+			}
+			mRecordStart = -1;
+		}
+
+		public void writeBoolean(final boolean value) {
+			writeLong(value ? 1 : 0);
+		}
+
+		public void writeDouble(final double value) {
+			final long bits = Double.doubleToLongBits(value);
+			ensureCapacity(8);
+			for (int i = 7; i >= 0; i--) {
+				mBuffer[mLength++] = (byte) (bits >>> i * 8);
+			}
+		}
+
+		public void writeInt(final int value) {
+			writeLong(value);
+		}
+
+		/**
+		 * Writes zigzag encoded variable length integer, so small negative
+		 * values like -1 take a single byte too.
+		 */
+		public void writeLong(final long value) {
+			ensureCapacity(10);
+			long zigzag = value << 1 ^ value >> 63;
+			while ((zigzag & ~0x7FL) != 0) {
+				mBuffer[mLength++] = (byte) (zigzag & 0x7F | 0x80);
+				zigzag >>>= 7;
+			}
+			mBuffer[mLength++] = (byte) zigzag;
+		}
+
+		public void writeString(final String value) {
+			if (value == null) {
+				writeInt(0);
+				return;
+			}
+			Integer index = mStringIndices.get(value);
+			if (index == null) {
+				index = mStrings.size();
+				mStrings.add(value);
+				mStringIndices.put(value, index);
+			}
+			writeInt(index + 1);
+		}
+
+		public void writeTo(final File file) throws IOException {
+			final Writer header = new Writer();
+			header.ensureCapacity(5);
+			final byte[] magic = header.mBuffer;
+			magic[0] = (byte) (MAGIC >>> 24);
+			magic[1] = (byte) (MAGIC >>> 16);
+			magic[2] = (byte) (MAGIC >>> 8);
+			magic[3] = (byte) MAGIC;
+			magic[4] = (byte) VERSION;
+			header.mLength = 5;
+			header.writeInt(mStrings.size());
+			for (final String string : mStrings) {
+				header.writeBytes(getBytes(string));
+			}
+			final FileOutputStream fos = new FileOutputStream(file);
+			try {
+				final FileChannel channel = fos.getChannel();
+				write(channel, ByteBuffer.wrap(header.mBuffer, 0, header.mLength));
+				write(channel, ByteBuffer.wrap(mBuffer, 0, mLength));
+			} finally {
+				fos.close();
+			}
+		}
+
+		private void ensureCapacity(final int extra) {
+			if (mLength + extra <= mBuffer.length) return;
+			final byte[] buffer = new byte[Math.max(mLength + extra, mBuffer.length * 2)];
+			System.arraycopy(mBuffer, 0, buffer, 0, mLength);
+			mBuffer = buffer;
+		}
+
+		private void writeBytes(final byte[] bytes) {
+			writeInt(bytes.length);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, mBuffer, mLength, bytes.length);
+			mLength += bytes.length;
+		}
+
+		private static byte[] getBytes(final String string) {
+			try {
+				return string.getBytes(CHARSET);
+			} catch (final UnsupportedEncodingException e) {
+				// UTF-8 is always supported.
+				throw new AssertionError(e);
+			}
+		}
+
+		private static void write(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,223 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import static org.mariotaku.twidere.util.Utils.getAccountIds;
+import static org.mariotaku.twidere.util.Utils.notifyForUpdatedUri;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.provider.TweetStore;
+import org.mariotaku.twidere.provider.TweetStore.DirectMessages;
+import org.mariotaku.twidere.provider.TweetStore.Statuses;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+import android.net.Uri;
+import android.provider.BaseColumns;
+import android.util.Log;
+
+/**
+ * Removes items exceeding the database item limit.</br> </br> For each
+ * account, rows older than the newest {@code item_limit} ones are found with
+ * a single indexed lookup of the watermark id, then deleted oldest first in
+ * small batches, each one in its own transaction, so other writers are never
+ * blocked for long. Cache tables are trimmed by age, rows inserted earliest go
+ * first.
+ *
+ * @author mariotaku
+ */
+public final class DatabaseCompactor implements Constants {
+
+	private static final String LOGTAG = DatabaseCompactor.class.getSimpleName();
+
+	private static final int BATCH_SIZE = 200;
+
+	private final Context mContext;
+	private final SQLiteDatabase mDatabase;
+	private final Set<String> mAffectedTables = new HashSet<String>();
+
+	public DatabaseCompactor(final Context context, final SQLiteDatabase database) {
+		mContext = context;
+		mDatabase = database;
+	}
+
+	/**
+	 * Runs the compaction, it may take a while so never call this on UI
+	 * thread.
+	 */
+	public Result compact() {
+		final int item_limit = mContext.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE).getInt(
+				PREFERENCE_KEY_DATABASE_ITEM_LIMIT, PREFERENCE_DEFAULT_DATABASE_ITEM_LIMIT);
+		final int cache_limit = (int) (Math.sqrt(item_limit) * 100);
+		final long start = System.currentTimeMillis();
+		final long free_pages_before = queryPragma("freelist_count");
+		mAffectedTables.clear();
+		int rows = 0;
+		for (final long account_id : getAccountIds(mContext)) {
+			rows += compactAccount(TABLE_STATUSES, Statuses.STATUS_ID, account_id, item_limit);
+			rows += compactAccount(TABLE_MENTIONS, Statuses.STATUS_ID, account_id, item_limit);
+			rows += compactAccount(TABLE_DIRECT_MESSAGES_INBOX, DirectMessages.MESSAGE_ID, account_id, item_limit);
+			rows += compactAccount(TABLE_DIRECT_MESSAGES_OUTBOX, DirectMessages.MESSAGE_ID, account_id, item_limit);
+		}
+		rows += compactCache(TABLE_CACHED_USERS, cache_limit);
+		rows += compactCache(TABLE_CACHED_STATUSES, cache_limit);
+		rows += compactCache(TABLE_CACHED_HASHTAGS, cache_limit);
+		rows += compactCache(TABLE_CACHED_COLORS, cache_limit);
+		notifyAffectedTables();
+		final long free_pages = queryPragma("freelist_count") - free_pages_before;
+		final Result result = new Result(rows, Math.max(0, free_pages) * queryPragma("page_size"),
+				System.currentTimeMillis() - start);
+		if (DEBUG) {
+			Log.d(LOGTAG, "Compaction finished, " + result);
+		}
+		return result;
+	}
+
+	private int compactAccount(final String table, final String sort_column, final long account_id,
+			final int item_limit) {
+		final String account_where = Statuses.ACCOUNT_ID + " = " + account_id;
+		final long watermark = queryWatermark(table, sort_column, account_where, item_limit);
+		if (watermark == -1) return 0;
+		return deleteInBatches(table, account_where + " AND " + sort_column + " <= " + watermark, sort_column);
+	}
+
+	private int compactCache(final String table, final int cache_limit) {
+		final long watermark = queryWatermark(table, BaseColumns._ID, null, cache_limit);
+		if (watermark == -1) return 0;
+		return deleteInBatches(table, BaseColumns._ID + " <= " + watermark, BaseColumns._ID);
+	}
+
+	private int deleteInBatches(final String table, final String where, final String sort_column) {
+		final SQLiteStatement delete = mDatabase.compileStatement(buildDeleteBatchSql(table, where, sort_column));
+		final SQLiteStatement changes = mDatabase.compileStatement("SELECT changes()");
+		int total = 0;
+		try {
+			while (true) {
+				final long deleted;
+				mDatabase.beginTransaction();
+				try {
+					delete.execute();
+					deleted = changes.simpleQueryForLong();
+					mDatabase.setTransactionSuccessful();
+				} finally {
+					mDatabase.endTransaction();
+				}
+				total += deleted;
+				if (deleted < BATCH_SIZE) {
+					break;
+				}
+				// Let other writers take the lock between batches.
+				Thread.yield();
+			}
+		} finally {
+			delete.close();
+			changes.close();
+		}
+		if (total > 0) {
+			mAffectedTables.add(table);
+		}
+		return total;
+	}
+
+	/**
+	 * Rows are deleted without the content provider, so cursors and
+	 * timelines showing these tables must be told here, once per table
+	 * however many accounts were compacted.
+	 */
+	private void notifyAffectedTables() {
+		final Uri base_uri = Uri.parse(PROTOCOL_CONTENT + TweetStore.AUTHORITY);
+		for (final String table : mAffectedTables) {
+			final Uri uri = Uri.withAppendedPath(base_uri, table);
+			mContext.getContentResolver().notifyChange(uri, null);
+			notifyForUpdatedUri(mContext, uri);
+		}
+		mAffectedTables.clear();
+	}
+
+	private long queryPragma(final String pragma) {
+		final Cursor cur = mDatabase.rawQuery("PRAGMA " + pragma, null);
+		if (cur == null) return 0;
+		try {
+			return cur.moveToFirst() ? cur.getLong(0) : 0;
+		} finally {
+			cur.close();
+		}
+	}
+
+	/**
+	 * @return Value of {@code sort_column} of the newest row which should be
+	 *         deleted, or -1 if there are no more than {@code limit} rows.
+	 */
+	private long queryWatermark(final String table, final String sort_column, final String where, final int limit) {
+		final SQLiteStatement statement = mDatabase.compileStatement(buildWatermarkSql(table, sort_column, where,
+				limit));
+		try {
+			return statement.simpleQueryForLong();
+		} catch (final SQLiteDoneException e) {
+			return -1;
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * @return Statement deleting the oldest {@link #BATCH_SIZE} rows matching
+	 *         {@code where}.
+	 */
+	static String buildDeleteBatchSql(final String table, final String where, final String sort_column) {
+		return "DELETE FROM " + table + " WHERE " + BaseColumns._ID + " IN (SELECT " + BaseColumns._ID + " FROM "
+				+ table + " WHERE " + where + " ORDER BY " + sort_column + " ASC LIMIT " + BATCH_SIZE + ")";
+	}
+
+	/**
+	 * @return Query of the watermark, see
+	 *         {@link #queryWatermark(String, String, String, int)}.
+	 */
+	static String buildWatermarkSql(final String table, final String sort_column, final String where,
+			final int limit) {
+		return "SELECT " + sort_column + " FROM " + table + (where != null ? " WHERE " + where : "")
+				+ " ORDER BY " + sort_column + " DESC LIMIT 1 OFFSET " + Math.max(0, limit);
+	}
+
+	public static final class Result {
+
+		public final int rows;
+		public final long bytes;
+		public final long duration;
+
+		Result(final int rows, final long bytes, final long duration) {
+			this.rows = rows;
+			this.bytes = bytes;
+			this.duration = duration;
+		}
+
+		@Override
+		public String toString() {
+			return "Result{rows=" + rows + ", bytes=" + bytes + ", duration=" + duration + "ms}";
+		}
+	}
+
+}
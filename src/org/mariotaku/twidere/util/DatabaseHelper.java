@@ -19,12 +19,14 @@
 
 package org.mariotaku.twidere.util;
 
+import static org.mariotaku.twidere.util.DatabaseUpgradeHelper.createIndices;
 import static org.mariotaku.twidere.util.DatabaseUpgradeHelper.safeUpgrade;
 
 import java.util.HashMap;
 
 import org.mariotaku.twidere.Constants;
 import org.mariotaku.twidere.provider.TweetStore.Accounts;
+import org.mariotaku.twidere.provider.TweetStore.CachedColors;
 import org.mariotaku.twidere.provider.TweetStore.CachedHashtags;
 import org.mariotaku.twidere.provider.TweetStore.CachedStatuses;
 import org.mariotaku.twidere.provider.TweetStore.CachedTrends;
@@ -35,6 +37,7 @@ import org.mariotaku.twidere.provider.TweetStore.Filters;
 import org.mariotaku.twidere.provider.TweetStore.Mentions;
 import org.mariotaku.twidere.provider.TweetStore.Statuses;
 import org.mariotaku.twidere.provider.TweetStore.Tabs;
+import org.mariotaku.twidere.util.DatabaseUpgradeHelper.Index;
 
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
@@ -42,6 +45,34 @@ import android.database.sqlite.SQLiteOpenHelper;
 
 public final class DatabaseHelper extends SQLiteOpenHelper implements Constants {
 
+	/**
+	 * Indices of all tables. Timelines are filtered by account and sorted by
+	 * status/message id or by time, statuses are upserted by (account_id,
+	 * status_id), and cached users are looked up by id or screen name.
+	 */
+	private static final Index[] INDICES = new Index[] {
+			new Index("statuses_status_id_index", TABLE_STATUSES, true, Statuses.ACCOUNT_ID, Statuses.STATUS_ID),
+			new Index("statuses_retweet_id_index", TABLE_STATUSES, false, Statuses.ACCOUNT_ID, Statuses.RETWEET_ID),
+			new Index("statuses_sort_index", TABLE_STATUSES, false, Statuses.STATUS_ID),
+			new Index("statuses_timestamp_index", TABLE_STATUSES, false, Statuses.STATUS_TIMESTAMP),
+			new Index("mentions_status_id_index", TABLE_MENTIONS, true, Mentions.ACCOUNT_ID, Mentions.STATUS_ID),
+			new Index("mentions_retweet_id_index", TABLE_MENTIONS, false, Mentions.ACCOUNT_ID, Mentions.RETWEET_ID),
+			new Index("mentions_sort_index", TABLE_MENTIONS, false, Mentions.STATUS_ID),
+			new Index("mentions_timestamp_index", TABLE_MENTIONS, false, Mentions.STATUS_TIMESTAMP),
+			new Index("cached_statuses_status_id_index", TABLE_CACHED_STATUSES, false, CachedStatuses.ACCOUNT_ID,
+					CachedStatuses.STATUS_ID),
+			new Index("messages_inbox_message_id_index", TABLE_DIRECT_MESSAGES_INBOX, false,
+					DirectMessages.ACCOUNT_ID, DirectMessages.MESSAGE_ID),
+			new Index("messages_inbox_sender_id_index", TABLE_DIRECT_MESSAGES_INBOX, false,
+					DirectMessages.ACCOUNT_ID, DirectMessages.SENDER_ID),
+			new Index("messages_outbox_message_id_index", TABLE_DIRECT_MESSAGES_OUTBOX, false,
+					DirectMessages.ACCOUNT_ID, DirectMessages.MESSAGE_ID),
+			new Index("messages_outbox_recipient_id_index", TABLE_DIRECT_MESSAGES_OUTBOX, false,
+					DirectMessages.ACCOUNT_ID, DirectMessages.RECIPIENT_ID),
+			new Index("cached_users_user_id_index", TABLE_CACHED_USERS, false, CachedUsers.USER_ID),
+			new Index("cached_users_screen_name_index", TABLE_CACHED_USERS, false, CachedUsers.SCREEN_NAME),
+			new Index("cached_colors_url_index", TABLE_CACHED_COLORS, true, CachedColors.URL) };
+
 	public DatabaseHelper(final Context context, final String name, final int version) {
 		super(context, name, null, version);
 	}
@@ -56,6 +87,7 @@ public final class DatabaseHelper extends SQLiteOpenHelper implements Constants
 		db.execSQL(createTable(TABLE_CACHED_USERS, CachedUsers.COLUMNS, CachedUsers.TYPES, true));
 		db.execSQL(createTable(TABLE_CACHED_STATUSES, CachedStatuses.COLUMNS, CachedStatuses.TYPES, true));
 		db.execSQL(createTable(TABLE_CACHED_HASHTAGS, CachedHashtags.COLUMNS, CachedHashtags.TYPES, true));
+		db.execSQL(createTable(TABLE_CACHED_COLORS, CachedColors.COLUMNS, CachedColors.TYPES, true));
 		db.execSQL(createTable(TABLE_FILTERED_USERS, Filters.Users.COLUMNS, Filters.Users.TYPES, true));
 		db.execSQL(createTable(TABLE_FILTERED_KEYWORDS, Filters.Keywords.COLUMNS, Filters.Keywords.TYPES, true));
 		db.execSQL(createTable(TABLE_FILTERED_SOURCES, Filters.Sources.COLUMNS, Filters.Sources.TYPES, true));
@@ -66,6 +98,7 @@ public final class DatabaseHelper extends SQLiteOpenHelper implements Constants
 				DirectMessages.Outbox.TYPES, true));
 		db.execSQL(createTable(TABLE_TRENDS_LOCAL, CachedTrends.Local.COLUMNS, CachedTrends.Local.TYPES, true));
 		db.execSQL(createTable(TABLE_TABS, Tabs.COLUMNS, Tabs.TYPES, true));
+		createIndices(db, INDICES);
 		db.setTransactionSuccessful();
 		db.endTransaction();
 	}
@@ -113,6 +146,7 @@ public final class DatabaseHelper extends SQLiteOpenHelper implements Constants
 		safeUpgrade(db, TABLE_CACHED_USERS, CachedUsers.COLUMNS, CachedUsers.TYPES, true, true, null);
 		safeUpgrade(db, TABLE_CACHED_STATUSES, CachedStatuses.COLUMNS, CachedStatuses.TYPES, true, true, null);
 		safeUpgrade(db, TABLE_CACHED_HASHTAGS, CachedHashtags.COLUMNS, CachedHashtags.TYPES, true, true, null);
+		safeUpgrade(db, TABLE_CACHED_COLORS, CachedColors.COLUMNS, CachedColors.TYPES, true, true, null);
 		safeUpgrade(db, TABLE_FILTERED_USERS, Filters.Users.COLUMNS, Filters.Users.TYPES, true, false, null);
 		safeUpgrade(db, TABLE_FILTERED_KEYWORDS, Filters.Keywords.COLUMNS, Filters.Keywords.TYPES, true, false, null);
 		safeUpgrade(db, TABLE_FILTERED_SOURCES, Filters.Sources.COLUMNS, Filters.Sources.TYPES, true, false, null);
@@ -123,6 +157,7 @@ public final class DatabaseHelper extends SQLiteOpenHelper implements Constants
 				true, null);
 		safeUpgrade(db, TABLE_TRENDS_LOCAL, CachedTrends.Local.COLUMNS, CachedTrends.Local.TYPES, true, true, null);
 		safeUpgrade(db, TABLE_TABS, Tabs.COLUMNS, Tabs.TYPES, true, false, null);
+		createIndices(db, INDICES);
 	}
 
 }
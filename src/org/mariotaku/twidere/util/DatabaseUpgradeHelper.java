@@ -44,6 +44,30 @@ public final class DatabaseUpgradeHelper {
 	private static final int FIELD_TYPE_STRING = 3;
 	private static final int FIELD_TYPE_BLOB = 4;
 
+	/**
+	 * Creates an index if it doesn't exist yet. Must be called after
+	 * {@link #safeUpgrade}, as that may drop and recreate the table. For a
+	 * unique index, rows duplicating the key are removed first, only the
+	 * newest one (with largest {@link BaseColumns#_ID}) is kept.
+	 */
+	public static void createIndex(final SQLiteDatabase db, final Index index) {
+		if (index == null) throw new IllegalArgumentException("Index cannot be null");
+		final String columns_string = ArrayUtils.toString(index.columns, ',', false);
+		if (index.unique) {
+			db.execSQL("DELETE FROM " + index.table + " WHERE " + BaseColumns._ID + " NOT IN (SELECT MAX("
+					+ BaseColumns._ID + ") FROM " + index.table + " GROUP BY " + columns_string + ")");
+		}
+		db.execSQL("CREATE " + (index.unique ? "UNIQUE " : "") + "INDEX IF NOT EXISTS " + index.name + " ON "
+				+ index.table + " (" + columns_string + ");");
+	}
+
+	public static void createIndices(final SQLiteDatabase db, final Index... indices) {
+		if (indices == null) return;
+		for (final Index index : indices) {
+			createIndex(db, index);
+		}
+	}
+
 	public static void safeUpgrade(final SQLiteDatabase db, final String table, final String[] new_cols,
 			final String[] new_types, final boolean fast_upgrade, final boolean drop_directly,
 			final HashMap<String, String> column_alias) {
@@ -250,4 +274,26 @@ public final class DatabaseUpgradeHelper {
 		return false;
 	}
 
+	/**
+	 * Declaration of an index on a table, see
+	 * {@link DatabaseUpgradeHelper#createIndices(SQLiteDatabase, Index...)}.
+	 */
+	public static final class Index {
+
+		public final String name;
+		public final String table;
+		public final String[] columns;
+		public final boolean unique;
+
+		public Index(final String name, final String table, final boolean unique, final String... columns) {
+			if (name == null || table == null || columns == null || columns.length == 0)
+				throw new IllegalArgumentException("Invalid parameters for index " + name);
+			this.name = name;
+			this.table = table;
+			this.columns = columns;
+			this.unique = unique;
+		}
+
+	}
+
 }
@@ -0,0 +1,107 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.provider.TweetStore.CachedColors;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.graphics.Bitmap;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+/**
+ * Extracts main colors of images with {@link ColorAnalyser}, and remembers
+ * them by image URL.</br> </br> Colors are kept in memory and in
+ * {@link CachedColors} table, so an avatar is only analysed once, even across
+ * restarts.
+ *
+ * @author mariotaku
+ */
+public final class ImageColorService implements Constants {
+
+	private static final String LOGTAG = ImageColorService.class.getSimpleName();
+
+	private static final int MAX_MEMORY_ENTRIES = 256;
+
+	private final SQLiteDatabase mDatabase;
+	private final LruCache<String, Integer> mMemoryCache = new LruCache<String, Integer>(MAX_MEMORY_ENTRIES);
+
+	public ImageColorService(final SQLiteDatabase database) {
+		mDatabase = database;
+	}
+
+	/**
+	 * Returns main color of {@code bitmap}, from cache if {@code url} was
+	 * analysed before. Never call this on UI thread.
+	 */
+	public int analyse(final String url, final Bitmap bitmap) {
+		final Integer cached = getColor(url);
+		if (cached != null) return cached;
+		final int color = ColorAnalyser.analyse(bitmap);
+		if (url != null && bitmap != null) {
+			putColor(url, color);
+		}
+		return color;
+	}
+
+	/**
+	 * @return Cached color of the image at {@code url}, or null if it hasn't
+	 *         been analysed. It may query database, so avoid calling this on
+	 *         UI thread.
+	 */
+	public Integer getColor(final String url) {
+		if (url == null) return null;
+		final Integer cached = mMemoryCache.get(url);
+		if (cached != null) return cached;
+		if (mDatabase == null) return null;
+		final Cursor cur = mDatabase.query(TABLE_CACHED_COLORS, new String[] { CachedColors.COLOR },
+				CachedColors.URL + " = ?", new String[] { url }, null, null, null);
+		if (cur == null) return null;
+		try {
+			if (!cur.moveToFirst()) return null;
+			final int color = cur.getInt(0);
+			mMemoryCache.put(url, color);
+			return color;
+		} finally {
+			cur.close();
+		}
+	}
+
+	private void putColor(final String url, final int color) {
+		mMemoryCache.put(url, color);
+		if (mDatabase == null) return;
+		final SQLiteStatement statement = mDatabase.compileStatement("INSERT OR REPLACE INTO " + TABLE_CACHED_COLORS
+				+ " (" + CachedColors.URL + ", " + CachedColors.COLOR + ") VALUES (?, ?)");
+		try {
+			statement.bindString(1, url);
+			statement.bindLong(2, color);
+			statement.execute();
+		} catch (final RuntimeException e) {
+			// Memory cache still works if database is not writable.
+			Log.w(LOGTAG, e);
+		} finally {
+			statement.close();
+		}
+	}
+
+}
@@ -0,0 +1,531 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import static org.mariotaku.twidere.util.Utils.getBestCacheDir;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.mariotaku.twidere.Constants;
+
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * Size-capped LRU cache of downloaded image files.</br> </br> Files are named
+ * by the MD5 hash of their URL, and every change is appended to a journal
+ * file, so the index can be rebuilt at startup by reading the journal instead
+ * of listing the directory. Downloads are written to a temporary file and
+ * only renamed to their final name by {@link Editor#commit()}, so a file
+ * returned by {@link #get(String)} is always complete.</br> </br> An instance
+ * must be the only user of its directory, get it from
+ * {@link org.mariotaku.twidere.app.TwidereApplication#getImageFileCache(String)}
+ * .
+ *
+ * @author mariotaku
+ */
+public class ImageFileCache implements Constants {
+
+	private static final String LOGTAG = ImageFileCache.class.getSimpleName();
+
+	static final String JOURNAL_FILE = "journal";
+	static final String JOURNAL_FILE_TMP = "journal.tmp";
+	static final String JOURNAL_MAGIC = "twidere.imagefilecache";
+	static final String JOURNAL_VERSION = "1";
+
+	private static final String CLEAN = "C";
+	private static final String DIRTY = "D";
+	private static final String REMOVE = "R";
+	private static final String READ = "A";
+	private static final String PARTIAL = "P";
+
+	private static final String TEMP_SUFFIX = ".tmp";
+	private static final String PARTIAL_SUFFIX = ".part";
+	private static final long PARTIAL_FILE_MAX_AGE = 24 * 60 * 60 * 1000;
+	private static final int REDUNDANT_OP_COMPACT_THRESHOLD = 2000;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private final Context mContext;
+	private final String mCacheDirName;
+	private final long mMaxSize;
+	private final LinkedHashMap<String, Long> mEntries = new LinkedHashMap<String, Long>(0, 0.75f, true);
+	private final ArrayList<String> mEditing = new ArrayList<String>();
+	private final LinkedHashMap<String, Long> mPartialFiles = new LinkedHashMap<String, Long>();
+
+	private File mCacheDir;
+	private Writer mJournalWriter;
+	private long mSize;
+	private int mRedundantOpCount;
+	private long mNextEditId;
+
+	public ImageFileCache(final Context context, final String cache_dir_name, final long max_size) {
+		mContext = context;
+		mCacheDirName = cache_dir_name;
+		mMaxSize = max_size;
+	}
+
+	/**
+	 * Removes all entries known by the index. Only files recorded in the
+	 * journal are deleted, the directory is never listed.
+	 */
+	public synchronized void clear() {
+		if (!ensureOpen()) return;
+		for (final String key : mEntries.keySet()) {
+			new File(mCacheDir, key).delete();
+		}
+		for (final String name : mPartialFiles.keySet()) {
+			new File(mCacheDir, name).delete();
+		}
+		mEntries.clear();
+		mPartialFiles.clear();
+		mSize = 0;
+		rebuildJournal();
+	}
+
+	/**
+	 * Starts writing an entry for {@code url}. Every editor writes to its own
+	 * temporary file, concurrent edits of one url are allowed and the last
+	 * commit wins.
+	 *
+	 * @return The editor, or null if the cache directory is not available.
+	 */
+	public synchronized Editor edit(final String url) {
+		final String key = getKey(url);
+		if (key == null || !ensureOpen()) return null;
+		final String temp_name = key + "." + mNextEditId++ + TEMP_SUFFIX;
+		mEditing.add(temp_name);
+		appendJournal(DIRTY, temp_name);
+		return new Editor(key, new File(mCacheDir, temp_name));
+	}
+
+	/**
+	 * @return The cached file of {@code url}, or null if it isn't cached.
+	 */
+	public synchronized File get(final String url) {
+		final String key = getKey(url);
+		if (key == null || !ensureOpen()) return null;
+		final Long length = mEntries.get(key);
+		if (length == null) return null;
+		final File file = new File(mCacheDir, key);
+		if (!file.isFile()) {
+			// Removed behind our back, e.g. the external storage was wiped.
+			removeEntry(key);
+			return null;
+		}
+		appendJournal(READ, key);
+		return file;
+	}
+
+	/**
+	 * Deletes the partial file of {@code url}, e.g. when it turned out not to
+	 * be an image.
+	 */
+	public synchronized void discardPartialFile(final String url) {
+		final String key = getKey(url);
+		if (key == null || !ensureOpen()) return;
+		removePartialFile(key + PARTIAL_SUFFIX);
+	}
+
+	/**
+	 * Partially downloaded file of {@code url}, which can be resumed later.
+	 * It's not part of the cache until it's moved to an {@link Editor}'s
+	 * file and committed. Every call is recorded in the journal, partial files
+	 * not resumed for a day are deleted when the cache is opened.
+	 *
+	 * @return The file, or null if the cache directory is not available.
+	 */
+	public synchronized File getPartialFile(final String url) {
+		final String key = getKey(url);
+		if (key == null || !ensureOpen()) return null;
+		final String name = key + PARTIAL_SUFFIX;
+		final long time = System.currentTimeMillis();
+		// Moves it to the end, so the eldest partial file comes first.
+		mPartialFiles.remove(name);
+		mPartialFiles.put(name, time);
+		appendJournal(PARTIAL, name, time);
+		return new File(mCacheDir, name);
+	}
+
+	public long getMaxSize() {
+		return mMaxSize;
+	}
+
+	/**
+	 * @return Total length of all cached files, in bytes.
+	 */
+	public synchronized long getSize() {
+		return mSize;
+	}
+
+	/**
+	 * Closes the journal and resolves the cache directory again on next use,
+	 * call this when the storage state may have changed.
+	 */
+	public synchronized void reload() {
+		closeJournal();
+		mCacheDir = null;
+		mEntries.clear();
+		mPartialFiles.clear();
+		mSize = 0;
+	}
+
+	public synchronized boolean remove(final String url) {
+		final String key = getKey(url);
+		if (key == null || !ensureOpen() || !mEntries.containsKey(key)) return false;
+		removeEntry(key);
+		return true;
+	}
+
+	private void appendJournal(final String op, final String key) {
+		appendJournal(op, key, -1);
+	}
+
+	private void appendJournal(final String op, final String key, final long length) {
+		if (mJournalWriter == null) return;
+		try {
+			mJournalWriter.write(op);
+			mJournalWriter.write(' ');
+			mJournalWriter.write(key);
+			if (length >= 0) {
+				mJournalWriter.write(' ');
+				mJournalWriter.write(String.valueOf(length));
+			}
+			mJournalWriter.write('\n');
+			if (!READ.equals(op)) {
+				mJournalWriter.flush();
+			}
+		} catch (final IOException e) {
+			Log.w(LOGTAG, e);
+		}
+		if (!DIRTY.equals(op) && !PARTIAL.equals(op)) {
+			mRedundantOpCount++;
+		}
+	}
+
+	private void closeJournal() {
+		if (mJournalWriter == null) return;
+		try {
+			mJournalWriter.close();
+		} catch (final IOException e) {
+			// Ignore.
+		}
+		mJournalWriter = null;
+	}
+
+	private synchronized File commit(final Editor editor) throws IOException {
+		mEditing.remove(editor.temp.getName());
+		if (!ensureOpen()) throw new FileNotFoundException("Cache directory is not available");
+		final File file = new File(mCacheDir, editor.key);
+		final long length = editor.temp.length();
+		if (length <= 0 || !editor.temp.renameTo(file)) {
+			editor.temp.delete();
+			throw new IOException("Unable to commit " + editor.temp);
+		}
+		final Long old_length = mEntries.put(editor.key, length);
+		if (old_length != null) {
+			mSize -= old_length;
+		}
+		mSize += length;
+		appendJournal(CLEAN, editor.key, length);
+		// The partial file was moved to the editor's file.
+		if (mPartialFiles.remove(editor.key + PARTIAL_SUFFIX) != null) {
+			appendJournal(REMOVE, editor.key + PARTIAL_SUFFIX);
+		}
+		trimToSize();
+		if (mRedundantOpCount >= REDUNDANT_OP_COMPACT_THRESHOLD && mRedundantOpCount >= mEntries.size()) {
+			rebuildJournal();
+		}
+		return file;
+	}
+
+	private synchronized void abort(final Editor editor) {
+		mEditing.remove(editor.temp.getName());
+		editor.temp.delete();
+	}
+
+	private boolean ensureOpen() {
+		if (mCacheDir != null && mJournalWriter != null && mCacheDir.isDirectory()) return true;
+		closeJournal();
+		mEntries.clear();
+		mPartialFiles.clear();
+		mSize = 0;
+		mCacheDir = getBestCacheDir(mContext, mCacheDirName);
+		if (mCacheDir == null || !mCacheDir.isDirectory() && !mCacheDir.mkdirs()) {
+			mCacheDir = null;
+			return false;
+		}
+		final File journal = new File(mCacheDir, JOURNAL_FILE);
+		if (journal.isFile() && readJournal(journal)) {
+			try {
+				mJournalWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journal, true),
+						"US-ASCII"));
+			} catch (final IOException e) {
+				Log.w(LOGTAG, e);
+				return false;
+			}
+			trimToSize();
+			expirePartialFiles();
+			return true;
+		}
+		// No usable journal, so we can't know which files belong to us. This
+		// only happens once after an upgrade or a crash while compacting.
+		final File[] files = mCacheDir.listFiles();
+		if (files != null) {
+			for (final File file : files) {
+				file.delete();
+			}
+		}
+		mEntries.clear();
+		mPartialFiles.clear();
+		mSize = 0;
+		return rebuildJournal();
+	}
+
+	/**
+	 * Deletes partial downloads the journal says are stale, they aren't
+	 * counted in the cache size and would pile up otherwise.
+	 */
+	private void expirePartialFiles() {
+		final long expired = System.currentTimeMillis() - PARTIAL_FILE_MAX_AGE;
+		final Iterator<Map.Entry<String, Long>> it = mPartialFiles.entrySet().iterator();
+		while (it.hasNext()) {
+			final Map.Entry<String, Long> eldest = it.next();
+			if (eldest.getValue() >= expired) {
+				break;
+			}
+			it.remove();
+			new File(mCacheDir, eldest.getKey()).delete();
+			appendJournal(REMOVE, eldest.getKey());
+		}
+	}
+
+	private boolean readJournal(final File journal) {
+		BufferedReader reader = null;
+		final ArrayList<String> dirty = new ArrayList<String>();
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(journal), "US-ASCII"), 8192);
+			if (!JOURNAL_MAGIC.equals(reader.readLine()) || !JOURNAL_VERSION.equals(reader.readLine())
+					|| !"".equals(reader.readLine())) return false;
+			int line_count = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line_count++;
+				final String[] parts = line.split(" ");
+				if (parts.length < 2) {
+					// Truncated last line.
+					continue;
+				}
+				final String op = parts[0], key = parts[1];
+				if (CLEAN.equals(op) && parts.length == 3) {
+					final long length = Long.parseLong(parts[2]);
+					final Long old_length = mEntries.put(key, length);
+					if (old_length != null) {
+						mSize -= old_length;
+					}
+					mSize += length;
+				} else if (REMOVE.equals(op)) {
+					final Long old_length = mEntries.remove(key);
+					if (old_length != null) {
+						mSize -= old_length;
+					}
+					mPartialFiles.remove(key);
+				} else if (READ.equals(op)) {
+					mEntries.get(key);
+				} else if (DIRTY.equals(op)) {
+					dirty.add(key);
+				} else if (PARTIAL.equals(op) && parts.length == 3) {
+					mPartialFiles.remove(key);
+					mPartialFiles.put(key, Long.parseLong(parts[2]));
+				}
+			}
+			mRedundantOpCount = line_count - mEntries.size() - mPartialFiles.size();
+		} catch (final IOException e) {
+			Log.w(LOGTAG, e);
+			return false;
+		} catch (final NumberFormatException e) {
+			Log.w(LOGTAG, e);
+			return false;
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (final IOException e) {
+					// Ignore.
+				}
+			}
+		}
+		// Temporary files left by a previous process are never committed.
+		for (final String temp_name : dirty) {
+			if (!mEditing.contains(temp_name)) {
+				new File(mCacheDir, temp_name).delete();
+			}
+		}
+		return true;
+	}
+
+	private boolean rebuildJournal() {
+		closeJournal();
+		if (mCacheDir == null) return false;
+		final File journal = new File(mCacheDir, JOURNAL_FILE);
+		final File journal_tmp = new File(mCacheDir, JOURNAL_FILE_TMP);
+		try {
+			final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journal_tmp),
+					"US-ASCII"));
+			try {
+				writer.write(JOURNAL_MAGIC + "\n" + JOURNAL_VERSION + "\n\n");
+				for (final String temp_name : mEditing) {
+					writer.write(DIRTY + ' ' + temp_name + '\n');
+				}
+				for (final Map.Entry<String, Long> entry : mPartialFiles.entrySet()) {
+					writer.write(PARTIAL + ' ' + entry.getKey() + ' ' + entry.getValue() + '\n');
+				}
+				for (final Map.Entry<String, Long> entry : mEntries.entrySet()) {
+					writer.write(CLEAN + ' ' + entry.getKey() + ' ' + entry.getValue() + '\n');
+				}
+			} finally {
+				writer.close();
+			}
+			if (!journal_tmp.renameTo(journal)) throw new IOException("Unable to rename journal");
+			mJournalWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journal, true),
+					"US-ASCII"));
+			mRedundantOpCount = 0;
+			return true;
+		} catch (final IOException e) {
+			Log.w(LOGTAG, e);
+			return false;
+		}
+	}
+
+	private void removePartialFile(final String name) {
+		new File(mCacheDir, name).delete();
+		if (mPartialFiles.remove(name) != null) {
+			appendJournal(REMOVE, name);
+		}
+	}
+
+	private void removeEntry(final String key) {
+		final Long length = mEntries.remove(key);
+		if (length != null) {
+			mSize -= length;
+		}
+		new File(mCacheDir, key).delete();
+		appendJournal(REMOVE, key);
+	}
+
+	private void trimToSize() {
+		final Iterator<Map.Entry<String, Long>> it = mEntries.entrySet().iterator();
+		while (mSize > mMaxSize && it.hasNext()) {
+			final Map.Entry<String, Long> eldest = it.next();
+			final String key = eldest.getKey();
+			it.remove();
+			mSize -= eldest.getValue();
+			new File(mCacheDir, key).delete();
+			appendJournal(REMOVE, key);
+		}
+	}
+
+	/**
+	 * @return Hex encoded MD5 hash of {@code url}, used as the file name.
+	 */
+	public static String getKey(final String url) {
+		if (url == null) return null;
+		try {
+			final byte[] digest = MessageDigest.getInstance("MD5").digest(url.getBytes("UTF-8"));
+			final char[] chars = new char[digest.length * 2];
+			for (int i = 0, j = digest.length; i < j; i++) {
+				chars[i * 2] = HEX_DIGITS[digest[i] >> 4 & 0x0F];
+				chars[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0F];
+			}
+			return new String(chars);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		} catch (final IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Writes a single entry. Call either {@link #commit()} or {@link #abort()}
+	 * when done, {@link #abortUnlessCommitted()} is safe to call in a
+	 * {@code finally} block.
+	 */
+	public final class Editor {
+
+		private final String key;
+		private final File temp;
+		private boolean done;
+
+		Editor(final String key, final File temp) {
+			this.key = key;
+			this.temp = temp;
+		}
+
+		public void abort() {
+			if (done) return;
+			done = true;
+			ImageFileCache.this.abort(this);
+		}
+
+		public void abortUnlessCommitted() {
+			abort();
+		}
+
+		/**
+		 * Publishes the written file, replacing any previous entry.
+		 *
+		 * @return The cached file.
+		 */
+		public File commit() throws IOException {
+			if (done) throw new IllegalStateException("Editor is already closed");
+			done = true;
+			return ImageFileCache.this.commit(this);
+		}
+
+		/**
+		 * @return The temporary file being written, it will be moved on
+		 *         commit.
+		 */
+		public File getFile() {
+			return temp;
+		}
+
+		public OutputStream newOutputStream() throws FileNotFoundException {
+			return new FileOutputStream(temp);
+		}
+
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.util.HashMap;
+import java.util.Locale;
+
+import org.mariotaku.twidere.Constants;
+
+/**
+ * Tells which image host an URL belongs to.</br> </br> Host part of the URL
+ * is parsed once and looked up in a table, so only the pattern of that host
+ * needs to be matched afterwards, see
+ * {@link Utils#getImageSpec(int, String, boolean)}.
+ *
+ * @author mariotaku
+ */
+public final class ImageHostClassifier implements Constants {
+
+	private static final HashMap<String, Integer> HOSTS = new HashMap<String, Integer>();
+
+	private static final String SUFFIX_SINAIMG = ".sinaimg.cn";
+	private static final String SUFFIX_SINA = ".sina.cn";
+
+	static {
+		HOSTS.put("p.twimg.com", IMAGE_HOST_TWITTER);
+		HOSTS.put("pbs.twimg.com", IMAGE_HOST_TWITTER);
+		HOSTS.put("twitpic.com", IMAGE_HOST_TWITPIC);
+		HOSTS.put("instagr.am", IMAGE_HOST_INSTAGRAM);
+		HOSTS.put("instagram.com", IMAGE_HOST_INSTAGRAM);
+		HOSTS.put("imgur.com", IMAGE_HOST_IMGUR);
+		HOSTS.put("i.imgur.com", IMAGE_HOST_IMGUR);
+		HOSTS.put("img.ly", IMAGE_HOST_IMGLY);
+		HOSTS.put("yfrog.com", IMAGE_HOST_YFROG);
+		HOSTS.put("plixi.com", IMAGE_HOST_LOCKERZ_AND_PLIXI);
+		HOSTS.put("lockerz.com", IMAGE_HOST_LOCKERZ_AND_PLIXI);
+		HOSTS.put("twitgoo.com", IMAGE_HOST_TWITGOO);
+		HOSTS.put("moby.to", IMAGE_HOST_MOBYPICTURE);
+		HOSTS.put("photozou.jp", IMAGE_HOST_PHOTOZOU);
+	}
+
+	private ImageHostClassifier() {
+		throw new AssertionError("You are trying to create an instance for this utility class!");
+	}
+
+	/**
+	 * @return One of {@code IMAGE_HOST_*} constants, or
+	 *         {@link #IMAGE_HOST_NONE} if {@code url} is not on a known image
+	 *         host.
+	 */
+	public static int getImageHost(final String url) {
+		final String host = getHost(url);
+		if (host == null) return IMAGE_HOST_NONE;
+		final Integer type = HOSTS.get(host);
+		if (type != null) return type;
+		if (hasSubdomainSuffix(host, SUFFIX_SINAIMG) || hasSubdomainSuffix(host, SUFFIX_SINA))
+			return IMAGE_HOST_SINA_WEIBO;
+		return IMAGE_HOST_NONE;
+	}
+
+	/**
+	 * @return Lower cased host of {@code url}, scheme is optional.
+	 */
+	static String getHost(final String url) {
+		if (url == null) return null;
+		final int length = url.length();
+		final int scheme_end = url.indexOf("://");
+		// Ignore "://" not before the first slash, e.g. in query string.
+		int start = scheme_end >= 0 && url.indexOf('/') == scheme_end + 1 ? scheme_end + 3 : 0;
+		int end = start;
+		while (end < length) {
+			final char c = url.charAt(end);
+			if (c == '/' || c == '?' || c == '#' || c == ':') {
+				break;
+			}
+			end++;
+		}
+		if (end == start) return null;
+		return url.substring(start, end).toLowerCase(Locale.US);
+	}
+
+	/**
+	 * Sina hosts look like {@code ww1.sinaimg.cn}, at least one character is
+	 * required before the suffix.
+	 */
+	private static boolean hasSubdomainSuffix(final String host, final String suffix) {
+		return host.length() > suffix.length() && host.endsWith(suffix);
+	}
+
+}
@@ -20,19 +20,18 @@
 package org.mariotaku.twidere.util;
 
 import static org.mariotaku.twidere.util.Utils.copyStream;
-import static org.mariotaku.twidere.util.Utils.getBestCacheDir;
 import static org.mariotaku.twidere.util.Utils.getImageLoaderHttpClient;
 import static org.mariotaku.twidere.util.Utils.getRedirectedHttpResponse;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
 
+import org.mariotaku.gallery3d.util.ThreadPool;
+import org.mariotaku.gallery3d.util.ThreadPool.Job;
+import org.mariotaku.gallery3d.util.ThreadPool.JobContext;
 import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.app.TwidereApplication;
 
 import twitter4j.http.HttpClientWrapper;
 import twitter4j.http.HttpResponse;
@@ -57,57 +56,46 @@ public class ImagePreloader implements Constants {
 	private static final String LOGTAG = ImagePreloader.class.getSimpleName();
 
 	private final Context mContext;
-	private final ExecutorService mExecutor;
+	private final TwidereApplication mApplication;
+	private final ThreadPool mThreadPool;
 	private HttpClientWrapper mClient;
+	private volatile boolean mCancelled;
 
 	public ImagePreloader(final Context context) {
 		mContext = context;
-		mExecutor = Executors.newFixedThreadPool(32, new LowestPriorityThreadFactory());
+		mApplication = TwidereApplication.getInstance(context);
+		mThreadPool = mApplication.getThreadPool();
 		reloadConnectivitySettings();
 	}
 
 	/**
-	 * Cancels any downloads, shuts down the executor pool, and then purges the
-	 * caches.
+	 * Cancels any pending downloads, downloads already started are finished.
+	 * The thread pool is shared, so it's not shut down.
 	 */
 	public void cancel() {
-
-		// We could also terminate it immediately,
-		// but that may lead to synchronization issues.
-		if (!mExecutor.isShutdown()) {
-			mExecutor.shutdown();
-		}
-
+		mCancelled = true;
 	}
 
 	public File getCachedImageFile(final String cache_dir_name, final String url) {
 		if (cache_dir_name == null || url == null) return null;
-		final File cache_dir = getBestCacheDir(mContext, cache_dir_name);
-		if (cache_dir == null) return null;
-		final File cache = new File(cache_dir, getFilename(url));
-		if (ImageValidator.checkImageValidity(cache))
-			return cache;
-		else {
-			preloadImage(cache_dir_name, url);
-		}
+		final File cache = mApplication.getImageFileCache(cache_dir_name).get(url);
+		if (cache != null) return cache;
+		preloadImage(cache_dir_name, url);
 		return null;
 	}
 
 	public void preloadImage(final String cache_dir_name, final String url) {
+		if (mCancelled) return;
 		final ImageToLoad p = new ImageToLoad(cache_dir_name, url);
-		mExecutor.submit(new ImageLoader(p));
+		// Preloading is never visible, run it after other jobs.
+		mThreadPool.submit(new ImageLoader(p), ThreadPool.PRIORITY_BACKGROUND);
 	}
 
 	public void reloadConnectivitySettings() {
 		mClient = getImageLoaderHttpClient(mContext);
 	}
 
-	private String getFilename(final String url) {
-		if (url == null) return null;
-		return url.replaceFirst("https?:\\/\\/", "").replaceAll("[^a-zA-Z0-9]", "_");
-	}
-
-	class ImageLoader implements Runnable {
+	class ImageLoader implements Job<Void> {
 		private final ImageToLoad imagetoload;
 
 		public ImageLoader(final ImageToLoad imagetoload) {
@@ -115,40 +103,43 @@ public class ImagePreloader implements Constants {
 		}
 
 		@Override
-		public void run() {
-			if (imagetoload == null || imagetoload.cache_dir_name == null || imagetoload.url == null) return;
-			final File cache_dir = getBestCacheDir(mContext, imagetoload.cache_dir_name);
-			if (cache_dir == null) return;
-			if (!cache_dir.isDirectory()) {
-				cache_dir.mkdir();
-			}
-			final File cache_file = new File(cache_dir, getFilename(imagetoload.url));
+		public Void run(final JobContext jc) {
+			if (mCancelled || jc.isCancelled()) return null;
+			if (imagetoload == null || imagetoload.cache_dir_name == null || imagetoload.url == null) return null;
+			final ImageFileCache cache = mApplication.getImageFileCache(imagetoload.cache_dir_name);
 			// from SD cache
 			if (DEBUG) {
-				Log.d(LOGTAG, "Preload image " + imagetoload.url + " to " + cache_file);
+				Log.d(LOGTAG, "Preload image " + imagetoload.url + " to " + imagetoload.cache_dir_name);
 			}
-			if (ImageValidator.checkImageValidity(cache_file)) return;
+			if (cache.get(imagetoload.url) != null) return null;
 
 			// from web
+			if (!jc.setMode(ThreadPool.MODE_NETWORK)) return null;
+			final ImageFileCache.Editor editor = cache.edit(imagetoload.url);
+			if (editor == null) return null;
 			try {
 				final HttpResponse resp = getRedirectedHttpResponse(mClient, imagetoload.url);
 
 				if (resp != null && resp.getStatusCode() == 200) {
 					final InputStream is = resp.asStream();
-					final OutputStream os = new FileOutputStream(cache_file);
-					copyStream(is, os);
-					os.flush();
-					os.close();
-					if (!ImageValidator.checkImageValidity(cache_file)) {
-						// The file is corrupted, so we remove it from cache.
-						if (cache_file.isFile() && cache_file.length() == 0) {
-							cache_file.delete();
-						}
+					final OutputStream os = editor.newOutputStream();
+					try {
+						copyStream(is, os);
+						os.flush();
+					} finally {
+						os.close();
+					}
+					// The file may be corrupted, only commit complete images.
+					if (ImageValidator.checkImageValidity(editor.getFile())) {
+						editor.commit();
 					}
 				}
 			} catch (final Exception e) {
 				Log.w(LOGTAG, e);
+			} finally {
+				editor.abortUnlessCommitted();
 			}
+			return null;
 		}
 	}
 
@@ -162,15 +153,4 @@ public class ImagePreloader implements Constants {
 		}
 	}
 
-	static class LowestPriorityThreadFactory implements ThreadFactory {
-
-		@Override
-		public Thread newThread(final Runnable r) {
-			final Thread t = new Thread(r);
-			t.setPriority(Thread.MIN_PRIORITY);
-			return t;
-		}
-
-	}
-
 }
@@ -0,0 +1,136 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.io.File;
+
+import org.mariotaku.twidere.Constants;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.v4.util.LruCache;
+
+/**
+ * Byte-bounded cache of decoded tiles of the GL image viewer, keyed by image
+ * file, level and position.</br> </br> It's kept by the application, so
+ * tiles survive activity recreation, and zooming back to a level already seen
+ * doesn't decode it again. Cached bitmaps are immutable copies, so they are
+ * never reused by a bitmap pool and can be uploaded as they are.
+ *
+ * @author mariotaku
+ */
+public class ImageTileCache implements Constants {
+
+	public static final float DEFAULT_HEAP_SHARE = 0.125f;
+
+	private final LruCache<TileKey, Bitmap> mCache;
+
+	public ImageTileCache(final int max_size_bytes) {
+		mCache = new LruCache<TileKey, Bitmap>(Math.max(1, max_size_bytes)) {
+
+			@Override
+			protected int sizeOf(final TileKey key, final Bitmap value) {
+				return ImageLoaderUtils.getBitmapSize(value);
+			}
+
+		};
+	}
+
+	public void clear() {
+		mCache.evictAll();
+	}
+
+	/**
+	 * @return Cached tile, which must not be modified or recycled, or null.
+	 */
+	public Bitmap get(final String image_key, final int level, final int x, final int y) {
+		if (image_key == null) return null;
+		final Bitmap bitmap = mCache.get(new TileKey(image_key, level, x, y));
+		return bitmap != null && !bitmap.isRecycled() ? bitmap : null;
+	}
+
+	/**
+	 * Caches a copy of {@code bitmap}, so the caller still owns it.
+	 */
+	public void put(final String image_key, final int level, final int x, final int y, final Bitmap bitmap) {
+		if (image_key == null || bitmap == null || bitmap.isRecycled()) return;
+		final Bitmap copy = bitmap.isMutable() ? bitmap.copy(bitmap.getConfig(), false) : bitmap;
+		if (copy == null) return;
+		mCache.put(new TileKey(image_key, level, x, y), copy);
+	}
+
+	/**
+	 * Evicted bitmaps are not recycled, since a texture may still be
+	 * uploading them.
+	 */
+	public void trimMemory(final int level) {
+		if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+			mCache.evictAll();
+		} else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+			mCache.trimToSize(mCache.maxSize() / 2);
+		}
+	}
+
+	/**
+	 * @return Key of tiles of {@code file}, which changes if the file is
+	 *         replaced, e.g. by a new download.
+	 */
+	public static String getImageKey(final File file) {
+		if (file == null) return null;
+		return file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+	}
+
+	public static ImageTileCache newInstance(final Context context, final float share) {
+		final int mem_class = ImageLoaderUtils.getMemoryClass(context);
+		return new ImageTileCache(Math.round(mem_class * 1024 * 1024 * share));
+	}
+
+	private static final class TileKey {
+
+		private final String image_key;
+		private final int level, x, y;
+
+		TileKey(final String image_key, final int level, final int x, final int y) {
+			this.image_key = image_key;
+			this.level = level;
+			this.x = x;
+			this.y = y;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (this == o) return true;
+			if (!(o instanceof TileKey)) return false;
+			final TileKey other = (TileKey) o;
+			return level == other.level && x == other.x && y == other.y && image_key.equals(other.image_key);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = image_key.hashCode();
+			result = 31 * result + level;
+			result = 31 * result + x;
+			result = 31 * result + y;
+			return result;
+		}
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import static org.mariotaku.twidere.util.Utils.getBestCacheDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.mariotaku.gallery3d.util.BitmapUtils;
+import org.mariotaku.gallery3d.util.GalleryUtils;
+import org.mariotaku.twidere.Constants;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.CompressFormat;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.util.Log;
+
+/**
+ * Shrinks images before they are uploaded.</br> </br> JPEG images are
+ * downscaled to the configured max size, rotated as their Exif orientation
+ * says and re-encoded, which also strips metadata like location. PNG images
+ * are only downscaled when they are too large, other types (e.g. animated
+ * GIF) are uploaded as they are. Results are cached by source file and
+ * settings, so an image posted again, or to several accounts, is encoded only
+ * once.
+ *
+ * @author mariotaku
+ */
+public class ImageTranscoder implements Constants {
+
+	private static final String LOGTAG = ImageTranscoder.class.getSimpleName();
+
+	private static final int MAX_CACHED_FILES = 8;
+	private static final int MAX_DECODE_ATTEMPTS = 3;
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private final Context mContext;
+	private final SharedPreferences mPreferences;
+
+	public ImageTranscoder(final Context context) {
+		mContext = context;
+		mPreferences = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
+	}
+
+	/**
+	 * Transcodes {@code source}, it must be called in background thread.
+	 * Images are transcoded one at a time, since decoding a camera photo takes
+	 * much memory.
+	 *
+	 * @param shared Whether the result will be read by other apps, e.g. an
+	 *            image uploader extension.
+	 * @return The transcoded file, or {@code source} if it doesn't need to be
+	 *         or can't be transcoded.
+	 */
+	public synchronized File transcode(final File source, final boolean shared) {
+		if (source == null || !source.isFile()) return source;
+		final File cache_dir = getCacheDir(shared);
+		if (cache_dir == null) return source;
+		final int max_size = Math.max(1, mPreferences.getInt(PREFERENCE_KEY_UPLOAD_IMAGE_MAX_SIZE,
+				PREFERENCE_DEFAULT_UPLOAD_IMAGE_MAX_SIZE));
+		final int quality = Math.max(1, Math.min(100, mPreferences.getInt(PREFERENCE_KEY_UPLOAD_IMAGE_QUALITY,
+				PREFERENCE_DEFAULT_UPLOAD_IMAGE_QUALITY)));
+		final BitmapFactory.Options o = new BitmapFactory.Options();
+		o.inJustDecodeBounds = true;
+		BitmapFactory.decodeFile(source.getPath(), o);
+		final int width = o.outWidth, height = o.outHeight;
+		if (width <= 0 || height <= 0) return source;
+		final CompressFormat format;
+		if ("image/jpeg".equals(o.outMimeType)) {
+			format = CompressFormat.JPEG;
+		} else if ("image/png".equals(o.outMimeType) && Math.max(width, height) > max_size) {
+			format = CompressFormat.PNG;
+		} else
+			return source;
+		final String extension = format == CompressFormat.JPEG ? ".jpg" : ".png";
+		final String key = ImageFileCache.getKey(source.getAbsolutePath() + ":" + source.length() + ":"
+				+ source.lastModified() + ":" + max_size + ":" + quality);
+		final File cached = new File(cache_dir, key + extension);
+		if (cached.isFile()) {
+			// Keeps recently used files when the directory is pruned.
+			cached.setLastModified(System.currentTimeMillis());
+			return cached;
+		}
+		final int orientation = format == CompressFormat.JPEG ? Exif.getOrientation(source) : 0;
+		final Bitmap bitmap = decodeScaled(source, width, height, max_size, orientation);
+		if (bitmap == null) return source;
+		final File temp = new File(cache_dir, key + TEMP_SUFFIX);
+		OutputStream os = null;
+		try {
+			os = new FileOutputStream(temp);
+			if (!bitmap.compress(format, quality, os)) throw new IOException("Unable to encode " + source);
+			os.flush();
+			GalleryUtils.closeSilently(os);
+			os = null;
+			if (!temp.renameTo(cached)) throw new IOException("Unable to rename " + temp);
+		} catch (final IOException e) {
+			Log.w(LOGTAG, e);
+			temp.delete();
+			return source;
+		} finally {
+			GalleryUtils.closeSilently(os);
+			bitmap.recycle();
+		}
+		if (DEBUG) {
+			Log.d(LOGTAG, "Transcoded " + source + " (" + source.length() + " bytes) to " + cached + " ("
+					+ cached.length() + " bytes)");
+		}
+		prune(cache_dir);
+		return cached;
+	}
+
+	private File getCacheDir(final boolean shared) {
+		final File dir;
+		if (shared) {
+			dir = getBestCacheDir(mContext, DIR_NAME_TRANSCODED_IMAGES);
+			// Files in internal cache directory can't be read by other apps.
+			if (dir == null || dir.getAbsolutePath().startsWith(mContext.getCacheDir().getAbsolutePath()))
+				return null;
+		} else {
+			// Only read by this app, so it needn't take external storage.
+			dir = new File(mContext.getCacheDir(), DIR_NAME_TRANSCODED_IMAGES);
+		}
+		if (!dir.isDirectory() && !dir.mkdirs()) return null;
+		return dir;
+	}
+
+	private static Bitmap decodeScaled(final File source, final int width, final int height, final int max_size,
+			final int orientation) {
+		final BitmapFactory.Options o = new BitmapFactory.Options();
+		o.inSampleSize = BitmapUtils.computeSampleSizeLarger(width, height, max_size);
+		for (int i = 0; i < MAX_DECODE_ATTEMPTS; i++) {
+			Bitmap decoded = null;
+			try {
+				decoded = BitmapFactory.decodeFile(source.getPath(), o);
+				if (decoded == null) return null;
+				final int w = decoded.getWidth(), h = decoded.getHeight();
+				final float scale = Math.min(1, (float) max_size / Math.max(w, h));
+				if (scale == 1 && orientation == 0) return decoded;
+				final Matrix m = new Matrix();
+				m.setScale(scale, scale);
+				m.postRotate(orientation);
+				final Bitmap result = Bitmap.createBitmap(decoded, 0, 0, w, h, m, true);
+				if (result != decoded) {
+					decoded.recycle();
+				}
+				return result;
+			} catch (final OutOfMemoryError e) {
+				// Try again with a smaller bitmap.
+				if (decoded != null) {
+					decoded.recycle();
+				}
+				o.inSampleSize *= 2;
+			}
+		}
+		return null;
+	}
+
+	private static void prune(final File cache_dir) {
+		final File[] files = cache_dir.listFiles();
+		if (files == null || files.length <= MAX_CACHED_FILES) return;
+		Arrays.sort(files, new Comparator<File>() {
+
+			@Override
+			public int compare(final File lhs, final File rhs) {
+				final long l = lhs.lastModified(), r = rhs.lastModified();
+				return l > r ? -1 : l == r ? 0 : 1;
+			}
+
+		});
+		for (int i = MAX_CACHED_FILES, j = files.length; i < j; i++) {
+			files[i].delete();
+		}
+	}
+}
@@ -15,6 +15,14 @@ public class ImageValidator {
 	private static final byte[] JPEG_HEAD = new byte[] { 0xFFFFFFFF, 0xFFFFFFD8 };
 	private static final byte[] JPEG_TAIL = new byte[] { 0xFFFFFFFF, 0xFFFFFFD9 };
 
+	public static final int TYPE_UNKNOWN = 0;
+	public static final int TYPE_PNG = 1;
+	public static final int TYPE_JPEG = 2;
+	public static final int TYPE_OTHER = 3;
+
+	private static final int HEAD_LENGTH = Math.max(PNG_HEAD.length, JPEG_HEAD.length);
+	private static final int TAIL_LENGTH = Math.max(PNG_TAIL.length, JPEG_TAIL.length);
+
 	public static boolean checkImageValidity(final File file) {
 		if (file == null) return false;
 		return checkImageValidity(file.getPath());
@@ -40,6 +48,22 @@ public class ImageValidator {
 		return checkHeadTailValidity(file, PNG_HEAD, PNG_TAIL);
 	}
 
+	private static boolean endsWith(final byte[] tail, final int tail_length, final byte[] expected) {
+		if (tail_length < expected.length) return false;
+		for (int i = 0, j = expected.length; i < j; i++) {
+			if (tail[tail_length - j + i] != expected[i]) return false;
+		}
+		return true;
+	}
+
+	private static boolean startsWith(final byte[] head, final int head_length, final byte[] expected) {
+		if (head_length < expected.length) return false;
+		for (int i = 0, j = expected.length; i < j; i++) {
+			if (head[i] != expected[i]) return false;
+		}
+		return true;
+	}
+
 	private static boolean checkHeadTailValidity(final String file, final byte[] head, final byte[] tail) {
 		if (file == null) return false;
 		try {
@@ -61,4 +85,79 @@ public class ImageValidator {
 		}
 		return true;
 	}
+
+	/**
+	 * Checks an image while it's being written, by remembering its first and
+	 * last bytes, so the finished PNG or JPEG file doesn't need to be read
+	 * again.
+	 */
+	public static final class StreamValidator {
+
+		private final byte[] mHead = new byte[HEAD_LENGTH];
+		private final byte[] mTail = new byte[TAIL_LENGTH];
+		private int mHeadLength, mTailLength;
+
+		/**
+		 * Feeds head and tail of a partially written file, call this before
+		 * appending to it. File must not be shorter than head and tail.
+		 */
+		public void update(final File file) throws IOException {
+			final RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				final long length = raf.length();
+				if (length < HEAD_LENGTH + TAIL_LENGTH) throw new IOException("File is too short");
+				raf.readFully(mHead);
+				mHeadLength = HEAD_LENGTH;
+				raf.seek(length - TAIL_LENGTH);
+				raf.readFully(mTail);
+				mTailLength = TAIL_LENGTH;
+			} finally {
+				raf.close();
+			}
+		}
+
+		public void update(final byte[] buffer, final int offset, final int length) {
+			if (mHeadLength < HEAD_LENGTH) {
+				final int count = Math.min(HEAD_LENGTH - mHeadLength, length);
+				System.arraycopy(buffer, offset, mHead, mHeadLength, count);
+				mHeadLength += count;
+			}
+			if (length >= TAIL_LENGTH) {
+				System.arraycopy(buffer, offset + length - TAIL_LENGTH, mTail, 0, TAIL_LENGTH);
+				mTailLength = TAIL_LENGTH;
+				return;
+			}
+			final int keep = Math.min(mTailLength, TAIL_LENGTH - length);
+			System.arraycopy(mTail, mTailLength - keep, mTail, 0, keep);
+			System.arraycopy(buffer, offset, mTail, keep, length);
+			mTailLength = keep + length;
+		}
+
+		/**
+		 * @return One of {@code TYPE_*} constants, {@link #TYPE_UNKNOWN} until
+		 *         enough bytes are written.
+		 */
+		public int getType() {
+			if (startsWith(mHead, mHeadLength, PNG_HEAD)) return TYPE_PNG;
+			if (startsWith(mHead, mHeadLength, JPEG_HEAD)) return TYPE_JPEG;
+			return mHeadLength < HEAD_LENGTH ? TYPE_UNKNOWN : TYPE_OTHER;
+		}
+
+		/**
+		 * @param file The file written, only read if it's not a PNG or JPEG
+		 *            image.
+		 */
+		public boolean isValid(final File file) {
+			switch (getType()) {
+				case TYPE_PNG:
+					return endsWith(mTail, mTailLength, PNG_TAIL);
+				case TYPE_JPEG:
+					return endsWith(mTail, mTailLength, JPEG_TAIL);
+				case TYPE_OTHER:
+					return checkImageValidity(file);
+				default:
+					return false;
+			}
+		}
+	}
 }
@@ -20,40 +20,39 @@
 package org.mariotaku.twidere.util;
 
 import static org.mariotaku.twidere.util.Utils.copyStream;
-import static org.mariotaku.twidere.util.Utils.getBestCacheDir;
 import static org.mariotaku.twidere.util.Utils.getImageLoaderHttpClient;
 import static org.mariotaku.twidere.util.Utils.getRedirectedHttpResponse;
-import static org.mariotaku.twidere.util.Utils.resizeBitmap;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.ref.Reference;
-import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-import org.mariotaku.twidere.BuildConfig;
 import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.app.TwidereApplication;
 
 import twitter4j.TwitterException;
 import twitter4j.http.HttpClientWrapper;
 import twitter4j.http.HttpResponse;
-import android.app.Activity;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.widget.GridView;
 import android.widget.ImageView;
@@ -73,37 +72,59 @@ import android.widget.ListView;
 public class LazyImageLoader implements Constants {
 
 	private static final String LOGTAG = LazyImageLoader.class.getSimpleName();
-	private static final int DELAY_BEFORE_PURGE = 40000;
+	private static final int POOL_SIZE = 8;
+	private static final int MAX_QUEUE_SIZE = 64;
+	/**
+	 * Files up to this size are read into the buffer of the worker thread,
+	 * larger ones are decoded from the file. Buffers are never released, so
+	 * this bounds what the pools of all loaders keep, e.g. 1 MB for two
+	 * loaders.
+	 */
+	private static final int MAX_BUFFERED_FILE_SIZE = 64 * 1024;
+
+	/**
+	 * Every worker thread reads files into its own buffer, which only grows up
+	 * to {@link #MAX_BUFFERED_FILE_SIZE}.
+	 */
+	private static final ThreadLocal<byte[]> sReadBuffer = new ThreadLocal<byte[]>();
 
 	private final ArrayList<String> mBlacklist;
-	private final MemoryCache mMemoryCache;
+	private final BitmapMemoryCache mMemoryCache;
 	private final Context mContext;
-	private final FileCache mFileCache;
+	private final ImageFileCache mFileCache;
 	private final Map<ImageView, String> mImageViews = Collections
 			.synchronizedMap(new WeakHashMap<ImageView, String>());
-	private final ExecutorService mExecutor;
+	private final HashMap<String, ImageLoader> mLoadingTasks = new HashMap<String, ImageLoader>();
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private final PriorityBlockingQueue<Runnable> mQueue;
+	private final ThreadPoolExecutor mExecutor;
+	private final Object mPauseLock = new Object();
 	private final int mFallbackRes;
 	private final int mRequiredWidth, mRequiredHeight;
-	private final Handler mPurgeHandler;
-	private final MemoryPurger mPurger;
+	private final int mDensityDpi;
+	private final String mMemoryCacheKeyPrefix;
 
 	private HttpClientWrapper mClient;
+	private long mSequence;
+	private boolean mPaused;
 
 	public LazyImageLoader(final Context context, final String cache_dir_name, final int fallback_image_res,
-			final int required_width, final int required_height, final int mem_cache_capacity) {
-		if (DEBUG) {
-			Log.i(LOGTAG, "Initialized with capacity " + mem_cache_capacity);
-		}
+			final int required_width, final int required_height, final BitmapMemoryCache memory_cache) {
 		mContext = context;
-		mMemoryCache = new MemoryCache(mem_cache_capacity);
-		mFileCache = new FileCache(context, cache_dir_name);
-		mExecutor = Executors.newFixedThreadPool(8, new LowerPriorityThreadFactory());
+		mMemoryCache = memory_cache;
+		mFileCache = TwidereApplication.getInstance(context).getImageFileCache(cache_dir_name);
+		// Newest requests first, rows bound last are the ones on screen.
+		mQueue = new PriorityBlockingQueue<Runnable>(MAX_QUEUE_SIZE, new NewestFirstComparator());
+		mExecutor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 0L, TimeUnit.MILLISECONDS, mQueue,
+				new LowerPriorityThreadFactory());
+		mExecutor.prestartAllCoreThreads();
 		mFallbackRes = fallback_image_res;
-		mPurgeHandler = new Handler();
-		mPurger = new MemoryPurger(this);
 		mBlacklist = new ArrayList<String>();
 		mRequiredWidth = required_width % 2 == 0 ? required_width : required_width + 1;
 		mRequiredHeight = required_height % 2 == 0 ? required_height : required_height + 1;
+		mDensityDpi = context.getResources().getDisplayMetrics().densityDpi;
+		// Loaders share the memory cache, so keys must carry the decode size.
+		mMemoryCacheKeyPrefix = mRequiredWidth + "x" + mRequiredHeight + ":";
 		reloadConnectivitySettings();
 	}
 
@@ -118,20 +139,19 @@ public class LazyImageLoader implements Constants {
 		if (!mExecutor.isShutdown()) {
 			mExecutor.shutdown();
 		}
-
-		stopPurgeTimer();
+		setPaused(false);
 
 		clearMemoryCache();
 	}
 
 	public void clearFileCache() {
+		if (mFileCache == null) return;
 		mFileCache.clear();
 	}
 
 	public void clearMemoryCache() {
 		mMemoryCache.clear();
 		mBlacklist.clear();
-		System.gc();
 	}
 
 	public void displayImage(final ImageView view, final String url) {
@@ -141,14 +161,12 @@ public class LazyImageLoader implements Constants {
 			return;
 		}
 		mImageViews.put(view, url);
-		final Bitmap bitmap = mMemoryCache.get(url);
+		final Bitmap bitmap = mMemoryCache.get(getMemoryCacheKey(url));
 		if (bitmap != null) {
 			view.setImageBitmap(bitmap);
-			resetPurgeTimer();
 		} else if (!mBlacklist.contains(url)) {
 			queuePhoto(url, view);
 			view.setImageResource(mFallbackRes);
-			resetPurgeTimer();
 		} else {
 			view.setImageResource(mFallbackRes);
 		}
@@ -156,12 +174,10 @@ public class LazyImageLoader implements Constants {
 
 	public File getCachedImageFile(final String url) {
 		if (mFileCache == null) return null;
-		final File f = mFileCache.getFile(url);
-		if (ImageValidator.checkImageValidity(f))
-			return f;
-		else {
-			queuePhoto(url);
-		}
+		// Files are validated before they are committed to the cache.
+		final File f = mFileCache.get(url);
+		if (f != null) return f;
+		queuePhoto(url);
 		return null;
 	}
 
@@ -174,14 +190,23 @@ public class LazyImageLoader implements Constants {
 	}
 
 	/**
-	 * Stops the cache purger from running until it is reset again.
+	 * Holds back decoding while paused, e.g. while a list is flinging.
+	 * Downloads continue in the meantime.
 	 */
-	public void stopPurgeTimer() {
-		mPurgeHandler.removeCallbacks(mPurger);
+	public void setPaused(final boolean paused) {
+		synchronized (mPauseLock) {
+			if (mPaused == paused) return;
+			mPaused = paused;
+			if (!paused) {
+				mPauseLock.notifyAll();
+			}
+		}
 	}
 
 	/**
-	 * The file to decode.
+	 * The file to decode. The file is read only once, and the decoder scales
+	 * it straight to the required size, so no intermediate bitmap is created
+	 * on our side.
 	 * 
 	 * @return The resized and resampled bitmap, if can not be decoded it
 	 *         returns null.
@@ -195,30 +220,37 @@ public class LazyImageLoader implements Constants {
 		options.outHeight = 0;
 		options.inSampleSize = 1;
 
-		final String filePath = file.getAbsolutePath();
-		BitmapFactory.decodeFile(filePath, options);
+		final int length = (int) file.length();
+		final byte[] data = length > 0 && length <= MAX_BUFFERED_FILE_SIZE ? readFile(file, length) : null;
+		decodeBitmap(file, data, length, options);
 
 		if (options.outWidth > 0 && options.outHeight > 0) {
-			// Now see how much we need to scale it down.
-			int widthFactor = (options.outWidth + mRequiredWidth - 1) / mRequiredWidth;
-			final int heightFactor = (options.outHeight + mRequiredHeight - 1) / mRequiredHeight;
-			widthFactor = Math.max(widthFactor, heightFactor);
-			widthFactor = Math.max(widthFactor, 1);
-			// Now turn it into a power of two.
-			if (widthFactor > 1) {
-				if ((widthFactor & widthFactor - 1) != 0) {
-					while ((widthFactor & widthFactor - 1) != 0) {
-						widthFactor &= widthFactor - 1;
-					}
-
-					widthFactor <<= 1;
-				}
+			final int width = options.outWidth, height = options.outHeight;
+			// Fit the image in the required size.
+			final float scale = Math.min((float) mRequiredWidth / width, (float) mRequiredHeight / height);
+			// Subsample by the largest power of two which keeps it above the
+			// required size, the decoder scales down the rest.
+			int sample_size = 1;
+			while (sample_size * 2 * scale <= 1) {
+				sample_size <<= 1;
 			}
-			options.inSampleSize = widthFactor;
+			options.inSampleSize = sample_size;
 			options.inJustDecodeBounds = false;
-			final Bitmap bitmap = resizeBitmap(BitmapFactory.decodeFile(filePath, options), mRequiredWidth,
-					mRequiredHeight);
-			if (bitmap != null) return bitmap;
+			if (scale < 1) {
+				final int sampled_width = Math.max(1, width / sample_size);
+				final int target_width = Math.max(1, Math.round(width * scale));
+				if (target_width < sampled_width) {
+					options.inScaled = true;
+					options.inDensity = sampled_width;
+					options.inTargetDensity = target_width;
+				}
+			}
+			final Bitmap bitmap = decodeBitmap(file, data, length, options);
+			if (bitmap != null) {
+				// Densities were only used as the scale ratio.
+				bitmap.setDensity(mDensityDpi);
+				return bitmap;
+			}
 		} else {
 			if (file.isFile() && file.length() == 0) {
 				file.delete();
@@ -231,20 +263,119 @@ public class LazyImageLoader implements Constants {
 		return null;
 	}
 
+	private String getMemoryCacheKey(final String url) {
+		return mMemoryCacheKeyPrefix + url;
+	}
+
+	/**
+	 * Only one task runs for each url, views bound to an url which is already
+	 * loading just wait for that task.
+	 */
 	private void queuePhoto(final String url, final ImageView imageview) {
+		if (url == null || mExecutor.isShutdown()) return;
 		final ImageToLoad p = new ImageToLoad(url, imageview);
-		mExecutor.submit(new ImageLoader(p));
+		synchronized (mLoadingTasks) {
+			final ImageLoader loading = mLoadingTasks.get(url);
+			if (loading != null) {
+				loading.addWaiter(p);
+				// Bound again, so it's visible now. Move it to the front if it
+				// hasn't been picked up yet.
+				if (imageview != null && mQueue.remove(loading)) {
+					loading.sequence = mSequence++;
+					mQueue.offer(loading);
+				}
+				return;
+			}
+			final ImageLoader loader = new ImageLoader(url);
+			loader.sequence = mSequence++;
+			loader.addWaiter(p);
+			mLoadingTasks.put(url, loader);
+			mExecutor.execute(loader);
+			trimQueue();
+		}
 	}
 
 	/**
-	 * Purges the cache every (DELAY_BEFORE_PURGE) milliseconds.
-	 * 
-	 * @see DELAY_BEFORE_PURGE
+	 * Drops queued requests nobody waits for anymore, then the oldest ones,
+	 * until the queue fits in {@link #MAX_QUEUE_SIZE}. Must be called with
+	 * {@link #mLoadingTasks} locked.
+	 */
+	private void trimQueue() {
+		if (mQueue.size() <= MAX_QUEUE_SIZE) return;
+		for (final Runnable r : mQueue) {
+			final ImageLoader loader = (ImageLoader) r;
+			if (!loader.hasWaiters() && mQueue.remove(loader)) {
+				mLoadingTasks.remove(loader.source);
+			}
+		}
+		while (mQueue.size() > MAX_QUEUE_SIZE) {
+			ImageLoader oldest = null;
+			for (final Runnable r : mQueue) {
+				final ImageLoader loader = (ImageLoader) r;
+				if (oldest == null || loader.sequence < oldest.sequence) {
+					oldest = loader;
+				}
+			}
+			if (oldest == null) return;
+			if (mQueue.remove(oldest)) {
+				mLoadingTasks.remove(oldest.source);
+			}
+		}
+	}
+
+	private static Bitmap decodeBitmap(final File file, final byte[] data, final int length,
+			final BitmapFactory.Options options) {
+		// decodeStream applies the density scaling on every platform version,
+		// decodeByteArray doesn't before Honeycomb.
+		if (data != null) return BitmapFactory.decodeStream(new ByteArrayInputStream(data, 0, length), null, options);
+		return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+	}
+
+	/**
+	 * @return Reused buffer holding the first {@code length} bytes of the
+	 *         file, or null if it can't be read.
 	 */
-	private void resetPurgeTimer() {
-		mPurgeHandler.removeCallbacks(mPurger);
-		mPurgeHandler.postDelayed(mPurger, DELAY_BEFORE_PURGE);
-	} // Both hard and soft caches are purged after 40 seconds idling.
+	private static byte[] readFile(final File file, final int length) {
+		byte[] buffer = sReadBuffer.get();
+		if (buffer == null || buffer.length < length) {
+			buffer = new byte[Math.min(Math.max(length, 16 * 1024), MAX_BUFFERED_FILE_SIZE)];
+			sReadBuffer.set(buffer);
+		}
+		FileInputStream is = null;
+		try {
+			is = new FileInputStream(file);
+			int offset = 0;
+			while (offset < length) {
+				final int count = is.read(buffer, offset, length - offset);
+				if (count < 0) return null;
+				offset += count;
+			}
+			return buffer;
+		} catch (final IOException e) {
+			return null;
+		} finally {
+			if (is != null) {
+				try {
+					is.close();
+				} catch (final IOException e) {
+					// Ignore.
+				}
+			}
+		}
+	}
+
+	private void waitIfPaused() {
+		synchronized (mPauseLock) {
+			while (mPaused) {
+				try {
+					mPauseLock.wait();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
 
 	boolean imageViewReused(final ImageToLoad imagetoload) {
 		final Object tag = mImageViews.get(imagetoload.view);
@@ -255,248 +386,203 @@ public class LazyImageLoader implements Constants {
 	// Used to display bitmap in the UI thread
 	class BitmapDisplayer implements Runnable {
 
-		Bitmap bitmap;
-		ImageToLoad imagetoload;
+		final Bitmap bitmap;
+		final List<ImageToLoad> waiters;
 
-		public BitmapDisplayer(final Bitmap b, final ImageToLoad p) {
+		public BitmapDisplayer(final Bitmap b, final List<ImageToLoad> waiters) {
 			bitmap = b;
-			imagetoload = p;
+			this.waiters = waiters;
 		}
 
 		@Override
 		public final void run() {
-			if (imageViewReused(imagetoload)) return;
-			if (bitmap != null) {
-				imagetoload.view.setImageBitmap(bitmap);
-			} else {
-				imagetoload.view.setImageResource(mFallbackRes);
-			}
-		}
-	}
-
-	static class FileCache {
-
-		private final String mCacheDirName;
-
-		private File mCacheDir;
-		private final Context mContext;
-
-		public FileCache(final Context context, final String cache_dir_name) {
-			mContext = context;
-			mCacheDirName = cache_dir_name;
-			init();
-		}
-
-		public void clear() {
-			if (mCacheDir == null) return;
-			final File[] files = mCacheDir.listFiles();
-			if (files == null) return;
-			for (final File f : files) {
-				f.delete();
-			}
-		}
-
-		public File getFile(final String url) {
-			if (mCacheDir == null) return null;
-			final String filename = getFilename(url);
-			if (filename == null) return null;
-			final File file = new File(mCacheDir, filename);
-			return file;
-		}
-
-		public void init() {
-			/* Find the dir to save cached images. */
-			mCacheDir = getBestCacheDir(mContext, mCacheDirName);
-			if (mCacheDir != null && !mCacheDir.exists()) {
-				mCacheDir.mkdirs();
+			for (final ImageToLoad imagetoload : waiters) {
+				if (imagetoload.view == null || imageViewReused(imagetoload)) {
+					continue;
+				}
+				if (bitmap != null) {
+					imagetoload.view.setImageBitmap(bitmap);
+				} else {
+					imagetoload.view.setImageResource(mFallbackRes);
+				}
 			}
 		}
-
-		private String getFilename(final String url) {
-			if (url == null) return null;
-			return url.replaceFirst("https?:\\/\\/", "").replaceAll("[^\\w\\d]", "_");
-		}
-
 	}
 
+	/**
+	 * Fetches and decodes one url for every view waiting for it. Waiters are
+	 * guarded by {@link LazyImageLoader#mLoadingTasks}.
+	 */
 	class ImageLoader implements Runnable {
-		private final ImageToLoad imagetoload;
+		private final String source;
+		private final ArrayList<ImageToLoad> waiters = new ArrayList<ImageToLoad>();
+		private boolean preload;
+		volatile long sequence;
 
-		public ImageLoader(final ImageToLoad imagetoload) {
-			this.imagetoload = imagetoload;
+		public ImageLoader(final String source) {
+			this.source = source;
 		}
 
 		public Bitmap getBitmap(final String url) {
 			if (url == null) return null;
-			final File cache_file = mFileCache.getFile(url);
 
 			// from SD cache
-			final Bitmap cached_bitmap = decodeFile(cache_file, url);
-			if (cached_bitmap != null) return cached_bitmap;
+			final File cache_file = mFileCache.get(url);
+			if (cache_file != null) {
+				// A preload only needs the file.
+				waitIfPaused();
+				if (!checkWaiters(true)) return null;
+				final Bitmap cached_bitmap = decodeFile(cache_file, url);
+				if (cached_bitmap != null) return cached_bitmap;
+				mFileCache.remove(url);
+			}
 
-			// from web
+			// from web, unless every view waiting for it has been recycled.
+			if (!checkWaiters(false)) return null;
+			final ImageFileCache.Editor editor = mFileCache.edit(url);
+			if (editor == null) return null;
 			try {
 				final HttpResponse resp = getRedirectedHttpResponse(mClient, url);
 
 				if (resp != null && resp.getStatusCode() == 200) {
 					final InputStream is = resp.asStream();
-					final OutputStream os = new FileOutputStream(cache_file);
-					copyStream(is, os);
-					os.flush();
-					os.close();
-					final Bitmap bitmap = decodeFile(cache_file, url);
-					if (bitmap == null) {
-						// The file is corrupted, so we remove it from cache.
-						if (cache_file.isFile() && cache_file.length() == 0) {
-							cache_file.delete();
-						}
-					} else
-						return bitmap;
+					final OutputStream os = editor.newOutputStream();
+					try {
+						copyStream(is, os);
+						os.flush();
+					} finally {
+						os.close();
+					}
+					// Never let a truncated download into the cache.
+					if (ImageValidator.checkImageValidity(editor.getFile())) {
+						final File file = editor.commit();
+						waitIfPaused();
+						return checkWaiters(true) ? decodeFile(file, url) : null;
+					}
 				}
 			} catch (final FileNotFoundException e) {
-				// Storage state may changed, so call FileCache.init() again.
+				// Storage state may changed, so reload the cache.
 				Log.w(LOGTAG, e);
-				mFileCache.init();
+				mFileCache.reload();
 			} catch (final IOException e) {
 				Log.w(LOGTAG, e);
 			} catch (final TwitterException e) {
 				Log.w(LOGTAG, e);
+			} finally {
+				editor.abortUnlessCommitted();
 			}
 			return null;
 		}
 
 		@Override
 		public void run() {
-			if (imageViewReused(imagetoload) || imagetoload.source == null) return;
-			final Bitmap bmp = getBitmap(imagetoload.source);
-			mMemoryCache.put(imagetoload.source, bmp);
-			if (imageViewReused(imagetoload)) return;
-			final BitmapDisplayer bd = new BitmapDisplayer(bmp, imagetoload);
-			final Activity a = (Activity) imagetoload.view.getContext();
-			a.runOnUiThread(bd);
+			if (!checkWaiters(false)) return;
+			final Bitmap cached = mMemoryCache.get(getMemoryCacheKey(source));
+			finish(cached != null ? cached : getBitmap(source));
 		}
-	}
-
-	static class ImageToLoad {
-		public final String source;
-		public final ImageView view;
 
-		public ImageToLoad(final String source, final ImageView imageview) {
-			this.source = source;
-			view = imageview;
+		void addWaiter(final ImageToLoad imagetoload) {
+			if (imagetoload.view == null) {
+				preload = true;
+				return;
+			}
+			for (final ImageToLoad waiter : waiters) {
+				if (waiter.view == imagetoload.view) return;
+			}
+			waiters.add(imagetoload);
 		}
-	}
 
-	static class LowerPriorityThreadFactory implements ThreadFactory {
-
-		@Override
-		public Thread newThread(final Runnable r) {
-			final Thread t = new Thread(r);
-			t.setPriority(3);
-			return t;
+		private void finish(final Bitmap bitmap) {
+			final ArrayList<ImageToLoad> to_notify;
+			synchronized (mLoadingTasks) {
+				// Put the bitmap before unregistering, so new binds of this
+				// url hit the memory cache instead of starting a new task.
+				mMemoryCache.put(getMemoryCacheKey(source), bitmap);
+				unregister();
+				to_notify = new ArrayList<ImageToLoad>(waiters);
+			}
+			if (to_notify.isEmpty()) return;
+			mHandler.post(new BitmapDisplayer(bitmap, to_notify));
 		}
 
-	}
-
-	static class MemoryCache {
-
-		private final Map<String, SoftReference<Bitmap>> mSoftCache;
-		private final LinkedHashMap<String, Bitmap> mHardCache;
-
-		public MemoryCache(final int max_capacity) {
-			mSoftCache = new HashMap<String, SoftReference<Bitmap>>(max_capacity / 2);
-			mHardCache = new HardBitmapCache(mSoftCache, max_capacity / 2);
+		/**
+		 * Decides whether to go on and unregisters this task if not, under the
+		 * lock waiters are added with. A view bound after this task gave up
+		 * then starts a new task, instead of waiting for a bitmap which won't
+		 * be decoded.
+		 *
+		 * @param need_view Whether a preload request is not enough to go on.
+		 * @return Whether the task should go on.
+		 */
+		private boolean checkWaiters(final boolean need_view) {
+			synchronized (mLoadingTasks) {
+				if (need_view ? hasViewWaiters() : hasWaiters()) return true;
+				unregister();
+				// Views which are bound to this url again wait for the new
+				// task, don't show the fallback image on them.
+				waiters.clear();
+				return false;
+			}
 		}
 
-		public void clear() {
-			try {
-				mHardCache.clear();
-				mSoftCache.clear();
-			} catch (final Exception e) {
-				Log.e(LOGTAG, "Unknown exception", e);
+		/**
+		 * @return Whether someone is still interested in this url.
+		 */
+		private boolean hasWaiters() {
+			synchronized (mLoadingTasks) {
+				return preload || hasViewWaiters();
 			}
 		}
 
-		public Bitmap get(final String key) {
-			if (key == null) return null;
-			try {
-				synchronized (mHardCache) {
-					final Bitmap bitmap = mHardCache.get(key);
-					if (bitmap != null && key != null) {
-						// Put bitmap on top of cache so it's purged last.
-						mHardCache.remove(key);
-						mHardCache.put(key, bitmap);
-						return bitmap;
-					}
+		private boolean hasViewWaiters() {
+			synchronized (mLoadingTasks) {
+				for (final ImageToLoad waiter : waiters) {
+					if (!imageViewReused(waiter)) return true;
 				}
-				final Reference<Bitmap> bitmapRef = mSoftCache.get(key);
-				if (bitmapRef != null) {
-					final Bitmap bitmap = bitmapRef.get();
-					if (bitmap != null)
-						return bitmap;
-					else {
-						// Must have been collected by the Garbage Collector
-						// so we remove the bucket from the cache.
-						mSoftCache.remove(key);
-					}
-				}
-			} catch (final Exception e) {
-				Log.e(LOGTAG, "Unknown exception", e);
+				return false;
 			}
-			// Could not locate the bitmap in any of the caches, so we return
-			// null.
-			return null;
-
 		}
 
-		public void put(final String key, final Bitmap bitmap) {
-			if (key == null || bitmap == null) return;
-			try {
-				mHardCache.put(key, bitmap);
-			} catch (final Exception e) {
-				Log.e(LOGTAG, "Unknown exception", e);
+		/**
+		 * Must be called with {@link LazyImageLoader#mLoadingTasks} locked.
+		 */
+		private void unregister() {
+			// A newer task may have been registered for this url already.
+			if (mLoadingTasks.get(source) == this) {
+				mLoadingTasks.remove(source);
 			}
 		}
+	}
 
-		static class HardBitmapCache extends LinkedHashMap<String, Bitmap> {
-
-			private static final long serialVersionUID = 1347795807259717646L;
-			private final Map<String, SoftReference<Bitmap>> soft_cache;
-			private final int capacity;
-
-			HardBitmapCache(final Map<String, SoftReference<Bitmap>> soft_cache, final int capacity) {
-				super(capacity);
-				this.soft_cache = soft_cache;
-				this.capacity = capacity;
-			}
+	static class ImageToLoad {
+		public final String source;
+		public final ImageView view;
 
-			@Override
-			protected boolean removeEldestEntry(final LinkedHashMap.Entry<String, Bitmap> eldest) {
-				// Moves the last used item in the hard cache to the soft cache.
-				if (size() > capacity) {
-					soft_cache.put(eldest.getKey(), new SoftReference<Bitmap>(eldest.getValue()));
-					return true;
-				} else
-					return false;
-			}
+		public ImageToLoad(final String source, final ImageView imageview) {
+			this.source = source;
+			view = imageview;
 		}
 	}
 
-	static class MemoryPurger implements Runnable {
-
-		private final LazyImageLoader loader;
+	static class NewestFirstComparator implements Comparator<Runnable> {
 
-		MemoryPurger(final LazyImageLoader loader) {
-			this.loader = loader;
+		@Override
+		public int compare(final Runnable lhs, final Runnable rhs) {
+			final long l = ((ImageLoader) lhs).sequence, r = ((ImageLoader) rhs).sequence;
+			return l > r ? -1 : l < r ? 1 : 0;
 		}
 
+	}
+
+	static class LowerPriorityThreadFactory implements ThreadFactory {
+
 		@Override
-		public void run() {
-			if (BuildConfig.DEBUG) {
-				Log.d(LOGTAG, "Purge Timer hit; Clearing Caches.");
-			}
-			loader.clearMemoryCache();
+		public Thread newThread(final Runnable r) {
+			final Thread t = new Thread(r);
+			t.setPriority(3);
+			return t;
 		}
+
 	}
 
 }
@@ -27,9 +27,15 @@ import android.content.Intent;
 public abstract class ManagedAsyncTask<Params, Progress, Result> extends AsyncTask<Params, Progress, Result> implements
 		Constants {
 
+	public static final int PRIORITY_LOW = -1;
+	public static final int PRIORITY_NORMAL = 0;
+	public static final int PRIORITY_HIGH = 1;
+
 	private final AsyncTaskManager manager;
 	private final Context context;
 	private final String tag;
+	private final Object workerLock = new Object();
+	private Thread worker;
 
 	public ManagedAsyncTask(final Context context, final AsyncTaskManager manager) {
 		this(context, manager, null);
@@ -41,29 +47,83 @@ public abstract class ManagedAsyncTask<Params, Progress, Result> extends AsyncTa
 		this.tag = tag;
 	}
 
+	/**
+	 * Also interrupts the thread of {@link AsyncTaskManager} running this task
+	 * if {@code mayInterruptIfRunning} is true, like a task running on its own
+	 * thread.
+	 */
+	@Override
+	public void cancel(final boolean mayInterruptIfRunning) {
+		super.cancel(mayInterruptIfRunning);
+		if (!mayInterruptIfRunning) return;
+		synchronized (workerLock) {
+			if (worker != null) {
+				worker.interrupt();
+			}
+		}
+	}
+
 	public Context getContext() {
 		return context;
 	}
 
+	/**
+	 * @return Priority in queue of {@link AsyncTaskManager}, tasks with higher
+	 *         priority run first.
+	 */
+	public int getPriority() {
+		return PRIORITY_NORMAL;
+	}
+
 	public String getTag() {
 		return tag;
 	}
 
+	/**
+	 * Called by {@link AsyncTaskManager} before running this task on the
+	 * current thread.
+	 */
+	void attachWorker() {
+		synchronized (workerLock) {
+			worker = Thread.currentThread();
+		}
+	}
+
+	/**
+	 * Called by {@link AsyncTaskManager} after this task ran, an interrupt
+	 * meant for this task must not reach the next one on the same thread.
+	 */
+	void detachWorker() {
+		synchronized (workerLock) {
+			worker = null;
+			Thread.interrupted();
+		}
+	}
+
 	@Override
-	protected void finalize() throws Throwable {
-		manager.remove(hashCode());
-		super.finalize();
+	protected void executeInBackground(final Runnable runnable) {
+		if (manager != null) {
+			manager.submit(this, runnable);
+		} else {
+			super.executeInBackground(runnable);
+		}
 	}
 
 	@Override
 	protected void onCancelled() {
 		super.onCancelled();
+		if (manager != null) {
+			manager.remove(hashCode());
+		}
 		context.sendBroadcast(new Intent(BROADCAST_TASK_STATE_CHANGED));
 	}
 
 	@Override
 	protected void onPostExecute(final Result result) {
 		super.onPostExecute(result);
+		if (manager != null) {
+			manager.remove(hashCode());
+		}
 		context.sendBroadcast(new Intent(BROADCAST_TASK_STATE_CHANGED));
 	}
 
@@ -0,0 +1,142 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.mariotaku.twidere.Constants;
+
+import android.graphics.BitmapRegionDecoder;
+
+/**
+ * Keeps region decoders of recently viewed images, so opening the same image
+ * again doesn't parse it again.</br> </br> Decoders may be used by several
+ * viewers at once, callers must synchronize on the decoder while decoding,
+ * and check {@link BitmapRegionDecoder#isRecycled()} there. Every decoder
+ * returned by {@link #get(File)} must be given back with
+ * {@link #release(BitmapRegionDecoder)}. A decoder is recycled once it's
+ * neither in the pool nor held by anyone.
+ *
+ * @author mariotaku
+ */
+public class RegionDecoderPool implements Constants {
+
+	private static final int MAX_ENTRIES = 3;
+
+	private final LinkedHashMap<String, BitmapRegionDecoder> mDecoders = new LinkedHashMap<String, BitmapRegionDecoder>(
+			MAX_ENTRIES, 0.75f, true) {
+
+		private static final long serialVersionUID = -3787284327478557316L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, BitmapRegionDecoder> eldest) {
+			if (size() <= MAX_ENTRIES) return false;
+			// Removed here, so it can be recycled after it left the pool.
+			final BitmapRegionDecoder decoder = eldest.getValue();
+			remove(eldest.getKey());
+			recycleIfUnused(decoder);
+			return false;
+		}
+
+	};
+
+	private final IdentityHashMap<BitmapRegionDecoder, Integer> mReferences = new IdentityHashMap<BitmapRegionDecoder, Integer>();
+
+	public synchronized void clear() {
+		final ArrayList<BitmapRegionDecoder> decoders = new ArrayList<BitmapRegionDecoder>(mDecoders.values());
+		mDecoders.clear();
+		for (final BitmapRegionDecoder decoder : decoders) {
+			recycleIfUnused(decoder);
+		}
+	}
+
+	/**
+	 * @return Decoder of {@code file}, opened if it's not in the pool. Call
+	 *         {@link #release(BitmapRegionDecoder)} when it's not used
+	 *         anymore.
+	 */
+	public BitmapRegionDecoder get(final File file) throws IOException {
+		final String key = ImageTileCache.getImageKey(file);
+		if (key == null) return null;
+		synchronized (this) {
+			final BitmapRegionDecoder cached = mDecoders.get(key);
+			if (cached != null && !cached.isRecycled()) {
+				acquire(cached);
+				return cached;
+			}
+		}
+		final BitmapRegionDecoder decoder = BitmapRegionDecoder.newInstance(file.getAbsolutePath(), false);
+		if (decoder == null) return null;
+		synchronized (this) {
+			acquire(decoder);
+			// Another viewer may have opened the same file meanwhile.
+			final BitmapRegionDecoder replaced = mDecoders.put(key, decoder);
+			if (replaced != null && replaced != decoder) {
+				recycleIfUnused(replaced);
+			}
+		}
+		return decoder;
+	}
+
+	/**
+	 * Gives back a decoder returned by {@link #get(File)}. Decoders not
+	 * opened by the pool are owned by the caller alone, so they are recycled
+	 * right away.
+	 */
+	public synchronized void release(final BitmapRegionDecoder decoder) {
+		if (decoder == null) return;
+		final Integer references = mReferences.get(decoder);
+		if (references != null && references > 1) {
+			mReferences.put(decoder, references - 1);
+			return;
+		}
+		mReferences.remove(decoder);
+		if (!mDecoders.containsValue(decoder)) {
+			recycle(decoder);
+		}
+	}
+
+	private void acquire(final BitmapRegionDecoder decoder) {
+		final Integer references = mReferences.get(decoder);
+		mReferences.put(decoder, references != null ? references + 1 : 1);
+	}
+
+	/**
+	 * Must be called after {@code decoder} left the pool.
+	 */
+	private void recycleIfUnused(final BitmapRegionDecoder decoder) {
+		if (!mReferences.containsKey(decoder)) {
+			recycle(decoder);
+		}
+	}
+
+	private static void recycle(final BitmapRegionDecoder decoder) {
+		// Waits for a region being decoded by a viewer which just let it go.
+		synchronized (decoder) {
+			decoder.recycle();
+		}
+	}
+
+}
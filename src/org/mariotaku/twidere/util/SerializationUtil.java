@@ -30,6 +30,10 @@ import java.io.ObjectOutputStream;
 import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mariotaku.twidere.model.ParcelableStatus;
 
 import android.content.Context;
 
@@ -76,6 +80,24 @@ public class SerializationUtil {
 		}
 	}
 
+	/**
+	 * Reads statuses written by {@link #writeStatuses(List, Long, String)}.
+	 */
+	public static SynchronizedStatusesList readStatuses(final String path) throws IOException {
+		if (path == null) return null;
+		final CompactCodec.Reader in = CompactCodec.Reader.open(new File(path));
+		final Long state = in.readBoolean() ? in.readLong() : null;
+		final int count = in.readInt();
+		if (count < 0) throw new IOException("Invalid statuses count " + count);
+		final List<ParcelableStatus> statuses = new ArrayList<ParcelableStatus>(Math.min(count, 1024));
+		for (int i = 0; i < count; i++) {
+			statuses.add(new ParcelableStatus(in));
+		}
+		final SynchronizedStatusesList list = new SynchronizedStatusesList(statuses);
+		list.setState(state);
+		return list;
+	}
+
 	public static void write(final Object object, final String path) throws IOException {
 		if (object == null || path == null) return;
 		ObjectOutputStream os = null;
@@ -91,4 +113,23 @@ public class SerializationUtil {
 		}
 	}
 
+	/**
+	 * Writes statuses with {@link CompactCodec}, {@code state} is usually
+	 * the last viewed status id and can be null.
+	 */
+	public static void writeStatuses(final List<ParcelableStatus> statuses, final Long state, final String path)
+			throws IOException {
+		if (statuses == null || path == null) return;
+		final CompactCodec.Writer out = new CompactCodec.Writer();
+		out.writeBoolean(state != null);
+		if (state != null) {
+			out.writeLong(state);
+		}
+		out.writeInt(statuses.size());
+		for (final ParcelableStatus status : statuses) {
+			status.writeTo(out);
+		}
+		out.writeTo(new File(path));
+	}
+
 }
@@ -0,0 +1,307 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.model.ParcelableStatus;
+import org.mariotaku.twidere.provider.TweetStore.Filters;
+import org.mariotaku.twidere.provider.TweetStore.Statuses;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+/**
+ * Evaluates the user defined filters in memory.</br> </br> Filter tables are
+ * read once, keywords and links are compiled into {@link AhoCorasickMatcher}s,
+ * users and sources are kept in hash sets. When a filter table changes, only
+ * that table is read again with {@link #reload(int)}. Statuses are marked
+ * with {@link Statuses#IS_FILTERED} when they are stored, so timeline queries
+ * don't need to touch filter tables at all. Verdicts of loaded statuses are
+ * remembered until filters change, see {@link #getFilteredStatuses(Collection)}.
+ *
+ * @author mariotaku
+ */
+public final class StatusFilterEngine implements Constants {
+
+	private static final String LOGTAG = StatusFilterEngine.class.getSimpleName();
+
+	private static final String ANCHOR_HREF_START = "<a href=\"";
+	private static final String ANCHOR_END = "</a>";
+
+	private static final int MAX_VERDICTS = 2000;
+
+	private static final String[] FILTERED_STATUS_COLUMNS = new String[] { Statuses._ID, Statuses.TEXT_PLAIN,
+			Statuses.TEXT_HTML, Statuses.SCREEN_NAME, Statuses.SOURCE, Statuses.IS_FILTERED };
+
+	private final SQLiteDatabase mDatabase;
+
+	private volatile AhoCorasickMatcher mKeywords, mLinks;
+	private volatile Set<String> mUsers, mSources;
+	private volatile boolean mLoaded;
+	private volatile LruCache<VerdictKey, Boolean> mVerdicts = new LruCache<VerdictKey, Boolean>(MAX_VERDICTS);
+
+	public StatusFilterEngine(final SQLiteDatabase database) {
+		mDatabase = database;
+	}
+
+	/**
+	 * Evaluates filters for a batch of loaded statuses. Statuses checked
+	 * before are not evaluated again unless filters have changed since then.
+	 * Gaps are never filtered.
+	 *
+	 * @return Statuses which should be filtered out.
+	 */
+	public List<ParcelableStatus> getFilteredStatuses(final Collection<ParcelableStatus> statuses) {
+		final List<ParcelableStatus> filtered = new ArrayList<ParcelableStatus>();
+		if (statuses == null || statuses.isEmpty()) return filtered;
+		// Taken before filters are read, so a concurrent reload never leaves
+		// verdicts of old filters in the new cache.
+		final LruCache<VerdictKey, Boolean> verdicts = mVerdicts;
+		ensureLoaded();
+		for (final ParcelableStatus status : statuses) {
+			if (status == null || status.is_gap) {
+				continue;
+			}
+			final VerdictKey key = new VerdictKey(status.account_id, status.status_id);
+			Boolean verdict = verdicts.get(key);
+			if (verdict == null) {
+				verdict = isFiltered(status);
+				verdicts.put(key, verdict);
+			}
+			if (verdict) {
+				filtered.add(status);
+			}
+		}
+		return filtered;
+	}
+
+	public boolean isFiltered(final ContentValues values) {
+		if (values == null) return false;
+		return isFiltered(values.getAsString(Statuses.TEXT_PLAIN), values.getAsString(Statuses.TEXT_HTML),
+				values.getAsString(Statuses.SCREEN_NAME), values.getAsString(Statuses.SOURCE));
+	}
+
+	public boolean isFiltered(final ParcelableStatus status) {
+		if (status == null) return false;
+		return isFiltered(status.text_plain, status.text_html, status.screen_name, status.source);
+	}
+
+	public boolean isFiltered(final String text_plain, final String text_html, final String screen_name,
+			final String source) {
+		ensureLoaded();
+		if (screen_name != null && mUsers.contains(screen_name.toLowerCase(Locale.US))) return true;
+		if (mKeywords.containsAny(text_plain)) return true;
+		if (isSourceFiltered(source)) return true;
+		return isLinkFiltered(text_html);
+	}
+
+	/**
+	 * Evaluates filters again for all rows of a statuses table, and updates
+	 * {@link Statuses#IS_FILTERED} of rows whose result has changed.
+	 *
+	 * @return Number of rows updated.
+	 */
+	public int markFilteredStatuses(final String table) {
+		if (mDatabase == null || table == null) return 0;
+		ensureLoaded();
+		int count = 0;
+		mDatabase.beginTransaction();
+		final SQLiteStatement update = mDatabase.compileStatement("UPDATE " + table + " SET "
+				+ Statuses.IS_FILTERED + " = ? WHERE " + Statuses._ID + " = ?");
+		final Cursor cur = mDatabase.query(table, FILTERED_STATUS_COLUMNS, null, null, null, null, null);
+		try {
+			if (cur == null) return 0;
+			cur.moveToFirst();
+			while (!cur.isAfterLast()) {
+				final boolean filtered = isFiltered(cur.getString(1), cur.getString(2), cur.getString(3),
+						cur.getString(4));
+				if (cur.isNull(5) || (cur.getInt(5) == 1) != filtered) {
+					update.bindLong(1, filtered ? 1 : 0);
+					update.bindLong(2, cur.getLong(0));
+					update.execute();
+					count++;
+				}
+				cur.moveToNext();
+			}
+			mDatabase.setTransactionSuccessful();
+		} finally {
+			if (cur != null) {
+				cur.close();
+			}
+			update.close();
+			mDatabase.endTransaction();
+		}
+		if (DEBUG) {
+			Log.d(LOGTAG, "Marked " + count + " rows in " + table);
+		}
+		return count;
+	}
+
+	/**
+	 * Reads filter table with id {@code table_id} again.
+	 *
+	 * @return true if {@code table_id} is a filter table.
+	 */
+	public synchronized boolean reload(final int table_id) {
+		switch (table_id) {
+			case TABLE_ID_FILTERED_USERS: {
+				mUsers = loadSet(TABLE_FILTERED_USERS);
+				break;
+			}
+			case TABLE_ID_FILTERED_KEYWORDS: {
+				mKeywords = new AhoCorasickMatcher(loadTexts(TABLE_FILTERED_KEYWORDS));
+				break;
+			}
+			case TABLE_ID_FILTERED_SOURCES: {
+				mSources = loadSet(TABLE_FILTERED_SOURCES);
+				break;
+			}
+			case TABLE_ID_FILTERED_LINKS: {
+				mLinks = new AhoCorasickMatcher(loadTexts(TABLE_FILTERED_LINKS));
+				break;
+			}
+			default:
+				return false;
+		}
+		mVerdicts = new LruCache<VerdictKey, Boolean>(MAX_VERDICTS);
+		return true;
+	}
+
+	private void ensureLoaded() {
+		if (mLoaded) return;
+		synchronized (this) {
+			if (mLoaded) return;
+			reload(TABLE_ID_FILTERED_USERS);
+			reload(TABLE_ID_FILTERED_KEYWORDS);
+			reload(TABLE_ID_FILTERED_SOURCES);
+			reload(TABLE_ID_FILTERED_LINKS);
+			mLoaded = true;
+		}
+	}
+
+	/**
+	 * Matches link patterns against URLs and texts of all anchors in
+	 * {@code text_html}.
+	 */
+	private boolean isLinkFiltered(final String text_html) {
+		final AhoCorasickMatcher links = mLinks;
+		if (text_html == null || links.isEmpty()) return false;
+		int start = text_html.indexOf(ANCHOR_HREF_START);
+		while (start >= 0) {
+			final int href_start = start + ANCHOR_HREF_START.length();
+			final int href_end = text_html.indexOf('"', href_start);
+			if (href_end < 0) return false;
+			if (links.containsAny(text_html, href_start, href_end)) return true;
+			final int text_start = text_html.indexOf('>', href_end);
+			final int text_end = text_start >= 0 ? text_html.indexOf(ANCHOR_END, text_start) : -1;
+			if (text_end < 0) return false;
+			if (links.containsAny(text_html, text_start + 1, text_end)) return true;
+			start = text_html.indexOf(ANCHOR_HREF_START, text_end);
+		}
+		return false;
+	}
+
+	/**
+	 * Source is formatted as {@code <a href="...">Name</a>}, only the name is
+	 * used.
+	 */
+	private boolean isSourceFiltered(final String source) {
+		final Set<String> sources = mSources;
+		if (source == null || sources.isEmpty()) return false;
+		final int end = source.lastIndexOf(ANCHOR_END);
+		final String name;
+		if (end >= 0) {
+			name = source.substring(source.lastIndexOf('>', end) + 1, end);
+		} else {
+			name = source;
+		}
+		return sources.contains(name.toLowerCase(Locale.US));
+	}
+
+	private Set<String> loadSet(final String table) {
+		final List<String> texts = loadTexts(table);
+		if (texts.isEmpty()) return Collections.emptySet();
+		final Set<String> set = new HashSet<String>();
+		for (final String text : texts) {
+			set.add(text.toLowerCase(Locale.US));
+		}
+		return set;
+	}
+
+	private List<String> loadTexts(final String table) {
+		final List<String> texts = new ArrayList<String>();
+		if (mDatabase == null) return texts;
+		final Cursor cur = mDatabase.query(table, new String[] { Filters.TEXT }, null, null, null, null, null);
+		if (cur == null) return texts;
+		try {
+			cur.moveToFirst();
+			while (!cur.isAfterLast()) {
+				final String text = cur.getString(0);
+				if (text != null && text.length() > 0) {
+					texts.add(text);
+				}
+				cur.moveToNext();
+			}
+		} finally {
+			cur.close();
+		}
+		if (DEBUG) {
+			Log.d(LOGTAG, "Loaded " + texts.size() + " filters from " + table);
+		}
+		return texts;
+	}
+
+	private static final class VerdictKey {
+
+		private final long account_id, status_id;
+
+		VerdictKey(final long account_id, final long status_id) {
+			this.account_id = account_id;
+			this.status_id = status_id;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof VerdictKey)) return false;
+			final VerdictKey other = (VerdictKey) obj;
+			return account_id == other.account_id && status_id == other.status_id;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 + (int) (account_id ^ account_id >>> 32)) + (int) (status_id ^ status_id >>> 32);
+		}
+
+	}
+
+}
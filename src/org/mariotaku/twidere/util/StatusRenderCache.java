@@ -0,0 +1,170 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import static org.mariotaku.twidere.util.HtmlEscapeHelper.toPlainText;
+
+import java.util.Collection;
+
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.model.StatusCursorIndices;
+import org.mariotaku.twidere.provider.TweetStore.Statuses;
+import org.mariotaku.twidere.util.TwidereLinkify.OnLinkClickListener;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.support.v4.util.LruCache;
+import android.text.Html;
+import android.text.SpannableString;
+import android.text.SpannedString;
+
+/**
+ * Caches rendered texts of status rows, keyed by account id, status id and
+ * display options.</br> </br> An entry holds the text ready to be set to the
+ * view, with link spans applied if link highlighting is enabled. Entries are
+ * prepared in background when statuses are stored or loaded, so binding a row
+ * only copies them to views. Preview image and mention flag are stored in
+ * statuses table, see {@link Statuses#IMAGE_PREVIEW_URL} and
+ * {@link Statuses#IS_MENTION}.
+ *
+ * @author mariotaku
+ */
+public final class StatusRenderCache implements Constants {
+
+	public static final int DEFAULT_MAX_ENTRIES = 500;
+
+	/**
+	 * Value of {@link #getOptions(Context)} when fast timeline processing is
+	 * enabled, nothing should be rendered in this case.
+	 */
+	public static final int OPTIONS_NONE = -1;
+
+	private static final int OPTION_PLAIN_TEXT = 0;
+	private static final int OPTION_LINK_HIGHLIGHTING = 1;
+
+	private final LruCache<Key, CharSequence> mCache;
+
+	public StatusRenderCache(final int max_entries) {
+		mCache = new LruCache<Key, CharSequence>(Math.max(1, max_entries));
+	}
+
+	public void clear() {
+		mCache.evictAll();
+	}
+
+	/**
+	 * Returns cached text, or renders it if it's not in the cache.
+	 */
+	public CharSequence get(final long account_id, final long status_id, final String text_html, final int options) {
+		if (text_html == null) return null;
+		final Key key = new Key(account_id, status_id, options);
+		final CharSequence cached = mCache.get(key);
+		if (cached != null) return cached;
+		final CharSequence text = render(text_html, options);
+		mCache.put(key, text);
+		return text;
+	}
+
+	/**
+	 * Renders statuses not in the cache yet, never call this on UI thread.
+	 */
+	public void prepare(final Collection<ContentValues> values_list, final int options) {
+		if (values_list == null || options == OPTIONS_NONE) return;
+		for (final ContentValues values : values_list) {
+			final Long account_id = values.getAsLong(Statuses.ACCOUNT_ID);
+			final Long status_id = values.getAsLong(Statuses.STATUS_ID);
+			if (account_id == null || status_id == null) {
+				continue;
+			}
+			get(account_id, status_id, values.getAsString(Statuses.TEXT_HTML), options);
+		}
+	}
+
+	/**
+	 * Renders first {@code limit} rows of {@code cursor} which are not in the
+	 * cache yet, never call this on UI thread. Cursor position will be reset.
+	 */
+	public void prepare(final Cursor cursor, final int options, final int limit) {
+		if (cursor == null || options == OPTIONS_NONE) return;
+		final StatusCursorIndices indices = new StatusCursorIndices(cursor);
+		if (indices.account_id < 0 || indices.status_id < 0 || indices.text_html < 0) return;
+		final int count = Math.min(cursor.getCount(), Math.min(limit, mCache.maxSize()));
+		for (int i = 0; i < count && cursor.moveToPosition(i); i++) {
+			if (indices.is_gap >= 0 && cursor.getShort(indices.is_gap) == 1) {
+				continue;
+			}
+			get(cursor.getLong(indices.account_id), cursor.getLong(indices.status_id),
+					cursor.getString(indices.text_html), options);
+		}
+		cursor.moveToPosition(-1);
+	}
+
+	private static CharSequence render(final String text_html, final int options) {
+		if (options != OPTION_LINK_HIGHLIGHTING) return toPlainText(text_html);
+		final SpannableString string = new SpannableString(Html.fromHtml(text_html));
+		// Rows are not clickable for links, so no listener is needed.
+		new TwidereLinkify((OnLinkClickListener) null).addAllLinks(string);
+		return new SpannedString(string);
+	}
+
+	public static int getOptions(final boolean link_highlighting) {
+		return link_highlighting ? OPTION_LINK_HIGHLIGHTING : OPTION_PLAIN_TEXT;
+	}
+
+	/**
+	 * Reads display options from preferences.
+	 */
+	public static int getOptions(final Context context) {
+		final SharedPreferences prefs = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
+		if (prefs.getBoolean(PREFERENCE_KEY_FAST_TIMELINE_PROCESSING, false)) return OPTIONS_NONE;
+		return getOptions(prefs.getBoolean(PREFERENCE_KEY_LINK_HIGHLIGHTING, false));
+	}
+
+	private static final class Key {
+
+		private final long account_id, status_id;
+		private final int options;
+
+		Key(final long account_id, final long status_id, final int options) {
+			this.account_id = account_id;
+			this.status_id = status_id;
+			this.options = options;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Key)) return false;
+			final Key other = (Key) obj;
+			return account_id == other.account_id && status_id == other.status_id && options == other.options;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = 31 + (int) (account_id ^ account_id >>> 32);
+			result = 31 * result + (int) (status_id ^ status_id >>> 32);
+			return 31 * result + options;
+		}
+
+	}
+
+}
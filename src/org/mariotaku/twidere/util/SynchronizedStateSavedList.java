@@ -44,6 +44,15 @@ public class SynchronizedStateSavedList<E, State extends Serializable> implement
 		list = Collections.synchronizedList(new NoDuplicatesArrayList<E>(collection));
 	}
 
+	/**
+	 * Wraps {@code backing_list}, which is responsible for rejecting
+	 * duplicates itself.
+	 */
+	protected SynchronizedStateSavedList(final List<E> backing_list, final State state) {
+		list = Collections.synchronizedList(backing_list);
+		this.state = state;
+	}
+
 	@Override
 	public boolean add(final E e) {
 		return list.add(e);
@@ -99,6 +108,14 @@ public class SynchronizedStateSavedList<E, State extends Serializable> implement
 		return list.get(location);
 	}
 
+	/**
+	 * @return Object to synchronize on when iterating this list, or when
+	 *         doing several operations atomically.
+	 */
+	protected final Object getLock() {
+		return list;
+	}
+
 	public State getState() {
 		return state;
 	}
@@ -0,0 +1,320 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.RandomAccess;
+
+import org.mariotaku.twidere.model.ParcelableStatus;
+
+/**
+ * Timeline of statuses, always sorted by status id, newest first.</br>
+ * </br> Statuses are kept in an ordered array which is also the index, so
+ * lookup, dedupe and removal by id take a binary search instead of a scan.
+ * Adding a page of statuses merges it with existing ones in one pass, a
+ * status already in the list is replaced by the newer copy. Positional
+ * {@code add(int, E)} and {@code set(int, E)} ignore the position and keep
+ * the order.
+ *
+ * @author mariotaku
+ */
+public class SynchronizedStatusesList extends SynchronizedStateSavedList<ParcelableStatus, Long> {
+
+	private static final long serialVersionUID = -3514270452374226925L;
+
+	private final SortedStatusList mStatuses;
+
+	public SynchronizedStatusesList() {
+		this(new SortedStatusList());
+	}
+
+	public SynchronizedStatusesList(final Collection<? extends ParcelableStatus> collection) {
+		this();
+		if (collection != null) {
+			addAll(collection);
+		}
+	}
+
+	private SynchronizedStatusesList(final SortedStatusList statuses) {
+		super(statuses, null);
+		mStatuses = statuses;
+	}
+
+	public boolean containsStatus(final long status_id) {
+		synchronized (getLock()) {
+			return mStatuses.indexOfStatus(status_id) >= 0;
+		}
+	}
+
+	/**
+	 * @return Status with {@code status_id}, or null if not found.
+	 */
+	public ParcelableStatus findStatus(final long status_id) {
+		synchronized (getLock()) {
+			final int index = mStatuses.indexOfStatus(status_id);
+			return index >= 0 ? mStatuses.get(index) : null;
+		}
+	}
+
+	/**
+	 * Removes all statuses with {@code status_id}, regardless of account.
+	 */
+	public boolean removeStatus(final long status_id) {
+		synchronized (getLock()) {
+			return mStatuses.removeStatus(status_id);
+		}
+	}
+
+	private static final class SortedStatusList extends AbstractList<ParcelableStatus> implements RandomAccess,
+			Serializable {
+
+		private static final long serialVersionUID = 2962187924127530632L;
+
+		private static final Comparator<ParcelableStatus> ORDER = new Comparator<ParcelableStatus>() {
+
+			@Override
+			public int compare(final ParcelableStatus lhs, final ParcelableStatus rhs) {
+				return SortedStatusList.compare(lhs, rhs.status_id, rhs.account_id);
+			}
+
+		};
+
+		private ArrayList<ParcelableStatus> mList = new ArrayList<ParcelableStatus>();
+
+		@Override
+		public boolean add(final ParcelableStatus status) {
+			if (status == null) return false;
+			final int index = search(status.status_id, status.account_id);
+			if (index >= 0) {
+				mList.set(index, status);
+			} else {
+				mList.add(-index - 1, status);
+				modCount++;
+			}
+			return true;
+		}
+
+		@Override
+		public void add(final int location, final ParcelableStatus status) {
+			add(status);
+		}
+
+		@Override
+		public boolean addAll(final Collection<? extends ParcelableStatus> collection) {
+			if (collection == null || collection.isEmpty()) return false;
+			if (collection.size() == 1) return add(collection.iterator().next());
+			final ArrayList<ParcelableStatus> incoming = new ArrayList<ParcelableStatus>(collection.size());
+			for (final ParcelableStatus status : collection) {
+				if (status != null) {
+					incoming.add(status);
+				}
+			}
+			// Stable sort, so the last copy of a duplicate stays last.
+			Collections.sort(incoming, ORDER);
+			final int size = mList.size(), incoming_size = incoming.size();
+			final ArrayList<ParcelableStatus> merged = new ArrayList<ParcelableStatus>(size + incoming_size);
+			int i = 0, j = 0;
+			while (i < size || j < incoming_size) {
+				if (j + 1 < incoming_size && ORDER.compare(incoming.get(j), incoming.get(j + 1)) == 0) {
+					j++;
+					continue;
+				}
+				if (j >= incoming_size) {
+					merged.add(mList.get(i++));
+					continue;
+				}
+				if (i >= size) {
+					merged.add(incoming.get(j++));
+					continue;
+				}
+				final int diff = ORDER.compare(mList.get(i), incoming.get(j));
+				if (diff < 0) {
+					merged.add(mList.get(i++));
+				} else if (diff > 0) {
+					merged.add(incoming.get(j++));
+				} else {
+					merged.add(incoming.get(j++));
+					i++;
+				}
+			}
+			mList = merged;
+			modCount++;
+			return true;
+		}
+
+		@Override
+		public boolean addAll(final int location, final Collection<? extends ParcelableStatus> collection) {
+			return addAll(collection);
+		}
+
+		@Override
+		public void clear() {
+			mList.clear();
+			modCount++;
+		}
+
+		@Override
+		public boolean contains(final Object object) {
+			return indexOf(object) >= 0;
+		}
+
+		@Override
+		public ParcelableStatus get(final int location) {
+			return mList.get(location);
+		}
+
+		@Override
+		public int indexOf(final Object object) {
+			if (!(object instanceof ParcelableStatus)) return -1;
+			final ParcelableStatus status = (ParcelableStatus) object;
+			final int index = search(status.status_id, status.account_id);
+			return index >= 0 ? index : -1;
+		}
+
+		@Override
+		public int lastIndexOf(final Object object) {
+			return indexOf(object);
+		}
+
+		@Override
+		public ParcelableStatus remove(final int location) {
+			final ParcelableStatus status = mList.remove(location);
+			modCount++;
+			return status;
+		}
+
+		@Override
+		public boolean remove(final Object object) {
+			final int index = indexOf(object);
+			if (index < 0) return false;
+			remove(index);
+			return true;
+		}
+
+		@Override
+		public boolean removeAll(final Collection<?> collection) {
+			if (collection == null || collection.isEmpty()) return false;
+			return retain(new HashSet<Object>(collection), false);
+		}
+
+		@Override
+		public boolean retainAll(final Collection<?> collection) {
+			if (collection == null) return false;
+			return retain(new HashSet<Object>(collection), true);
+		}
+
+		@Override
+		public ParcelableStatus set(final int location, final ParcelableStatus status) {
+			final ParcelableStatus old = mList.get(location);
+			if (status != null && compare(old, status.status_id, status.account_id) == 0) {
+				mList.set(location, status);
+				return old;
+			}
+			remove(location);
+			add(status);
+			return old;
+		}
+
+		@Override
+		public int size() {
+			return mList.size();
+		}
+
+		/**
+		 * @return Index of the first status with {@code status_id}, or -1.
+		 */
+		int indexOfStatus(final long status_id) {
+			int index = search(status_id, Long.MIN_VALUE);
+			if (index < 0) {
+				index = -index - 1;
+			}
+			return index < mList.size() && mList.get(index).status_id == status_id ? index : -1;
+		}
+
+		boolean removeStatus(final long status_id) {
+			final int start = indexOfStatus(status_id);
+			if (start < 0) return false;
+			int end = start + 1;
+			final int size = mList.size();
+			while (end < size && mList.get(end).status_id == status_id) {
+				end++;
+			}
+			mList.subList(start, end).clear();
+			modCount++;
+			return true;
+		}
+
+		@Override
+		protected void removeRange(final int start, final int end) {
+			mList.subList(start, end).clear();
+			modCount++;
+		}
+
+		private boolean retain(final HashSet<Object> set, final boolean keep_contained) {
+			final int size = mList.size();
+			final ArrayList<ParcelableStatus> retained = new ArrayList<ParcelableStatus>(size);
+			for (int i = 0; i < size; i++) {
+				final ParcelableStatus status = mList.get(i);
+				if (set.contains(status) == keep_contained) {
+					retained.add(status);
+				}
+			}
+			if (retained.size() == size) return false;
+			mList = retained;
+			modCount++;
+			return true;
+		}
+
+		/**
+		 * Binary search ordered by status id descending, then account id
+		 * ascending.
+		 *
+		 * @return Index of the status, or {@code -(insertion point) - 1}.
+		 */
+		private int search(final long status_id, final long account_id) {
+			int low = 0, high = mList.size() - 1;
+			while (low <= high) {
+				final int mid = low + high >>> 1;
+				final int diff = compare(mList.get(mid), status_id, account_id);
+				if (diff < 0) {
+					low = mid + 1;
+				} else if (diff > 0) {
+					high = mid - 1;
+				} else
+					return mid;
+			}
+			return -(low + 1);
+		}
+
+		private static int compare(final ParcelableStatus status, final long status_id, final long account_id) {
+			if (status.status_id != status_id) return status.status_id > status_id ? -1 : 1;
+			if (status.account_id != account_id) return status.account_id < account_id ? -1 : 1;
+			return 0;
+		}
+
+	}
+
+}
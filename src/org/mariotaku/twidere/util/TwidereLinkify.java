@@ -197,12 +197,28 @@ public class TwidereLinkify {
 		view.setMovementMethod(LinkMovementMethod.getInstance());
 	}
 
+	/**
+	 * Creates an instance not bound to any view, links can be only added with
+	 * {@link #addAllLinks(Spannable)} or {@link #addLinks(Spannable, int)}.
+	 * Safe to use off UI thread.
+	 */
+	public TwidereLinkify(final OnLinkClickListener listener) {
+		mTextView = null;
+		mOnLinkClickListener = listener;
+	}
+
 	public final void addAllLinks() {
 		for (final int type : ALL_LINK_TYPES) {
 			addLinks(type);
 		}
 	}
 
+	public final void addAllLinks(final Spannable string) {
+		for (final int type : ALL_LINK_TYPES) {
+			addLinks(string, type);
+		}
+	}
+
 	/**
 	 * Applies a regex to the text of a TextView turning the matches into links.
 	 * If links are found then UrlSpans are applied to the link text match
@@ -217,6 +233,17 @@ public class TwidereLinkify {
 	 */
 	public final void addLinks(final int type) {
 		final SpannableString string = SpannableString.valueOf(mTextView.getText());
+		if (!addLinks(string, type)) return;
+		mTextView.setText(string);
+		addLinkMovementMethod(mTextView);
+	}
+
+	/**
+	 * Same as {@link #addLinks(int)}, but marks up {@code string} directly.
+	 * 
+	 * @return false if {@code type} is not a valid link type.
+	 */
+	public final boolean addLinks(final Spannable string, final int type) {
 		switch (type) {
 			case LINK_TYPE_MENTION_LIST: {
 				addMentionOrListLinks(string);
@@ -263,18 +290,15 @@ public class TwidereLinkify {
 			case LINK_TYPE_ALL_AVAILABLE_IMAGE: {
 				final URLSpan[] spans = string.getSpans(0, string.length(), URLSpan.class);
 				for (final URLSpan span : spans) {
-					final Matcher matcher = PATTERN_ALL_AVAILABLE_IMAGES.matcher(span.getURL());
-					if (matcher.matches()) {
-						final ImageSpec spec = getAllAvailableImage(matcher.group());
-						final int start = string.getSpanStart(span);
-						final int end = string.getSpanEnd(span);
-						if (spec == null || start < 0 || end > string.length() || start > end) {
-							continue;
-						}
-						final String url = spec.full_image_link;
-						string.removeSpan(span);
-						applyLink(url, start, end, string, LINK_TYPE_LINK_WITH_IMAGE_EXTENSION);
+					final ImageSpec spec = getAllAvailableImage(span.getURL());
+					final int start = string.getSpanStart(span);
+					final int end = string.getSpanEnd(span);
+					if (spec == null || start < 0 || end > string.length() || start > end) {
+						continue;
 					}
+					final String url = spec.full_image_link;
+					string.removeSpan(span);
+					applyLink(url, start, end, string, LINK_TYPE_LINK_WITH_IMAGE_EXTENSION);
 				}
 				break;
 			}
@@ -283,13 +307,11 @@ public class TwidereLinkify {
 				break;
 			}
 			default: {
-				return;
+				return false;
 			}
 
 		}
-
-		mTextView.setText(string);
-		addLinkMovementMethod(mTextView);
+		return true;
 	}
 
 	public OnLinkClickListener getmOnLinkClickListener() {
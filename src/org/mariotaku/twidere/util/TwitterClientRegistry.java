@@ -0,0 +1,94 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.util.HashMap;
+
+import org.mariotaku.twidere.Constants;
+
+import twitter4j.Twitter;
+import android.content.Context;
+
+/**
+ * Keeps configured {@link Twitter} instances by account, so accounts table
+ * and preferences are only read once for each account.</br> </br> Cached
+ * instances are dropped by {@link #invalidate()} when accounts, proxy or other
+ * connection preferences change. Instances created with Apache HttpClient
+ * share pooled connections, see
+ * {@link org.mariotaku.twidere.util.httpclient.HttpClientImpl}.
+ * 
+ * @author mariotaku
+ */
+public final class TwitterClientRegistry implements Constants {
+
+	private static final int FLAG_INCLUDE_ENTITIES = 1;
+	private static final int FLAG_APACHE_HTTPCLIENT = 2;
+
+	private final Context mContext;
+	private final HashMap<Long, Twitter[]> mInstances = new HashMap<Long, Twitter[]>();
+
+	private int mGeneration;
+
+	public TwitterClientRegistry(final Context context) {
+		mContext = context.getApplicationContext();
+	}
+
+	/**
+	 * @return Cached instance of {@code account_id}, or a new one if it's not
+	 *         cached. Null if account doesn't exist.
+	 */
+	public Twitter get(final long account_id, final boolean include_entities, final boolean use_apache_httpclient) {
+		final int flags = (include_entities ? FLAG_INCLUDE_ENTITIES : 0)
+				| (use_apache_httpclient ? FLAG_APACHE_HTTPCLIENT : 0);
+		final int generation;
+		synchronized (this) {
+			final Twitter[] instances = mInstances.get(account_id);
+			if (instances != null && instances[flags] != null) return instances[flags];
+			generation = mGeneration;
+		}
+		// Accounts table is queried without holding the lock.
+		final Twitter twitter = Utils.createTwitterInstance(mContext, account_id, include_entities,
+				use_apache_httpclient);
+		if (twitter == null) return null;
+		synchronized (this) {
+			// Settings changed while creating, don't cache outdated instance.
+			if (generation != mGeneration) return twitter;
+			Twitter[] instances = mInstances.get(account_id);
+			if (instances == null) {
+				instances = new Twitter[4];
+				mInstances.put(account_id, instances);
+			}
+			if (instances[flags] == null) {
+				instances[flags] = twitter;
+			}
+			return instances[flags];
+		}
+	}
+
+	/**
+	 * Drops all cached instances, call this after accounts or connection
+	 * preferences changed.
+	 */
+	public synchronized void invalidate() {
+		mInstances.clear();
+		mGeneration++;
+	}
+
+}
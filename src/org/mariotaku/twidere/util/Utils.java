@@ -21,9 +21,9 @@ package org.mariotaku.twidere.util;
 
 import static android.content.res.Configuration.SCREENLAYOUT_LAYOUTDIR_RTL;
 import static android.text.TextUtils.isEmpty;
-import static org.mariotaku.twidere.provider.TweetStore.CACHE_URIS;
 import static org.mariotaku.twidere.provider.TweetStore.DIRECT_MESSAGES_URIS;
 import static org.mariotaku.twidere.provider.TweetStore.STATUSES_URIS;
+import static org.mariotaku.twidere.util.ImageHostClassifier.getImageHost;
 import static org.mariotaku.twidere.util.TwidereLinkify.IMGLY_GROUP_ID;
 import static org.mariotaku.twidere.util.TwidereLinkify.IMGUR_GROUP_ID;
 import static org.mariotaku.twidere.util.TwidereLinkify.INSTAGRAM_GROUP_ID;
@@ -114,7 +114,6 @@ import org.mariotaku.twidere.provider.TweetStore.CachedStatuses;
 import org.mariotaku.twidere.provider.TweetStore.CachedTrends;
 import org.mariotaku.twidere.provider.TweetStore.CachedUsers;
 import org.mariotaku.twidere.provider.TweetStore.DirectMessages;
-import org.mariotaku.twidere.provider.TweetStore.Filters;
 import org.mariotaku.twidere.provider.TweetStore.Statuses;
 import org.mariotaku.twidere.provider.TweetStore.Tabs;
 import org.mariotaku.twidere.util.HtmlLinkExtractor.HtmlLink;
@@ -134,6 +133,7 @@ import twitter4j.TwitterException;
 import twitter4j.TwitterFactory;
 import twitter4j.URLEntity;
 import twitter4j.User;
+import twitter4j.UserMentionEntity;
 import twitter4j.UserList;
 import twitter4j.auth.AccessToken;
 import twitter4j.auth.BasicAuthorization;
@@ -156,7 +156,6 @@ import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.content.res.Resources;
 import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
 import android.graphics.Bitmap;
 import android.graphics.Bitmap.Config;
 import android.graphics.BitmapFactory;
@@ -179,12 +178,12 @@ import android.net.Uri;
 import android.os.BatteryManager;
 import android.os.Build;
 import android.os.Bundle;
-import android.provider.BaseColumns;
 import android.provider.MediaStore;
 import android.support.v4.app.DialogFragment;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentActivity;
 import android.support.v4.app.FragmentManager;
+import android.support.v4.util.LruCache;
 import android.text.format.DateFormat;
 import android.text.format.DateUtils;
 import android.text.format.Time;
@@ -308,7 +307,7 @@ public final class Utils implements Constants {
 
 	private static Map<Long, Integer> sAccountColors = new LinkedHashMap<Long, Integer>();
 
-	private static Map<Long, Integer> sUserColors = new LinkedHashMap<Long, Integer>(512, 0.75f, true);
+	private static final LruCache<Long, Integer> sUserColors = new LruCache<Long, Integer>(512);
 	private static Map<Long, String> sAccountScreenNames = new LinkedHashMap<Long, String>();
 	private static Map<Long, String> sAccountNames = new LinkedHashMap<Long, String>();
 
@@ -412,35 +411,11 @@ public final class Utils implements Constants {
 			builder.append(selection);
 			builder.append(" AND ");
 		}
-		builder.append(Statuses._ID + " NOT IN ( ");
-		builder.append("SELECT DISTINCT " + table + "." + Statuses._ID + " FROM " + table);
-		builder.append(" WHERE " + table + "." + Statuses.SCREEN_NAME + " IN ( SELECT " + TABLE_FILTERED_USERS + "."
-				+ Filters.Users.TEXT + " FROM " + TABLE_FILTERED_USERS + " )");
-		builder.append(" AND " + table + "." + Statuses.IS_GAP + " IS NULL");
-		builder.append(" OR " + table + "." + Statuses.IS_GAP + " == 0");
-		builder.append(" UNION ");
-		builder.append("SELECT DISTINCT " + table + "." + Statuses._ID + " FROM " + table + ", "
-				+ TABLE_FILTERED_SOURCES);
-		builder.append(" WHERE " + table + "." + Statuses.SOURCE + " LIKE '%>'||" + TABLE_FILTERED_SOURCES + "."
-				+ Filters.Sources.TEXT + "||'</a>%'");
-		builder.append(" AND " + table + "." + Statuses.IS_GAP + " IS NULL");
-		builder.append(" OR " + table + "." + Statuses.IS_GAP + " == 0");
-		builder.append(" UNION ");
-		builder.append("SELECT DISTINCT " + table + "." + Statuses._ID + " FROM " + table + ", "
-				+ TABLE_FILTERED_KEYWORDS);
-		builder.append(" WHERE " + table + "." + Statuses.TEXT_PLAIN + " LIKE '%'||" + TABLE_FILTERED_KEYWORDS + "."
-				+ Filters.Keywords.TEXT + "||'%'");
-		builder.append(" AND " + table + "." + Statuses.IS_GAP + " IS NULL");
-		builder.append(" OR " + table + "." + Statuses.IS_GAP + " == 0");
-		builder.append(" UNION ");
-		builder.append("SELECT DISTINCT " + table + "." + Statuses._ID + " FROM " + table + ", " + TABLE_FILTERED_LINKS);
-		builder.append(" WHERE " + table + "." + Statuses.TEXT_HTML + " LIKE '%<a href=\"%'||" + TABLE_FILTERED_LINKS
-				+ "." + Filters.Links.TEXT + "||'%\">%'");
-		builder.append(" OR " + table + "." + Statuses.TEXT_HTML + " LIKE '%>%'||" + TABLE_FILTERED_LINKS + "."
-				+ Filters.Links.TEXT + "||'%</a>%'");
-		builder.append(" AND " + table + "." + Statuses.IS_GAP + " IS NULL");
-		builder.append(" OR " + table + "." + Statuses.IS_GAP + " == 0");
-		builder.append(" )");
+		// Filters are evaluated when statuses are stored, see
+		// StatusFilterEngine. Gaps are never filtered.
+		builder.append("(" + table + "." + Statuses.IS_FILTERED + " IS NULL");
+		builder.append(" OR " + table + "." + Statuses.IS_FILTERED + " = 0");
+		builder.append(" OR " + table + "." + Statuses.IS_GAP + " = 1)");
 		return builder.toString();
 	}
 
@@ -473,53 +448,6 @@ public final class Utils implements Constants {
 		return cls1.getName().equals(cls2.getName());
 	}
 
-	public static synchronized void cleanDatabasesByItemLimit(final Context context) {
-		if (context == null) return;
-		final ContentResolver resolver = context.getContentResolver();
-		final int item_limit = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE).getInt(
-				PREFERENCE_KEY_DATABASE_ITEM_LIMIT, PREFERENCE_DEFAULT_DATABASE_ITEM_LIMIT);
-
-		for (final long account_id : getAccountIds(context)) {
-			// Clean statuses.
-			for (final Uri uri : STATUSES_URIS) {
-				if (CachedStatuses.CONTENT_URI.equals(uri)) {
-					continue;
-				}
-				final String table = getTableNameByUri(uri);
-				final StringBuilder where = new StringBuilder();
-				where.append(Statuses.ACCOUNT_ID + " = " + account_id);
-				where.append(" AND ");
-				where.append(Statuses._ID + " NOT IN (");
-				where.append(" SELECT " + Statuses._ID + " FROM " + table);
-				where.append(" WHERE " + Statuses.ACCOUNT_ID + " = " + account_id);
-				where.append(" ORDER BY " + Statuses.STATUS_ID + " DESC");
-				where.append(" LIMIT " + item_limit + ")");
-				resolver.delete(uri, where.toString(), null);
-			}
-			for (final Uri uri : DIRECT_MESSAGES_URIS) {
-				final String table = getTableNameByUri(uri);
-				final StringBuilder where = new StringBuilder();
-				where.append(DirectMessages.ACCOUNT_ID + " = " + account_id);
-				where.append(" AND ");
-				where.append(DirectMessages._ID + " NOT IN (");
-				where.append(" SELECT " + DirectMessages._ID + " FROM " + table);
-				where.append(" WHERE " + DirectMessages.ACCOUNT_ID + " = " + account_id);
-				where.append(" ORDER BY " + DirectMessages.MESSAGE_ID + " DESC");
-				where.append(" LIMIT " + item_limit + ")");
-				resolver.delete(uri, where.toString(), null);
-			}
-		}
-		// Clean cached values.
-		for (final Uri uri : CACHE_URIS) {
-			final String table = getTableNameByUri(uri);
-			final StringBuilder where = new StringBuilder();
-			where.append(Statuses._ID + " NOT IN (");
-			where.append(" SELECT " + BaseColumns._ID + " FROM " + table);
-			where.append(" LIMIT " + (int) (Math.sqrt(item_limit) * 100) + ")");
-			resolver.delete(uri, where.toString(), null);
-		}
-	}
-
 	public static void clearAccountColor() {
 		sAccountColors.clear();
 	}
@@ -948,30 +876,7 @@ public final class Utils implements Constants {
 
 	public static ImageSpec getAllAvailableImage(final String link) {
 		if (link == null) return null;
-		Matcher m;
-		m = PATTERN_TWITTER_IMAGES.matcher(link);
-		if (m.matches()) return getTwitterImage(link, true);
-		m = PATTERN_TWITPIC.matcher(link);
-		if (m.matches()) return getTwitpicImage(matcherGroup(m, TWITPIC_GROUP_ID), true);
-		m = PATTERN_INSTAGRAM.matcher(link);
-		if (m.matches()) return getInstagramImage(matcherGroup(m, INSTAGRAM_GROUP_ID), true);
-		m = PATTERN_IMGUR.matcher(link);
-		if (m.matches()) return getImgurImage(matcherGroup(m, IMGUR_GROUP_ID), true);
-		m = PATTERN_IMGLY.matcher(link);
-		if (m.matches()) return getImglyImage(matcherGroup(m, IMGLY_GROUP_ID), true);
-		m = PATTERN_YFROG.matcher(link);
-		if (m.matches()) return getYfrogImage(matcherGroup(m, YFROG_GROUP_ID), true);
-		m = PATTERN_LOCKERZ_AND_PLIXI.matcher(link);
-		if (m.matches()) return getLockerzAndPlixiImage(link, true);
-		m = PATTERN_SINA_WEIBO_IMAGES.matcher(link);
-		if (m.matches()) return getSinaWeiboImage(link, true);
-		m = PATTERN_TWITGOO.matcher(link);
-		if (m.matches()) return getTwitgooImage(matcherGroup(m, TWITGOO_GROUP_ID), true);
-		m = PATTERN_MOBYPICTURE.matcher(link);
-		if (m.matches()) return getMobyPictureImage(matcherGroup(m, MOBYPICTURE_GROUP_ID), true);
-		m = PATTERN_PHOTOZOU.matcher(link);
-		if (m.matches()) return getPhotozouImage(matcherGroup(m, PHOTOZOU_GROUP_ID), true);
-		return null;
+		return getImageSpec(getImageHost(link), link, true);
 	}
 
 	public static int getAllStatusesCount(final Context context, final Uri uri) {
@@ -1130,6 +1035,13 @@ public final class Utils implements Constants {
 
 	public static HttpClientWrapper getHttpClient(final int timeout_millis, final boolean ignore_ssl_error,
 			final Proxy proxy, final HostAddressResolver resolver, final String user_agent) {
+		return new HttpClientWrapper(getHttpClientConfiguration(timeout_millis, ignore_ssl_error, proxy, resolver,
+				user_agent));
+	}
+
+	private static Configuration getHttpClientConfiguration(final int timeout_millis,
+			final boolean ignore_ssl_error, final Proxy proxy, final HostAddressResolver resolver,
+			final String user_agent) {
 		final ConfigurationBuilder cb = new ConfigurationBuilder();
 		cb.setHttpConnectionTimeout(timeout_millis);
 		cb.setIgnoreSSLError(ignore_ssl_error);
@@ -1145,7 +1057,22 @@ public final class Utils implements Constants {
 			cb.setUserAgent(user_agent);
 		}
 		// cb.setHttpClientImplementation(HttpClientImpl.class);
-		return new HttpClientWrapper(cb.build());
+		return cb.build();
+	}
+
+	/**
+	 * Same settings as {@link #getImageLoaderHttpClient(Context)}, but
+	 * requests are sent as they are, so headers like {@code Range} can be
+	 * set. Redirects are followed by the client.
+	 */
+	public static HttpClientImpl getImageDownloadHttpClient(final Context context) {
+		if (context == null) return null;
+		final SharedPreferences prefs = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
+		final int timeout_millis = prefs.getInt(PREFERENCE_KEY_CONNECTION_TIMEOUT, 10000) * 1000;
+		final Proxy proxy = getProxy(context);
+		final String user_agent = getBrowserUserAgent(context);
+		final HostAddressResolver resolver = TwidereApplication.getInstance(context).getHostAddressResolver();
+		return new HttpClientImpl(getHttpClientConfiguration(timeout_millis, true, proxy, resolver, user_agent));
 	}
 
 	public static HttpClientWrapper getImageLoaderHttpClient(final Context context) {
@@ -1228,6 +1155,69 @@ public final class Utils implements Constants {
 		return image_upload_format.replace(FORMAT_PATTERN_LINK, link).replace(FORMAT_PATTERN_TEXT, text);
 	}
 
+	/**
+	 * @return Image of {@code link} if it's an image link of {@code host},
+	 *         null otherwise.
+	 */
+	public static ImageSpec getImageSpec(final int host, final String link, final boolean large_image_preview) {
+		if (link == null) return null;
+		switch (host) {
+			case IMAGE_HOST_TWITTER: {
+				if (!PATTERN_TWITTER_IMAGES.matcher(link).matches()) return null;
+				return getTwitterImage(link, large_image_preview);
+			}
+			case IMAGE_HOST_TWITPIC: {
+				final Matcher m = PATTERN_TWITPIC.matcher(link);
+				if (!m.matches()) return null;
+				return getTwitpicImage(matcherGroup(m, TWITPIC_GROUP_ID), large_image_preview);
+			}
+			case IMAGE_HOST_INSTAGRAM: {
+				final Matcher m = PATTERN_INSTAGRAM.matcher(link);
+				if (!m.matches()) return null;
+				return getInstagramImage(matcherGroup(m, INSTAGRAM_GROUP_ID), large_image_preview);
+			}
+			case IMAGE_HOST_IMGUR: {
+				final Matcher m = PATTERN_IMGUR.matcher(link);
+				if (!m.matches()) return null;
+				return getImgurImage(matcherGroup(m, IMGUR_GROUP_ID), large_image_preview);
+			}
+			case IMAGE_HOST_IMGLY: {
+				final Matcher m = PATTERN_IMGLY.matcher(link);
+				if (!m.matches()) return null;
+				return getImglyImage(matcherGroup(m, IMGLY_GROUP_ID), large_image_preview);
+			}
+			case IMAGE_HOST_YFROG: {
+				final Matcher m = PATTERN_YFROG.matcher(link);
+				if (!m.matches()) return null;
+				return getYfrogImage(matcherGroup(m, YFROG_GROUP_ID), large_image_preview);
+			}
+			case IMAGE_HOST_LOCKERZ_AND_PLIXI: {
+				if (!PATTERN_LOCKERZ_AND_PLIXI.matcher(link).matches()) return null;
+				return getLockerzAndPlixiImage(link, large_image_preview);
+			}
+			case IMAGE_HOST_SINA_WEIBO: {
+				if (!PATTERN_SINA_WEIBO_IMAGES.matcher(link).matches()) return null;
+				return getSinaWeiboImage(link, large_image_preview);
+			}
+			case IMAGE_HOST_TWITGOO: {
+				final Matcher m = PATTERN_TWITGOO.matcher(link);
+				if (!m.matches()) return null;
+				return getTwitgooImage(matcherGroup(m, TWITGOO_GROUP_ID), large_image_preview);
+			}
+			case IMAGE_HOST_MOBYPICTURE: {
+				final Matcher m = PATTERN_MOBYPICTURE.matcher(link);
+				if (!m.matches()) return null;
+				return getMobyPictureImage(matcherGroup(m, MOBYPICTURE_GROUP_ID), large_image_preview);
+			}
+			case IMAGE_HOST_PHOTOZOU: {
+				final Matcher m = PATTERN_PHOTOZOU.matcher(link);
+				if (!m.matches()) return null;
+				return getPhotozouImage(matcherGroup(m, PHOTOZOU_GROUP_ID), large_image_preview);
+			}
+		}
+		return null;
+	}
+
 	public static ImageSpec getImglyImage(final String id, final boolean large_image_preview) {
 		if (isEmpty(id)) return null;
 		final String full = "https://img.ly/show/full/" + id;
@@ -1408,59 +1398,34 @@ public final class Utils implements Constants {
 
 	public static PreviewImage getPreviewImage(final String html, final int display_option) {
 		if (html == null) return new PreviewImage(false, null, null);
-		if (display_option == INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_NONE)
-			return new PreviewImage(html.contains(".twimg.com/") || html.contains("://instagr.am/")
-					|| html.contains("://instagram.com/") || html.contains("://imgur.com/")
-					|| html.contains("://i.imgur.com/") || html.contains("://twitpic.com/")
-					|| html.contains("://img.ly/") || html.contains("://yfrog.com/")
-					|| html.contains("://twitgoo.com/") || html.contains("://moby.to/")
-					|| html.contains("://plixi.com/p/") || html.contains("://lockerz.com/s/")
-					|| html.contains(".sinaimg.cn/") || html.contains("://photozou.jp/"), null, null);
 		final boolean large_image_preview = display_option == INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_LARGE;
 		final HtmlLinkExtractor extractor = new HtmlLinkExtractor();
 		for (final HtmlLink link : extractor.grabLinks(html)) {
 			final String image_url = link.getLink();
-			Matcher m;
-			m = PATTERN_TWITTER_IMAGES.matcher(image_url);
-			if (m.matches()) return new PreviewImage(getTwitterImage(image_url, large_image_preview), image_url);
-			m = PATTERN_TWITPIC.matcher(image_url);
-			if (m.matches())
-				return new PreviewImage(getTwitpicImage(matcherGroup(m, TWITPIC_GROUP_ID), large_image_preview),
-						image_url);
-			m = PATTERN_INSTAGRAM.matcher(image_url);
-			if (m.matches())
-				return new PreviewImage(getInstagramImage(matcherGroup(m, INSTAGRAM_GROUP_ID), large_image_preview),
-						image_url);
-			m = PATTERN_IMGUR.matcher(image_url);
-			if (m.matches())
-				return new PreviewImage(getImgurImage(matcherGroup(m, IMGUR_GROUP_ID), large_image_preview), image_url);
-			m = PATTERN_IMGLY.matcher(image_url);
-			if (m.matches())
-				return new PreviewImage(getImglyImage(matcherGroup(m, IMGLY_GROUP_ID), large_image_preview), image_url);
-			m = PATTERN_YFROG.matcher(image_url);
-			if (m.matches())
-				return new PreviewImage(getYfrogImage(matcherGroup(m, YFROG_GROUP_ID), large_image_preview), image_url);
-			m = PATTERN_LOCKERZ_AND_PLIXI.matcher(image_url);
-			if (m.matches())
-				return new PreviewImage(getLockerzAndPlixiImage(image_url, large_image_preview), image_url);
-			m = PATTERN_SINA_WEIBO_IMAGES.matcher(image_url);
-			if (m.matches()) return new PreviewImage(getSinaWeiboImage(image_url, large_image_preview), image_url);
-			m = PATTERN_TWITGOO.matcher(image_url);
-			if (m.matches())
-				return new PreviewImage(getTwitgooImage(matcherGroup(m, TWITGOO_GROUP_ID), large_image_preview),
-						image_url);
-			m = PATTERN_MOBYPICTURE.matcher(image_url);
-			if (m.matches())
-				return new PreviewImage(
-						getMobyPictureImage(matcherGroup(m, MOBYPICTURE_GROUP_ID), large_image_preview), image_url);
-			m = PATTERN_PHOTOZOU.matcher(image_url);
-			if (m.matches())
-				return new PreviewImage(getPhotozouImage(matcherGroup(m, PHOTOZOU_GROUP_ID), large_image_preview),
-						image_url);
+			final int host = getImageHost(image_url);
+			if (host == IMAGE_HOST_NONE) {
+				continue;
+			}
+			// Only tells whether there's an image, without matching it.
+			if (display_option == INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_NONE)
+				return new PreviewImage(true, null, null, host);
+			final ImageSpec spec = getImageSpec(host, image_url, large_image_preview);
+			if (spec != null) return new PreviewImage(spec, image_url, host);
 		}
 		return new PreviewImage(false, null, null);
 	}
 
+	/**
+	 * Gets preview image from values stored in {@link Statuses#IMAGE_ORIG_URL}
+	 * and {@link Statuses#IMAGE_HOST}, only the pattern of {@code host} will be
+	 * matched.
+	 */
+	public static PreviewImage getPreviewImage(final String orig_url, final int host, final int display_option) {
+		if (orig_url == null || host == IMAGE_HOST_NONE) return new PreviewImage(false, null, null);
+		final boolean large_image_preview = display_option == INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_LARGE;
+		return new PreviewImage(getImageSpec(host, orig_url, large_image_preview), orig_url, host);
+	}
+
 	public static Proxy getProxy(final Context context) {
 		if (context == null) return null;
 		final SharedPreferences prefs = context.getSharedPreferences(SHARED_PREFERENCES_NAME, Context.MODE_PRIVATE);
@@ -1729,10 +1694,25 @@ public final class Utils implements Constants {
 		return getTwitterInstance(context, account_id, include_entities, true);
 	}
 
+	/**
+	 * @return Shared instance of {@code account_id}, kept by
+	 *         {@link TwitterClientRegistry}.
+	 */
 	public static Twitter getTwitterInstance(final Context context, final long account_id,
 			final boolean include_entities, final boolean use_apache_httpclient) {
 		if (context == null) return null;
 		final TwidereApplication app = TwidereApplication.getInstance(context);
+		return app.getTwitterClientRegistry().get(account_id, include_entities, use_apache_httpclient);
+	}
+
+	/**
+	 * Creates a new instance from accounts table and preferences, use
+	 * {@link #getTwitterInstance(Context, long, boolean, boolean)} instead.
+	 */
+	static Twitter createTwitterInstance(final Context context, final long account_id,
+			final boolean include_entities, final boolean use_apache_httpclient) {
+		if (context == null) return null;
+		final TwidereApplication app = TwidereApplication.getInstance(context);
 		final SharedPreferences preferences = context.getSharedPreferences(SHARED_PREFERENCES_NAME,
 				Context.MODE_PRIVATE);
 		final int connection_timeout = preferences.getInt(PREFERENCE_KEY_CONNECTION_TIMEOUT, 10) * 1000;
@@ -1877,34 +1857,17 @@ public final class Utils implements Constants {
 		return plugged || level / scale > 0.15f;
 	}
 
-	public static boolean isFiltered(final SQLiteDatabase database, final ParcelableStatus status) {
+	/**
+	 * @return true if {@code status} mentions user {@code account_id}.
+	 */
+	public static boolean isMentioned(final Status status, final long account_id) {
 		if (status == null) return false;
-		return isFiltered(database, status.text_plain, status.text_html, status.screen_name, status.source);
-	}
-
-	public static boolean isFiltered(final SQLiteDatabase database, final String text_plain, final String text_html,
-			final String screen_name, final String source) {
-		if (database == null) return false;
-		final StringBuilder builder = new StringBuilder();
-		final String[] selection_args = new String[] { text_plain, text_html, screen_name, source };
-		builder.append("SELECT NULL WHERE");
-		builder.append("(SELECT 1 IN (SELECT ? LIKE '%'||" + TABLE_FILTERED_KEYWORDS + "." + Filters.TEXT
-				+ "||'%' FROM " + TABLE_FILTERED_KEYWORDS + "))");
-		builder.append(" OR ");
-		builder.append("(SELECT 1 IN (SELECT ? LIKE '%<a href=\"%'||" + TABLE_FILTERED_LINKS + "." + Filters.TEXT
-				+ "||'%\">%' FROM " + TABLE_FILTERED_LINKS + "))");
-		builder.append(" OR ");
-		builder.append("(SELECT ? IN (SELECT " + Filters.TEXT + " FROM " + TABLE_FILTERED_USERS + "))");
-		builder.append(" OR ");
-		builder.append("(SELECT 1 IN (SELECT ? LIKE '%>'||" + TABLE_FILTERED_SOURCES + "." + Filters.TEXT
-				+ "||'</a>%' FROM " + TABLE_FILTERED_SOURCES + "))");
-		final Cursor cur = database.rawQuery(builder.toString(), selection_args);
-		if (cur == null) return false;
-		try {
-			return cur.getCount() > 0;
-		} finally {
-			cur.close();
+		final UserMentionEntity[] mentions = status.getUserMentionEntities();
+		if (mentions == null) return false;
+		for (final UserMentionEntity mention : mentions) {
+			if (mention != null && mention.getId() == account_id) return true;
 		}
+		return false;
 	}
 
 	public static boolean isMyAccount(final Context context, final long account_id) {
@@ -2134,8 +2097,18 @@ public final class Utils implements Constants {
 		if (status.getCreatedAt() != null) {
 			values.put(Statuses.STATUS_TIMESTAMP, status.getCreatedAt().getTime());
 		}
-		values.put(Statuses.TEXT_HTML, formatStatusText(status));
+		final String text_html = formatStatusText(status);
+		values.put(Statuses.TEXT_HTML, text_html);
 		values.put(Statuses.TEXT_PLAIN, status.getText());
+		final PreviewImage preview = getPreviewImage(text_html, INLINE_IMAGE_PREVIEW_DISPLAY_OPTION_CODE_LARGE);
+		if (preview.has_image) {
+			values.put(Statuses.IMAGE_PREVIEW_URL, preview.matched_url);
+			values.put(Statuses.IMAGE_ORIG_URL, preview.orig_url);
+			values.put(Statuses.IMAGE_HOST, preview.host);
+		} else {
+			values.put(Statuses.IMAGE_HOST, IMAGE_HOST_NONE);
+		}
+		values.put(Statuses.IS_MENTION, isMentioned(status, account_id));
 		values.put(Statuses.RETWEET_COUNT, status.getRetweetCount());
 		values.put(Statuses.IN_REPLY_TO_SCREEN_NAME, status.getInReplyToScreenName());
 		values.put(Statuses.IN_REPLY_TO_STATUS_ID, status.getInReplyToStatusId());
@@ -29,12 +29,15 @@ import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.X509Certificate;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 
 import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.HttpClient;
@@ -44,6 +47,10 @@ import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
 import org.apache.http.conn.params.ConnRoutePNames;
 import org.apache.http.conn.scheme.PlainSocketFactory;
 import org.apache.http.conn.scheme.Scheme;
@@ -53,12 +60,14 @@ import org.apache.http.entity.mime.MultipartEntity;
 import org.apache.http.entity.mime.content.ContentBody;
 import org.apache.http.entity.mime.content.FileBody;
 import org.apache.http.entity.mime.content.StringBody;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.CoreProtocolPNames;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
 
 import twitter4j.TwitterException;
 import twitter4j.http.HostAddressResolver;
@@ -82,16 +91,28 @@ public class HttpClientImpl implements twitter4j.http.HttpClient, HttpResponseCo
 
 	private static final SSLSocketFactory TRUST_ALL_SSL_SOCKET_FACTORY = TrustAllSSLSocketFactory.getInstance();
 
+	private static final int MAX_TOTAL_CONNECTIONS = 20;
+	private static final int MAX_CONNECTIONS_PER_ROUTE = 8;
+	private static final long MAX_KEEP_ALIVE_MILLIS = 30 * 1000;
+
+	private static final ConnectionKeepAliveStrategy KEEP_ALIVE_STRATEGY = new ConnectionKeepAliveStrategy() {
+
+		private final ConnectionKeepAliveStrategy mDefault = new DefaultConnectionKeepAliveStrategy();
+
+		@Override
+		public long getKeepAliveDuration(final HttpResponse response, final HttpContext context) {
+			final long duration = mDefault.getKeepAliveDuration(response, context);
+			return duration > 0 && duration < MAX_KEEP_ALIVE_MILLIS ? duration : MAX_KEEP_ALIVE_MILLIS;
+		}
+	};
+
+	private static ClientConnectionManager sConnectionManager, sTrustAllConnectionManager;
+
 	public HttpClientImpl(final HttpClientConfiguration conf) {
 		this.conf = conf;
-		final SchemeRegistry registry = new SchemeRegistry();
-		final SSLSocketFactory factory = conf.isSSLErrorIgnored() ? TRUST_ALL_SSL_SOCKET_FACTORY : SSLSocketFactory
-				.getSocketFactory();
-		registry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
-		registry.register(new Scheme("https", factory, 443));
-		final HttpParams params = new BasicHttpParams();
-		final ThreadSafeClientConnManager cm = new ThreadSafeClientConnManager(params, registry);
-		final DefaultHttpClient client = new DefaultHttpClient(cm, params);
+		final ClientConnectionManager cm = getConnectionManager(conf.isSSLErrorIgnored());
+		final DefaultHttpClient client = new DefaultHttpClient(cm, new BasicHttpParams());
+		client.setKeepAliveStrategy(KEEP_ALIVE_STRATEGY);
 		final HttpParams client_params = client.getParams();
 		HttpConnectionParams.setConnectionTimeout(client_params, conf.getHttpConnectionTimeout());
 		HttpConnectionParams.setSoTimeout(client_params, conf.getHttpReadTimeout());
@@ -193,16 +214,47 @@ public class HttpClientImpl implements twitter4j.http.HttpClient, HttpResponseCo
 				throw new TwitterException("Unknown error", e);
 			}
 			final int statusCode = res.getStatusCode();
-			if (statusCode < OK || statusCode > ACCEPTED) throw new TwitterException(res.asString(), req, res);
+			// Partial content is only returned for requests with Range header.
+			if ((statusCode < OK || statusCode > ACCEPTED) && statusCode != HttpStatus.SC_PARTIAL_CONTENT)
+				throw new TwitterException(res.asString(), req, res);
 			return res;
 		} catch (final IOException e) {
 			throw new TwitterException(e);
 		}
 	}
 
+	/**
+	 * Connection manager is shared by all instances, so only idle
+	 * connections are closed here.
+	 */
 	@Override
 	public void shutdown() {
-		client.getConnectionManager().shutdown();
+		client.getConnectionManager().closeIdleConnections(MAX_KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Connections are pooled by route, so instances with different proxy or
+	 * account settings can still share a manager. Only SSL verification
+	 * needs a separate one.
+	 */
+	private static synchronized ClientConnectionManager getConnectionManager(final boolean ignore_ssl_error) {
+		if (ignore_ssl_error && sTrustAllConnectionManager != null) return sTrustAllConnectionManager;
+		if (!ignore_ssl_error && sConnectionManager != null) return sConnectionManager;
+		final SchemeRegistry registry = new SchemeRegistry();
+		final SSLSocketFactory factory = ignore_ssl_error ? TRUST_ALL_SSL_SOCKET_FACTORY : SSLSocketFactory
+				.getSocketFactory();
+		registry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+		registry.register(new Scheme("https", factory, 443));
+		final HttpParams params = new BasicHttpParams();
+		ConnManagerParams.setMaxTotalConnections(params, MAX_TOTAL_CONNECTIONS);
+		ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(MAX_CONNECTIONS_PER_ROUTE));
+		final ClientConnectionManager cm = new ThreadSafeClientConnManager(params, registry);
+		if (ignore_ssl_error) {
+			sTrustAllConnectionManager = cm;
+		} else {
+			sConnectionManager = cm;
+		}
+		return cm;
 	}
 
 	final static class TrustAllSSLSocketFactory extends SSLSocketFactory {
@@ -0,0 +1,128 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.mariotaku.twidere.model.ParcelableStatus;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+/**
+ * Measures restoring a cached timeline written with {@link CompactCodec}
+ * against the {@code ObjectOutputStream} files loaders used before.</br>
+ * </br> Both files are written to the cache directory, then read back the
+ * way loaders do, the old way including the sort the loaders needed
+ * afterwards. Both must restore the same statuses, timings and file sizes
+ * are logged with tag {@code CompactCodecBenchmark}.
+ *
+ * @author mariotaku
+ */
+public class CompactCodecBenchmark extends AndroidTestCase {
+
+	private static final String LOGTAG = CompactCodecBenchmark.class.getSimpleName();
+
+	private static final long FIRST_ID = 300000000000000000L;
+	private static final int ROUNDS = 5;
+
+	private File mCodecFile, mObjectFile;
+
+	public void test200() throws IOException {
+		runBenchmark(200);
+	}
+
+	public void test1k() throws IOException {
+		runBenchmark(1000);
+	}
+
+	public void test5k() throws IOException {
+		runBenchmark(5000);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		mCodecFile = new File(getContext().getCacheDir(), "benchmark_statuses.codec");
+		mObjectFile = new File(getContext().getCacheDir(), "benchmark_statuses.ser");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		mCodecFile.delete();
+		mObjectFile.delete();
+		super.tearDown();
+	}
+
+	private void runBenchmark(final int size) throws IOException {
+		final List<ParcelableStatus> statuses = TestStatuses.createList(FIRST_ID, size, 10);
+		Collections.reverse(statuses);
+		final Long state = statuses.get(size / 2).status_id;
+		final SynchronizedStateSavedList<ParcelableStatus, Long> data = new SynchronizedStateSavedList<ParcelableStatus, Long>(
+				statuses);
+		data.setState(state);
+		// Files are written with what loaders pass, they may be unsorted.
+		SerializationUtil.write(data, mObjectFile.getPath());
+		SerializationUtil.writeStatuses(data, state, mCodecFile.getPath());
+
+		long object_time = 0, codec_time = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			final SynchronizedStateSavedList<ParcelableStatus, Long> object_restored = SerializationUtil
+					.read(mObjectFile.getPath());
+			Collections.sort(object_restored);
+			object_time += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			final SynchronizedStatusesList codec_restored = SerializationUtil.readStatuses(mCodecFile.getPath());
+			codec_time += System.nanoTime() - start;
+
+			assertEquals(state, object_restored.getState());
+			assertEquals(state, codec_restored.getState());
+			assertSameStatuses(object_restored, codec_restored);
+		}
+		Log.i(LOGTAG, size + " statuses, restore: ObjectInputStream " + object_time / ROUNDS / 1000 + " us ("
+				+ mObjectFile.length() + " bytes), CompactCodec " + codec_time / ROUNDS / 1000 + " us ("
+				+ mCodecFile.length() + " bytes)");
+	}
+
+	private static void assertSameStatuses(final List<ParcelableStatus> expected, final List<ParcelableStatus> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0, j = expected.size(); i < j; i++) {
+			final ParcelableStatus e = expected.get(i), a = actual.get(i);
+			assertEquals(e.account_id, a.account_id);
+			assertEquals(e.status_id, a.status_id);
+			assertEquals(e.user_id, a.user_id);
+			assertEquals(e.status_timestamp, a.status_timestamp);
+			assertEquals(e.name, a.name);
+			assertEquals(e.screen_name, a.screen_name);
+			assertEquals(e.text_html, a.text_html);
+			assertEquals(e.text_plain, a.text_plain);
+			assertEquals(e.text_unescaped, a.text_unescaped);
+			assertEquals(e.profile_image_url, a.profile_image_url);
+			assertEquals(e.source, a.source);
+			assertEquals(e.my_retweet_id, a.my_retweet_id);
+		}
+	}
+
+}
@@ -0,0 +1,220 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import static org.mariotaku.twidere.util.Utils.buildStatusFilterWhereClause;
+
+import java.util.Random;
+
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.provider.TweetStore.DirectMessages;
+import org.mariotaku.twidere.provider.TweetStore.Statuses;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+/**
+ * Checks with {@code EXPLAIN QUERY PLAN} that the hot queries use the indices
+ * created by {@link DatabaseHelper}.</br> </br> Tables are filled with
+ * several accounts of statuses and messages and analysed first, so the
+ * planner sees data like on a real device. The statements are built the way
+ * timelines, {@link AsyncTwitterWrapper} and {@link DatabaseCompactor} build
+ * them. No plan may scan a table without an index, or sort in a temp b-tree.
+ * Plans are logged with tag {@code DatabaseHelperQueryPlanTest}. Needs SQLite
+ * 3.7 (Honeycomb) or later, older versions report plans in another format.
+ *
+ * @author mariotaku
+ */
+public class DatabaseHelperQueryPlanTest extends AndroidTestCase implements Constants {
+
+	private static final String LOGTAG = DatabaseHelperQueryPlanTest.class.getSimpleName();
+
+	private static final long[] ACCOUNT_IDS = new long[] { 1001, 1002, 1003 };
+	private static final int STATUSES_PER_ACCOUNT = 2000;
+	private static final int MENTIONS_PER_ACCOUNT = 500;
+	private static final int MESSAGES_PER_ACCOUNT = 300;
+	private static final long FIRST_STATUS_ID = 280000000000000000L;
+	private static final long FIRST_TIMESTAMP = 1356998400000L;
+
+	private SQLiteDatabase mDatabase;
+
+	public void testCompactorQueries() {
+		for (final String table : new String[] { TABLE_STATUSES, TABLE_MENTIONS }) {
+			final String where = Statuses.ACCOUNT_ID + " = " + ACCOUNT_IDS[0];
+			final long watermark = FIRST_STATUS_ID + STATUSES_PER_ACCOUNT / 2;
+			assertPlan(DatabaseCompactor.buildWatermarkSql(table, Statuses.STATUS_ID, where,
+					PREFERENCE_DEFAULT_DATABASE_ITEM_LIMIT), table + "_status_id_index");
+			assertPlan(DatabaseCompactor.buildDeleteBatchSql(table, where + " AND " + Statuses.STATUS_ID + " <= "
+					+ watermark, Statuses.STATUS_ID), table + "_status_id_index");
+		}
+		for (final String table : new String[] { TABLE_DIRECT_MESSAGES_INBOX, TABLE_DIRECT_MESSAGES_OUTBOX }) {
+			final String where = DirectMessages.ACCOUNT_ID + " = " + ACCOUNT_IDS[0];
+			final String index = TABLE_DIRECT_MESSAGES_INBOX.equals(table) ? "messages_inbox_message_id_index"
+					: "messages_outbox_message_id_index";
+			assertPlan(DatabaseCompactor.buildWatermarkSql(table, DirectMessages.MESSAGE_ID, where,
+					PREFERENCE_DEFAULT_DATABASE_ITEM_LIMIT), index);
+			assertPlan(DatabaseCompactor.buildDeleteBatchSql(table, where + " AND " + DirectMessages.MESSAGE_ID
+					+ " <= " + FIRST_STATUS_ID, DirectMessages.MESSAGE_ID), index);
+		}
+	}
+
+	public void testNewestStatusIdsQuery() {
+		// Utils.getNewestStatusIdsFromDatabase()
+		for (final String table : new String[] { TABLE_STATUSES, TABLE_MENTIONS }) {
+			assertPlan(SQLiteQueryBuilder.buildQueryString(false, table, new String[] { Statuses.STATUS_ID },
+					Statuses.ACCOUNT_ID + " = " + ACCOUNT_IDS[0], null, null, Statuses.DEFAULT_SORT_ORDER, null),
+					table + "_status_id_index");
+		}
+	}
+
+	public void testStatusIdsInDatabaseQuery() {
+		// Utils.getStatusIdsInDatabase()
+		for (final String table : new String[] { TABLE_STATUSES, TABLE_MENTIONS }) {
+			assertPlan(SQLiteQueryBuilder.buildQueryString(false, table, new String[] { Statuses.STATUS_ID },
+					Statuses.ACCOUNT_ID + " = " + ACCOUNT_IDS[0], null, null, null, null), table
+					+ "_status_id_index");
+		}
+	}
+
+	public void testTimelineQueries() {
+		for (final String table : new String[] { TABLE_STATUSES, TABLE_MENTIONS }) {
+			// All accounts activated, rows are read in order from the sort
+			// index.
+			assertPlan(buildTimelineQuery(table, ACCOUNT_IDS, Statuses.SORT_ORDER_STATUS_ID_DESC), table
+					+ "_sort_index");
+			assertPlan(buildTimelineQuery(table, ACCOUNT_IDS, Statuses.SORT_ORDER_TIMESTAMP_DESC), table
+					+ "_timestamp_index");
+			// A single activated account is searched by account id.
+			final long[] single = new long[] { ACCOUNT_IDS[0] };
+			assertPlan(buildTimelineQuery(table, single, Statuses.SORT_ORDER_STATUS_ID_DESC), table
+					+ "_status_id_index");
+			assertPlan(buildTimelineQuery(table, single, Statuses.SORT_ORDER_TIMESTAMP_DESC), table
+					+ "_timestamp_index");
+		}
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		// A null name creates an in-memory database, app data is untouched.
+		mDatabase = new DatabaseHelper(getContext(), null, DATABASES_VERSION).getWritableDatabase();
+		final Random random = new Random(0x7715);
+		mDatabase.beginTransaction();
+		try {
+			insertStatuses(TABLE_STATUSES, STATUSES_PER_ACCOUNT, random);
+			insertStatuses(TABLE_MENTIONS, MENTIONS_PER_ACCOUNT, random);
+			insertMessages(TABLE_DIRECT_MESSAGES_INBOX, random);
+			insertMessages(TABLE_DIRECT_MESSAGES_OUTBOX, random);
+			mDatabase.setTransactionSuccessful();
+		} finally {
+			mDatabase.endTransaction();
+		}
+		mDatabase.execSQL("ANALYZE");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		mDatabase.close();
+		super.tearDown();
+	}
+
+	private void assertPlan(final String sql, final String index) {
+		final StringBuilder plan = new StringBuilder();
+		final Cursor c = mDatabase.rawQuery("EXPLAIN QUERY PLAN " + sql, null);
+		try {
+			final int idx = c.getColumnIndexOrThrow("detail");
+			for (c.moveToFirst(); !c.isAfterLast(); c.moveToNext()) {
+				final String detail = c.getString(idx);
+				plan.append(detail).append('\n');
+				// Walking an index in order is fine, it's how merged
+				// timelines are read.
+				assertFalse(sql + " scans a table:\n" + detail,
+						detail.startsWith("SCAN") && !detail.contains("USING INDEX")
+								&& !detail.contains("USING COVERING INDEX"));
+				assertFalse(sql + " sorts in a temp b-tree:\n" + detail, detail.contains("TEMP B-TREE"));
+			}
+		} finally {
+			c.close();
+		}
+		Log.i(LOGTAG, sql + "\n" + plan);
+		assertTrue(sql + " doesn't use " + index + ":\n" + plan, plan.indexOf("INDEX " + index) >= 0);
+	}
+
+	private static String buildTimelineQuery(final String table, final long[] account_ids, final String sort_by) {
+		// Same as CursorStatusesListFragment, see
+		// Utils.buildActivatedStatsWhereClause().
+		final String where = Statuses.ACCOUNT_ID + " IN ( " + ArrayUtils.toString(account_ids, ',', true) + " )";
+		return SQLiteQueryBuilder.buildQueryString(false, table, null, buildStatusFilterWhereClause(table, where),
+				null, null, sort_by, null);
+	}
+
+	/**
+	 * Accounts follow many of the same users, so their timelines interleave.
+	 * Some statuses are retweets, filtered, or gaps.
+	 */
+	private void insertStatuses(final String table, final int count, final Random random) {
+		final ContentValues values = new ContentValues();
+		for (final long account_id : ACCOUNT_IDS) {
+			long status_id = FIRST_STATUS_ID;
+			for (int i = 0; i < count; i++) {
+				status_id += 1 + random.nextInt(ACCOUNT_IDS.length * 2);
+				values.clear();
+				values.put(Statuses.ACCOUNT_ID, account_id);
+				values.put(Statuses.STATUS_ID, status_id);
+				values.put(Statuses.USER_ID, random.nextInt(500));
+				// Roughly in id order, like timestamps of real statuses.
+				values.put(Statuses.STATUS_TIMESTAMP, FIRST_TIMESTAMP + i * 60000L + random.nextInt(120000));
+				values.put(Statuses.TEXT_PLAIN, "Status " + status_id);
+				values.put(Statuses.IS_RETWEET, random.nextInt(5) == 0);
+				if (random.nextInt(5) == 0) {
+					values.put(Statuses.RETWEET_ID, status_id - random.nextInt(10000));
+				}
+				values.put(Statuses.IS_FILTERED, random.nextInt(20) == 0);
+				values.put(Statuses.IS_GAP, random.nextInt(100) == 0);
+				mDatabase.insert(table, null, values);
+			}
+		}
+	}
+
+	private void insertMessages(final String table, final Random random) {
+		final ContentValues values = new ContentValues();
+		final boolean outgoing = TABLE_DIRECT_MESSAGES_OUTBOX.equals(table);
+		for (final long account_id : ACCOUNT_IDS) {
+			long message_id = FIRST_STATUS_ID;
+			for (int i = 0; i < MESSAGES_PER_ACCOUNT; i++) {
+				message_id += 1 + random.nextInt(100);
+				final long user_id = random.nextInt(50);
+				values.clear();
+				values.put(DirectMessages.ACCOUNT_ID, account_id);
+				values.put(DirectMessages.MESSAGE_ID, message_id);
+				values.put(DirectMessages.MESSAGE_TIMESTAMP, FIRST_TIMESTAMP + i * 60000L);
+				values.put(DirectMessages.SENDER_ID, outgoing ? account_id : user_id);
+				values.put(DirectMessages.RECIPIENT_ID, outgoing ? user_id : account_id);
+				values.put(DirectMessages.TEXT_PLAIN, "Message " + message_id);
+				mDatabase.insert(table, null, values);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,154 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.model.ImageSpec;
+
+import android.util.Log;
+
+/**
+ * Compares {@link ImageHostClassifier} with the regex cascade it replaced,
+ * which tried the pattern of every image host in turn.</br> </br> The corpus
+ * of tweet HTML is generated from a fixed seed, most links in it are not
+ * images, like on a real timeline. Both ways must resolve every link to the
+ * same image, timings are logged with tag
+ * {@code ImageHostClassifierBenchmark}.
+ *
+ * @author mariotaku
+ */
+public class ImageHostClassifierBenchmark extends TestCase implements Constants {
+
+	private static final String LOGTAG = ImageHostClassifierBenchmark.class.getSimpleName();
+
+	/**
+	 * Image hosts in the order the cascade tried them.
+	 */
+	private static final int[] IMAGE_HOSTS = new int[] { IMAGE_HOST_TWITTER, IMAGE_HOST_TWITPIC,
+			IMAGE_HOST_INSTAGRAM, IMAGE_HOST_IMGUR, IMAGE_HOST_IMGLY, IMAGE_HOST_YFROG, IMAGE_HOST_LOCKERZ_AND_PLIXI,
+			IMAGE_HOST_SINA_WEIBO, IMAGE_HOST_TWITGOO, IMAGE_HOST_MOBYPICTURE, IMAGE_HOST_PHOTOZOU };
+
+	private static final String[] IMAGE_LINKS = new String[] { "https://pbs.twimg.com/media/%s.jpg",
+			"http://p.twimg.com/%s.png", "http://twitpic.com/%s", "http://instagr.am/p/%s/",
+			"http://instagram.com/p/%s/", "http://imgur.com/%s", "http://i.imgur.com/%s.jpg", "http://img.ly/%s",
+			"http://yfrog.com/%s", "http://plixi.com/p/%s", "http://lockerz.com/s/%s",
+			"http://ww1.sinaimg.cn/large/%s.jpg", "http://twitgoo.com/%s", "http://moby.to/%s",
+			"http://photozou.jp/photo/show/1234/%s" };
+
+	private static final String[] OTHER_LINKS = new String[] { "http://t.co/%s", "https://twitter.com/%s",
+			"https://github.com/mariotaku/%s", "http://www.youtube.com/watch?v=%s", "http://example.com/%s.html",
+			"http://bit.ly/%s", "http://news.example.org/2013/%s" };
+
+	private static final Pattern PATTERN_HREF = Pattern.compile("<a href=\"([^\"]+)\">");
+
+	private static final int CORPUS_SIZE = 5000;
+	private static final int ROUNDS = 5;
+
+	public void testClassifierMatchesCascade() {
+		final List<String> links = createCorpus(CORPUS_SIZE);
+		int images = 0;
+		for (final String link : links) {
+			final ImageSpec expected = getImageByCascade(link);
+			final ImageSpec actual = Utils.getAllAvailableImage(link);
+			if (expected == null) {
+				assertNull(link, actual);
+				continue;
+			}
+			assertNotNull(link, actual);
+			assertEquals(link, expected.preview_image_link, actual.preview_image_link);
+			assertEquals(link, expected.full_image_link, actual.full_image_link);
+			images++;
+		}
+		Log.i(LOGTAG, images + " of " + links.size() + " links are images");
+	}
+
+	public void testClassifierSpeed() {
+		final List<String> links = createCorpus(CORPUS_SIZE);
+		// Warm up, so both sides run with compiled patterns and JIT.
+		runCascade(links);
+		runClassifier(links);
+		long cascade_time = 0, classifier_time = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			cascade_time += runCascade(links);
+			classifier_time += runClassifier(links);
+		}
+		final int count = links.size() * ROUNDS;
+		Log.i(LOGTAG, "Regex cascade: " + cascade_time / count + " ns/link, classifier: " + classifier_time / count
+				+ " ns/link, " + count + " links");
+	}
+
+	/**
+	 * @return Links of {@code size} generated tweets, in the order they
+	 *         appear.
+	 */
+	private static List<String> createCorpus(final int size) {
+		final Random random = new Random(0x7715);
+		final List<String> links = new ArrayList<String>();
+		for (int i = 0; i < size; i++) {
+			final StringBuilder html = new StringBuilder("Tweet " + i);
+			// Zero to two links per tweet, about one in five is an image.
+			for (int j = random.nextInt(3); j > 0; j--) {
+				final String id = Long.toString(Math.abs(random.nextLong()), 36);
+				final String[] formats = random.nextInt(5) == 0 ? IMAGE_LINKS : OTHER_LINKS;
+				final String format = formats[random.nextInt(formats.length)];
+				final String link = String.format(format, format.contains("photozou") ? String.valueOf(i) : id);
+				html.append(" <a href=\"" + link + "\">" + link + "</a> text");
+			}
+			final Matcher m = PATTERN_HREF.matcher(html);
+			while (m.find()) {
+				links.add(m.group(1));
+			}
+		}
+		return links;
+	}
+
+	private static ImageSpec getImageByCascade(final String link) {
+		for (final int host : IMAGE_HOSTS) {
+			final ImageSpec spec = Utils.getImageSpec(host, link, true);
+			if (spec != null) return spec;
+		}
+		return null;
+	}
+
+	private static long runCascade(final List<String> links) {
+		final long start = System.nanoTime();
+		for (final String link : links) {
+			getImageByCascade(link);
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static long runClassifier(final List<String> links) {
+		final long start = System.nanoTime();
+		for (final String link : links) {
+			Utils.getAllAvailableImage(link);
+		}
+		return System.nanoTime() - start;
+	}
+
+}
@@ -0,0 +1,135 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.mariotaku.twidere.model.ParcelableStatus;
+
+import android.util.Log;
+
+/**
+ * Measures merging a page into a loaded timeline and removing statuses by
+ * id, with {@link SynchronizedStatusesList} and with the scan-and-sort code
+ * loaders used before, at 1k, 10k and 50k statuses.</br> </br> The page has
+ * 100 statuses newer than the timeline and 100 already in it, then 100
+ * statuses spread over the timeline are removed. Both ways must end with the
+ * same timeline, timings are logged with tag
+ * {@code SynchronizedStatusesListBenchmark}.
+ *
+ * @author mariotaku
+ */
+public class SynchronizedStatusesListBenchmark extends TestCase {
+
+	private static final String LOGTAG = SynchronizedStatusesListBenchmark.class.getSimpleName();
+
+	private static final long FIRST_ID = 300000000000000000L;
+	private static final long ID_STEP = 10;
+	private static final int PAGE_NEW = 100, PAGE_LOADED = 100, REMOVE_COUNT = 100;
+	private static final int ROUNDS = 3;
+
+	public void test1k() {
+		runBenchmark(1000);
+	}
+
+	public void test10k() {
+		runBenchmark(10000);
+	}
+
+	public void test50k() {
+		runBenchmark(50000);
+	}
+
+	private static void assertSameTimeline(final List<ParcelableStatus> expected, final List<ParcelableStatus> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0, j = expected.size(); i < j; i++) {
+			final ParcelableStatus expected_status = expected.get(i), actual_status = actual.get(i);
+			assertEquals(expected_status.status_id, actual_status.status_id);
+			// A status already loaded must be replaced by the fetched copy.
+			assertSame(expected_status, actual_status);
+		}
+	}
+
+	private static boolean deleteStatusByScan(final List<ParcelableStatus> data, final long status_id) {
+		// What ParcelableStatusesLoader.deleteStatus did.
+		final NoDuplicatesArrayList<ParcelableStatus> data_to_remove = new NoDuplicatesArrayList<ParcelableStatus>();
+		for (final ParcelableStatus status : data) {
+			if (status.status_id == status_id) {
+				data_to_remove.add(status);
+			}
+		}
+		return data.removeAll(data_to_remove);
+	}
+
+	private static void runBenchmark(final int size) {
+		final List<ParcelableStatus> timeline = TestStatuses.createList(FIRST_ID, size, ID_STEP);
+		Collections.reverse(timeline);
+		final List<ParcelableStatus> page = new ArrayList<ParcelableStatus>();
+		page.addAll(TestStatuses.createList(FIRST_ID + size * ID_STEP, PAGE_NEW, ID_STEP));
+		// Fresh copies of loaded statuses, which replace the old ones.
+		for (final ParcelableStatus status : timeline.subList(0, PAGE_LOADED)) {
+			page.add(TestStatuses.create(status.status_id));
+		}
+		Collections.reverse(page);
+		final long[] remove_ids = new long[REMOVE_COUNT];
+		for (int i = 0; i < REMOVE_COUNT; i++) {
+			remove_ids[i] = timeline.get(PAGE_LOADED + i * ((size - PAGE_LOADED) / REMOVE_COUNT)).status_id;
+		}
+		long scan_merge = 0, scan_remove = 0, list_merge = 0, list_remove = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			final SynchronizedStateSavedList<ParcelableStatus, Long> old_data = new SynchronizedStateSavedList<ParcelableStatus, Long>(
+					timeline);
+			final SynchronizedStatusesList new_data = new SynchronizedStatusesList(timeline);
+
+			long start = System.nanoTime();
+			// What Twitter4JStatusLoader did with a fetched page.
+			for (final ParcelableStatus status : page) {
+				deleteStatusByScan(old_data, status.status_id);
+				old_data.add(status);
+			}
+			Collections.sort(old_data);
+			scan_merge += System.nanoTime() - start;
+			start = System.nanoTime();
+			for (final long id : remove_ids) {
+				deleteStatusByScan(old_data, id);
+			}
+			scan_remove += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			new_data.addAll(page);
+			list_merge += System.nanoTime() - start;
+			start = System.nanoTime();
+			for (final long id : remove_ids) {
+				new_data.removeStatus(id);
+			}
+			list_remove += System.nanoTime() - start;
+
+			assertSameTimeline(old_data, new_data);
+		}
+		Log.i(LOGTAG, size + " statuses, merge " + page.size() + ": scan and sort " + scan_merge / ROUNDS / 1000
+				+ " us, sorted list " + list_merge / ROUNDS / 1000 + " us; remove " + REMOVE_COUNT
+				+ ": scan " + scan_remove / ROUNDS / 1000 + " us, sorted list " + list_remove / ROUNDS / 1000 + " us");
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ *				Twidere - Twitter client for Android
+ *
+ * Copyright (C) 2012 Mariotaku Lee <mariotaku.lee@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.mariotaku.twidere.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mariotaku.twidere.Constants;
+import org.mariotaku.twidere.model.ParcelableStatus;
+import org.mariotaku.twidere.provider.TweetStore.Statuses;
+
+import android.content.ContentValues;
+
+/**
+ * Creates statuses for benchmarks, without network or database.
+ *
+ * @author mariotaku
+ */
+final class TestStatuses implements Constants {
+
+	static final long ACCOUNT_ID = 1;
+
+	private TestStatuses() {
+		throw new AssertionError("You are trying to create an instance for this utility class!");
+	}
+
+	static ParcelableStatus create(final long status_id) {
+		final ContentValues values = new ContentValues();
+		final long user_id = status_id % 97;
+		values.put(Statuses.ACCOUNT_ID, ACCOUNT_ID);
+		values.put(Statuses.STATUS_ID, status_id);
+		values.put(Statuses.USER_ID, user_id);
+		values.put(Statuses.STATUS_TIMESTAMP, 1356998400000L + status_id * 1000);
+		values.put(Statuses.NAME, "User " + user_id);
+		values.put(Statuses.SCREEN_NAME, "user" + user_id);
+		values.put(Statuses.TEXT_HTML, "Status <a href=\"http://t.co/" + status_id + "\">http://t.co/" + status_id
+				+ "</a> &amp; more");
+		values.put(Statuses.TEXT_PLAIN, "Status http://t.co/" + status_id + " & more");
+		values.put(Statuses.PROFILE_IMAGE_URL, "https://si0.twimg.com/profile_images/" + user_id + "/a_normal.png");
+		values.put(Statuses.SOURCE, "<a href=\"http://twidere.org\">Twidere</a>");
+		// Skips link matching for preview, it's not what's measured.
+		values.put(Statuses.IMAGE_HOST, IMAGE_HOST_NONE);
+		return new ParcelableStatus(values);
+	}
+
+	/**
+	 * @return {@code count} statuses with ids {@code first_id},
+	 *         {@code first_id + step}, and so on, in that order.
+	 */
+	static List<ParcelableStatus> createList(final long first_id, final int count, final long step) {
+		final List<ParcelableStatus> statuses = new ArrayList<ParcelableStatus>(count);
+		for (int i = 0; i < count; i++) {
+			statuses.add(create(first_id + i * step));
+		}
+		return statuses;
+	}
+
+}